@@ -56,6 +56,11 @@ dependencies {
     compileOnly(libs.retrofit)
 
     compileOnly(project(":dummy"))
+
+    testImplementation(libs.annotation)
+    testImplementation(libs.junit)
+    // The requesters use Android classes such as JsonReader, Base64 and Looper, that are stubs in android.jar.
+    testImplementation(libs.robolectric)
 }
 
 tasks {
@@ -15,6 +15,7 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 
+import app.revanced.integrations.music.requests.CircuitBreaker;
 import app.revanced.integrations.music.requests.Requester;
 import app.revanced.integrations.music.utils.LogHelper;
 import app.revanced.integrations.music.utils.ReVancedUtils;
@@ -39,13 +40,22 @@ public class PlaylistRequester {
     }
 
     public static void fetchPlaylist(@NonNull String videoId, @NonNull String playlistId, final int playlistIndex) {
+        CircuitBreaker circuitBreaker = null;
         try {
             ReVancedUtils.verifyOffMainThread();
             HttpURLConnection connection = getPlaylistConnectionFromRoute(GET_PLAYLIST, playlistId);
             connection.setConnectTimeout(TIMEOUT_TCP_DEFAULT_MILLISECONDS);
             connection.setReadTimeout(TIMEOUT_HTTP_DEFAULT_MILLISECONDS);
 
-            final int responseCode = connection.getResponseCode();
+            circuitBreaker = CircuitBreaker.forConnection(connection);
+            if (!circuitBreaker.allowRequest()) {
+                handleConnectionError("Ignoring playlist fetch as back off is in effect");
+                return;
+            }
+
+            final int responseCode = Requester.getResponseCode(connection,
+                    GET_PLAYLIST.getMetrics(), circuitBreaker, null);
+            circuitBreaker.recordResponse(connection, responseCode);
 
             if (responseCode != HTTP_STATUS_CODE_SUCCESS) {
                 handleConnectionError("API not available: " + responseCode);
@@ -71,6 +81,10 @@ public class PlaylistRequester {
             handleConnectionError(String.format("Failed to fetch Playlist (%s)", ex.getMessage()), ex);
         } catch (Exception ex) {
             handleConnectionError("Failed to fetch Playlist", ex);
+        } finally {
+            if (circuitBreaker != null) {
+                circuitBreaker.requestFinished();
+            }
         }
     }
 
@@ -4,14 +4,33 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class Requester {
+    /**
+     * Size of the pooled read buffer, used when the response length is not known.
+     */
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /**
+     * Largest array presized from the Content-Length header.  Longer responses grow the array as they are read.
+     */
+    private static final int MAX_PRESIZED_LENGTH = 1024 * 1024;
+
+    /**
+     * Read buffer pooled per thread. Requests are always made from background threads,
+     * and each thread reads only one response at a time.
+     */
+    private static final ThreadLocal<byte[]> readBuffer = ThreadLocal.withInitial(() -> new byte[READ_BUFFER_SIZE]);
+
     private Requester() {
     }
 
@@ -23,11 +42,43 @@ public class Requester {
         return connection;
     }
 
+    /**
+     * Writes the request body, if any, and gets the response code.
+     * The request is recorded to the route metrics, with the latency measured until the response headers are received.
+     * If the connection fails, the failure is also recorded to the circuit breaker.
+     *
+     * @param circuitBreaker Circuit breaker to record connection failures to, or null if failures are recorded elsewhere.
+     * @param requestBody Request body, or null if the request has no body.
+     */
+    public static int getResponseCode(HttpURLConnection connection, RouteMetrics metrics,
+                                      CircuitBreaker circuitBreaker, byte[] requestBody) throws IOException {
+        final long startTime = RouteMetrics.startTime();
+        try {
+            if (requestBody != null) {
+                // Body length is known, so it is streamed instead of buffered by the connection.
+                connection.setFixedLengthStreamingMode(requestBody.length);
+                try (OutputStream outputStream = connection.getOutputStream()) {
+                    outputStream.write(requestBody, 0, requestBody.length);
+                }
+            }
+            final int responseCode = connection.getResponseCode();
+            metrics.recordResponse(startTime, responseCode,
+                    requestBody == null ? 0 : requestBody.length, connection.getContentLength());
+            return responseCode;
+        } catch (IOException ex) {
+            metrics.recordFailure(startTime, ex instanceof SocketTimeoutException);
+            if (circuitBreaker != null) {
+                circuitBreaker.recordFailure();
+            }
+            throw ex;
+        }
+    }
+
     /**
      * Parse the {@link HttpURLConnection}, and closes the underlying InputStream.
      */
     public static String parseJson(HttpURLConnection connection) throws IOException {
-        return parseInputStreamAndClose(connection.getInputStream(), true);
+        return decode(parseByteBuffer(connection), true);
     }
 
     /**
@@ -49,16 +100,85 @@ public class Requester {
      * @param stripNewLineCharacters if newline (\n) characters should be stripped from the InputStream
      */
     public static String parseInputStreamAndClose(InputStream inputStream, boolean stripNewLineCharacters) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            StringBuilder jsonBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonBuilder.append(line);
-                if (!stripNewLineCharacters)
-                    jsonBuilder.append("\n");
+        return decode(readInputStreamAndClose(inputStream, -1), stripNewLineCharacters);
+    }
+
+    /**
+     * Read the {@link HttpURLConnection} response body as raw bytes, and closes the underlying InputStream.
+     * For parsers that can consume the UTF-8 bytes directly, and do not need a String.
+     */
+    public static byte[] parseBytes(HttpURLConnection connection) throws IOException {
+        ByteBuffer buffer = parseByteBuffer(connection);
+        if (buffer.position() == 0 && buffer.remaining() == buffer.capacity()) {
+            return buffer.array(); // Content-Length was accurate, no copy needed.
+        }
+        return Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.limit());
+    }
+
+    /**
+     * Read the {@link HttpURLConnection} response body, and closes the underlying InputStream.
+     * The returned buffer is backed by an array and may have unused capacity past its limit.
+     */
+    public static ByteBuffer parseByteBuffer(HttpURLConnection connection) throws IOException {
+        return readInputStreamAndClose(connection.getInputStream(), connection.getContentLength());
+    }
+
+    /**
+     * Reads the entire stream and closes it.
+     * If the expected length is known, the response is read directly into a presized array.
+     * Otherwise, the stream is read using a pooled buffer and copied into a growing array.
+     *
+     * @param expectedLength Content-Length of the response, or -1 if not known.
+     *                       Value is only a sizing hint, and the stream is always read to the end.
+     *                       The presized array is at most {@link #MAX_PRESIZED_LENGTH},
+     *                       so a bogus header cannot force a huge allocation.
+     */
+    private static ByteBuffer readInputStreamAndClose(InputStream inputStream, int expectedLength) throws IOException {
+        try (InputStream stream = inputStream) {
+            byte[] chunk = readBuffer.get();
+            byte[] result = new byte[expectedLength > 0
+                    ? Math.min(expectedLength, MAX_PRESIZED_LENGTH)
+                    : chunk.length];
+            int size = 0;
+            while (true) {
+                if (size < result.length) {
+                    final int read = stream.read(result, size, result.length - size);
+                    if (read == -1) break;
+                    size += read;
+                } else {
+                    // Array is full. Content-Length was wrong or not known.
+                    final int read = stream.read(chunk, 0, chunk.length);
+                    if (read == -1) break;
+                    result = Arrays.copyOf(result, Math.max(result.length * 2, size + read));
+                    System.arraycopy(chunk, 0, result, size, read);
+                    size += read;
+                }
+            }
+            return ByteBuffer.wrap(result, 0, size);
+        }
+    }
+
+    /**
+     * Decodes the UTF-8 response in a single pass.
+     *
+     * @param stripNewLineCharacters if newline (\n and \r) characters should be removed.
+     *                               Safe to do before decoding, as UTF-8 multibyte sequences never contain ASCII values.
+     */
+    private static String decode(ByteBuffer buffer, boolean stripNewLineCharacters) {
+        byte[] bytes = buffer.array();
+        final int start = buffer.position();
+        int end = buffer.limit();
+        if (stripNewLineCharacters) {
+            int write = start;
+            for (int read = start; read < end; read++) {
+                final byte b = bytes[read];
+                if (b != '\n' && b != '\r') {
+                    bytes[write++] = b;
+                }
             }
-            return jsonBuilder.toString();
+            end = write;
         }
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
     }
 
     /**
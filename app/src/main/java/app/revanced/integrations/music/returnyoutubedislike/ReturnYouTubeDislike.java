@@ -39,6 +39,7 @@ import java.util.concurrent.TimeoutException;
 import app.revanced.integrations.music.returnyoutubedislike.requests.RYDVoteData;
 import app.revanced.integrations.music.returnyoutubedislike.requests.ReturnYouTubeDislikeApi;
 import app.revanced.integrations.music.settings.SettingsEnum;
+import app.revanced.integrations.music.utils.BackgroundLane;
 import app.revanced.integrations.music.utils.LogHelper;
 import app.revanced.integrations.music.utils.ReVancedUtils;
 
@@ -163,7 +164,8 @@ public class ReturnYouTubeDislike {
                 voteFetchFuture = entry.future;
                 return;
             }
-            voteFetchFuture = ReVancedUtils.submitOnBackgroundThread(() -> ReturnYouTubeDislikeApi.fetchVotes(videoId));
+            voteFetchFuture = ReVancedUtils.submitOnBackgroundThread(BackgroundLane.INTERACTIVE,
+                    () -> ReturnYouTubeDislikeApi.fetchVotes(videoId));
             futureCache.put(videoId, new RYDCachedFetch(voteFetchFuture, videoId));
         }
     }
@@ -34,9 +34,11 @@ import java.util.Date;
 import java.util.Objects;
 
 import app.revanced.integrations.music.patches.video.CustomPlaybackSpeedPatch;
+import app.revanced.integrations.music.requests.RouteMetrics;
 import app.revanced.integrations.music.settings.SettingsEnum;
 import app.revanced.integrations.music.sponsorblock.objects.SponsorBlockDialogBuilder;
 import app.revanced.integrations.music.sponsorblock.objects.SponsorBlockEditTextDialogBuilder;
+import app.revanced.integrations.music.utils.BackgroundLane;
 import app.revanced.integrations.music.utils.LogHelper;
 import app.revanced.integrations.music.utils.ReVancedHelper;
 import app.revanced.integrations.music.utils.ReVancedUtils;
@@ -47,6 +49,10 @@ import app.revanced.integrations.music.utils.ReVancedUtils;
 public class ReVancedSettingsFragment extends PreferenceFragment {
 
     private static final String IMPORT_EXPORT_SETTINGS_ENTRY_KEY = "revanced_extended_settings_import_export_entry";
+    /**
+     * Not a setting. Shows the request statistics of all integration API endpoints.
+     */
+    private static final String API_STATISTICS_KEY = "revanced_api_statistics";
     /**
      * If a setting path has this prefix, then remove it.
      */
@@ -108,6 +114,11 @@ public class ReVancedSettingsFragment extends PreferenceFragment {
                 return;
             }
 
+            if (dataString.equals(API_STATISTICS_KEY)) {
+                apiStatisticsDialogBuilder();
+                return;
+            }
+
             final SettingsEnum settings = Objects.requireNonNull(SettingsEnum.settingFromPath(dataString));
 
             switch (settings) {
@@ -159,6 +170,24 @@ public class ReVancedSettingsFragment extends PreferenceFragment {
         }
     }
 
+    /**
+     * Build a Dialog for the API request statistics
+     */
+    private void apiStatisticsDialogBuilder() {
+        try {
+            final String summary = RouteMetrics.getSummaryOfAllRoutes();
+
+            getDialogBuilder(getActivity())
+                    .setTitle(str("revanced_api_statistics_title"))
+                    .setMessage((summary.isEmpty() ? str("revanced_api_statistics_empty") : summary)
+                            + "\n\n" + BackgroundLane.getSummaryOfAllLanes())
+                    .setPositiveButton(android.R.string.ok, null)
+                    .show();
+        } catch (Exception ex) {
+            LogHelper.printException(() -> "apiStatisticsDialogBuilder failure", ex);
+        }
+    }
+
     /**
      * Build a EditTextDialog for Import / Export settings
      */
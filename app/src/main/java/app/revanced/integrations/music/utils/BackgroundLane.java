@@ -0,0 +1,194 @@
+package app.revanced.integrations.music.utils;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded thread pools for background tasks, separated by how urgently the result is needed.
+ * <p>
+ * Tasks in a lane must never block waiting for another task of the same lane,
+ * and only {@link #BLOCKING} tasks can block waiting for a task of another lane.
+ * Otherwise a full lane can deadlock.
+ * <p>
+ * If a lane queue is full, a task submitted from a lane thread runs on the submitting thread.
+ * A task submitted from any other thread, such as the main thread or an app thread calling a hook,
+ * runs on a shared overflow thread, so network calls do not run on app threads.
+ * If all overflow threads are also busy, the task runs on the submitting thread, unless that is the main thread.
+ * Tasks are never refused, so hooks do not need to handle a {@link RejectedExecutionException}.
+ */
+public enum BackgroundLane {
+    /**
+     * Network fetches whose result is shown to the user as soon as it is available,
+     * such as dislikes, segments, storyboards and thumbnails.
+     */
+    INTERACTIVE("Interactive", Thread.NORM_PRIORITY + 1, 4, 64),
+    /**
+     * Background network calls and disk writes that nothing waits on,
+     * such as cache refreshes, cache writes and view counts.
+     */
+    NETWORK("Network", Thread.NORM_PRIORITY, 6, 128),
+    /**
+     * Tasks that can block for a long time, such as tasks that wait on {@link #INTERACTIVE} results,
+     * and calls the user is waiting on that use long timeouts, such as SponsorBlock votes and submissions.
+     * Has more threads than the other lanes, so slow calls do not delay each other.
+     */
+    BLOCKING("Blocking", Thread.NORM_PRIORITY, 16, 256),
+    /**
+     * Computation, such as solving RYD registration puzzles.  Runs below normal priority
+     * so it does not compete with the UI and video decoding.
+     */
+    CPU("CPU", Thread.NORM_PRIORITY - 1,
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)), 16);
+
+    /**
+     * Idle threads are stopped after this time.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    /**
+     * Thread of a lane.  Only lane threads run tasks of a full lane themselves.
+     */
+    private static final class LaneThread extends Thread {
+        LaneThread(@NonNull Runnable task, @NonNull String name) {
+            super(task, name);
+        }
+    }
+
+    /**
+     * Runs tasks of full lanes that were submitted from threads that are not lane threads.
+     * Created only if a lane is ever full.
+     */
+    private static final class Overflow {
+        private static final int THREAD_COUNT = 4;
+
+        private static final AtomicInteger threadNumber = new AtomicInteger();
+
+        private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                0,
+                THREAD_COUNT,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                r -> new LaneThread(r, "revanced-overflow-" + threadNumber.incrementAndGet()),
+                (r, pool) -> {
+                    if (ReVancedUtils.isCurrentlyOnMainThread()) {
+                        // The main thread must never run a lane task, and must never get an exception.
+                        LogHelper.printException(() -> "Overflow threads are busy, starting a new thread");
+                        new LaneThread(r, "revanced-overflow-" + threadNumber.incrementAndGet()).start();
+                        return;
+                    }
+                    LogHelper.printDebug(() -> "Overflow threads are busy, running task on calling thread");
+                    r.run();
+                });
+    }
+
+    @NonNull
+    private final String laneName;
+    @NonNull
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong tasksExecuted = new AtomicLong();
+    private final AtomicLong tasksRejected = new AtomicLong();
+    private final AtomicLong totalWaitMilliseconds = new AtomicLong();
+    private final AtomicLong maxWaitMilliseconds = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    BackgroundLane(@NonNull String name, int threadPriority, int threadCount, int queueCapacity) {
+        this.laneName = name;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> { // ThreadFactory
+                    Thread t = new LaneThread(r, "revanced-" + name.toLowerCase(Locale.US) + "-" + threadNumber.incrementAndGet());
+                    t.setPriority(threadPriority);
+                    return t;
+                },
+                (r, pool) -> { // RejectedExecutionHandler
+                    tasksRejected.incrementAndGet();
+                    if (Thread.currentThread() instanceof LaneThread) {
+                        LogHelper.printDebug(() -> name + " lane is full, running task on calling thread");
+                        r.run();
+                        return;
+                    }
+                    LogHelper.printInfo(() -> name + " lane is full, running task on an overflow thread");
+                    runOnOverflowThread(r);
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public void execute(@NonNull Runnable task) {
+        final long queuedTime = System.currentTimeMillis();
+        executor.execute(() -> {
+            recordWait(queuedTime);
+            task.run();
+        });
+        final int queueDepth = executor.getQueue().size();
+        maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+    }
+
+    private static void runOnOverflowThread(@NonNull Runnable task) {
+        Overflow.executor.execute(task);
+    }
+
+    /**
+     * @return Maximum number of tasks this lane runs at the same time.
+     */
+    public int getThreadCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    @NonNull
+    public <T> Future<T> submit(@NonNull Callable<T> call) {
+        FutureTask<T> future = new FutureTask<>(call);
+        execute(future);
+        return future;
+    }
+
+    private void recordWait(long queuedTime) {
+        final long waitMilliseconds = System.currentTimeMillis() - queuedTime;
+        tasksExecuted.incrementAndGet();
+        totalWaitMilliseconds.addAndGet(waitMilliseconds);
+        maxWaitMilliseconds.accumulateAndGet(waitMilliseconds, Math::max);
+    }
+
+    @NonNull
+    public String getSummary() {
+        final long executed = tasksExecuted.get();
+        return String.format(Locale.US,
+                "%s lane\nqueued: %d  max queued: %d  active threads: %d\nexecuted: %d  rejected: %d\n"
+                        + "average wait: %dms  max wait: %dms",
+                laneName, executor.getQueue().size(), maxQueueDepth.get(), executor.getActiveCount(),
+                executed, tasksRejected.get(),
+                executed == 0 ? 0 : totalWaitMilliseconds.get() / executed, maxWaitMilliseconds.get());
+    }
+
+    /**
+     * @return Summary of all lanes.
+     */
+    @NonNull
+    public static String getSummaryOfAllLanes() {
+        StringBuilder builder = new StringBuilder();
+        for (BackgroundLane lane : values()) {
+            if (builder.length() > 0) {
+                builder.append("\n\n");
+            }
+            builder.append(lane.getSummary());
+        }
+        return builder.toString();
+    }
+}
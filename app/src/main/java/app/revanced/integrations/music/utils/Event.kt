@@ -1,10 +1,14 @@
 package app.revanced.integrations.music.utils
 
+import java.util.concurrent.CopyOnWriteArraySet
+
 /**
  * generic event provider class
+ *
+ * Observers can be added and removed from any thread, including while an event is being sent.
  */
 class Event<T> {
-    private val eventListeners = mutableSetOf<(T) -> Unit>()
+    private val eventListeners = CopyOnWriteArraySet<(T) -> Unit>()
 
     operator fun plusAssign(observer: (T) -> Unit) {
         addObserver(observer)
@@ -27,4 +31,3 @@ class Event<T> {
             observer.invoke(value)
     }
 }
-
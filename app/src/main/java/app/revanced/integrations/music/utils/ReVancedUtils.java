@@ -24,29 +24,11 @@ import java.text.Bidi;
 import java.util.Locale;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @noinspection ALL
  */
 public class ReVancedUtils {
-    /**
-     * General purpose pool for network calls and other background tasks.
-     * All tasks run at max thread priority.
-     */
-    private static final ThreadPoolExecutor backgroundThreadPool = new ThreadPoolExecutor(
-            2, // 2 threads always ready to go
-            Integer.MAX_VALUE,
-            10, // For any threads over the minimum, keep them alive 10 seconds after they go idle
-            TimeUnit.SECONDS,
-            new SynchronousQueue<>(),
-            r -> { // ThreadFactory
-                Thread t = new Thread(r);
-                t.setPriority(Thread.MAX_PRIORITY); // run at max priority
-                return t;
-            });
     @SuppressLint("StaticFieldLeak")
     public static Context context;
     @Nullable
@@ -102,13 +84,29 @@ public class ReVancedUtils {
         return -1;
     }
 
+    /**
+     * Runs the task using {@link BackgroundLane#BLOCKING}.
+     * Short tasks that nothing waits on should instead use {@link BackgroundLane#NETWORK}.
+     */
     public static void runOnBackgroundThread(@NonNull Runnable task) {
-        backgroundThreadPool.execute(task);
+        BackgroundLane.BLOCKING.execute(task);
+    }
+
+    public static void runOnBackgroundThread(@NonNull BackgroundLane lane, @NonNull Runnable task) {
+        lane.execute(task);
     }
 
+    /**
+     * Runs the call using {@link BackgroundLane#BLOCKING}.
+     */
     @NonNull
     public static <T> Future<T> submitOnBackgroundThread(@NonNull Callable<T> call) {
-        return backgroundThreadPool.submit(call);
+        return BackgroundLane.BLOCKING.submit(call);
+    }
+
+    @NonNull
+    public static <T> Future<T> submitOnBackgroundThread(@NonNull BackgroundLane lane, @NonNull Callable<T> call) {
+        return lane.submit(call);
     }
 
     /**
@@ -21,11 +21,13 @@ import org.chromium.net.UrlResponseInfo;
 import org.chromium.net.impl.CronetUrlRequest;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import app.revanced.integrations.youtube.requests.CircuitBreaker;
+import app.revanced.integrations.youtube.requests.RouteMetrics;
 import app.revanced.integrations.youtube.settings.SettingsEnum;
 import app.revanced.integrations.youtube.utils.LogHelper;
 import app.revanced.integrations.youtube.utils.ReVancedUtils;
@@ -47,6 +49,10 @@ import app.revanced.integrations.youtube.utils.ReVancedUtils;
  * If a failed thumbnail load is reloaded (ie: scroll off, then on screen), then the original thumbnail
  * is reloaded instead. Fast thumbnails requires using SD or lower thumbnail resolution,
  * because a noticeable number of videos do not have hq720 and too much fail to load.
+ * <p>
+ * Or can use 'non blocking' video still thumbnails, where the image request never waits for verification.
+ * The highest quality already verified is used, or the original thumbnail if none is verified yet,
+ * and the verification is done in the background so the next time the thumbnail loads it uses the alt image.
  */
 @SuppressWarnings("unused")
 public final class AlternativeThumbnailsPatch {
@@ -134,20 +140,21 @@ public final class AlternativeThumbnailsPatch {
     private static final String deArrowApiUrlPrefix;
 
     /**
-     * How long to temporarily turn off DeArrow if it fails for any reason.
+     * Used to temporarily turn off DeArrow if it fails for any reason.
      */
-    private static final long DEARROW_FAILURE_API_BACKOFF_MILLISECONDS = 5 * 60 * 1000; // 5 Minutes.
+    private static final CircuitBreaker deArrowCircuitBreaker;
 
     /**
-     * If non-zero, then the system time of when DeArrow API calls can resume.
+     * DeArrow request statistics.  Cronet does not provide the request start time, so latency is not recorded.
      */
-    private static volatile long timeToResumeDeArrowAPICalls;
+    private static final RouteMetrics deArrowMetrics = RouteMetrics.forName("DeArrow thumbnails");
 
     static {
         dearrowApiUri = validateSettings();
         final int port = dearrowApiUri.getPort();
         String portString = port == -1 ? "" : (":" + port);
         deArrowApiUrlPrefix = dearrowApiUri.getScheme() + "://" + dearrowApiUri.getHost() + portString + "/";
+        deArrowCircuitBreaker = CircuitBreaker.forHost(dearrowApiUri.getHost());
         LogHelper.printDebug(() -> "Using DeArrow API address: " + deArrowApiUrlPrefix);
     }
 
@@ -167,10 +174,11 @@ public final class AlternativeThumbnailsPatch {
     }
 
     private static ThumbnailOption optionSettingForCurrentNavigation() {
-        if (NavigationBar.isSearchBarActive()) { // Must check search first.
+        NavigationBar.NavigationState navigationState = NavigationBar.getState();
+        if (navigationState.searchBarActive) { // Must check search first.
             return ThumbnailOption.fromValue(ALT_THUMBNAIL_SEARCH.getInt());
         }
-        if (PlayerType.getCurrent().isMaximizedOrFullscreen()) {
+        if (navigationState.playerType.isMaximizedOrFullscreen()) {
             return ThumbnailOption.fromValue(ALT_THUMBNAIL_PLAYER.getInt());
         }
 
@@ -183,7 +191,7 @@ public final class AlternativeThumbnailsPatch {
             return homeOption; // All are the same option.
         }
 
-        NavigationButton selectedNavButton = NavigationButton.getSelectedNavigationButton();
+        NavigationButton selectedNavButton = navigationState.selectedNavigationButton;
         if (selectedNavButton == null) {
             // Unknown tab, treat as the home tab;
             return homeOption;
@@ -209,6 +217,17 @@ public final class AlternativeThumbnailsPatch {
     private static String buildYoutubeVideoStillURL(@NonNull DecodedThumbnailUrl decodedUrl,
                                                     @NonNull ThumbnailQuality qualityToUse) {
         String sanitizedReplacement = decodedUrl.createStillsUrl(qualityToUse, false);
+        if (SettingsEnum.ALT_THUMBNAIL_STILLS_NON_BLOCKING.getBoolean()
+                && !SettingsEnum.ALT_THUMBNAIL_STILLS_FAST.getBoolean()) {
+            ThumbnailQuality verifiedQuality = VerifiedQualities.getVerifiedAltThumbnailQuality(
+                    decodedUrl.videoId, qualityToUse, sanitizedReplacement);
+            if (verifiedQuality == null) {
+                return decodedUrl.sanitizedUrl;
+            }
+            return verifiedQuality == qualityToUse
+                    ? sanitizedReplacement
+                    : decodedUrl.createStillsUrl(verifiedQuality, false);
+        }
         if (VerifiedQualities.verifyAltThumbnailExist(decodedUrl.videoId, qualityToUse, sanitizedReplacement)) {
             return sanitizedReplacement;
         }
@@ -242,28 +261,38 @@ public final class AlternativeThumbnailsPatch {
      * @return If this client has not recently experienced any DeArrow API errors.
      */
     private static boolean canUseDeArrowAPI() {
-        if (timeToResumeDeArrowAPICalls == 0) {
-            return true;
+        return deArrowCircuitBreaker.allowRequest();
+    }
+
+    /**
+     * @return The Retry-After time of the response, or zero if not present.
+     */
+    private static long getRetryAfterMilliseconds(@Nullable UrlResponseInfo responseInfo) {
+        if (responseInfo == null) {
+            return 0;
         }
-        if (timeToResumeDeArrowAPICalls < System.currentTimeMillis()) {
-            LogHelper.printDebug(() -> "Resuming DeArrow API calls");
-            timeToResumeDeArrowAPICalls = 0;
-            return true;
+        for (Map.Entry<String, List<String>> header : responseInfo.getAllHeaders().entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                return CircuitBreaker.parseRetryAfter(header.getValue().get(0));
+            }
         }
-        return false;
+        return 0;
     }
 
-    private static void handleDeArrowError(@NonNull String url, int statusCode) {
+    private static void handleDeArrowError(@NonNull String url, int statusCode, @Nullable UrlResponseInfo responseInfo) {
         LogHelper.printDebug(() -> "Encountered DeArrow error.  Url: " + url);
-        final long now = System.currentTimeMillis();
-        if (timeToResumeDeArrowAPICalls < now) {
-            timeToResumeDeArrowAPICalls = now + DEARROW_FAILURE_API_BACKOFF_MILLISECONDS;
-            if (SettingsEnum.ALT_THUMBNAIL_DEARROW_CONNECTION_TOAST.getBoolean()) {
-                String toastMessage = (statusCode != 0)
-                        ? str("revanced_alt_thumbnail_dearrow_error", statusCode)
-                        : str("revanced_alt_thumbnail_dearrow_error_generic");
-                ReVancedUtils.showToastLong(toastMessage);
-            }
+        final boolean wasOpen = deArrowCircuitBreaker.isOpen();
+        if (CircuitBreaker.isBackOffResponse(statusCode)) {
+            deArrowCircuitBreaker.recordBackOff(getRetryAfterMilliseconds(responseInfo));
+        } else {
+            deArrowCircuitBreaker.recordFailure();
+        }
+        if (!wasOpen && deArrowCircuitBreaker.isOpen()
+                && SettingsEnum.ALT_THUMBNAIL_DEARROW_CONNECTION_TOAST.getBoolean()) {
+            String toastMessage = (statusCode != 0)
+                    ? str("revanced_alt_thumbnail_dearrow_error", statusCode)
+                    : str("revanced_alt_thumbnail_dearrow_error_generic");
+            ReVancedUtils.showToastLong(toastMessage);
         }
     }
 
@@ -330,19 +359,25 @@ public final class AlternativeThumbnailsPatch {
     public static void handleCronetSuccess(UrlRequest request, @NonNull UrlResponseInfo responseInfo) {
         try {
             final int statusCode = responseInfo.getHttpStatusCode();
-            if (statusCode == 200) {
-                return;
+            // The response url may be the redirected fallback url, so check the requested url.
+            final boolean requestIsDeArrow = urlIsDeArrow(((CronetUrlRequest) request).getHookedUrl());
+            if (requestIsDeArrow) {
+                deArrowMetrics.recordResponse(-1, statusCode, 0, responseInfo.getReceivedByteCount());
             }
-
             String url = responseInfo.getUrl();
+            // https://developer.mozilla.org/en-US/docs/Web/HTTP/Status/304
+            if (statusCode == 200 || statusCode == 304) {
+                if (requestIsDeArrow) {
+                    deArrowCircuitBreaker.recordSuccess();
+                }
+                // Url may be a still image, or the still image fallback of a DeArrow request.
+                setAltThumbnailLoaded(url, true);
+                return; // Normal response.
+            }
 
             if (urlIsDeArrow(url)) {
                 LogHelper.printDebug(() -> "handleCronetSuccess, statusCode: " + statusCode);
-                if (statusCode == 304) {
-                    // https://developer.mozilla.org/en-US/docs/Web/HTTP/Status/304
-                    return; // Normal response.
-                }
-                handleDeArrowError(url, statusCode);
+                handleDeArrowError(url, statusCode, responseInfo);
                 return;
             }
 
@@ -354,27 +389,45 @@ public final class AlternativeThumbnailsPatch {
                 // - very old
                 // - very low view count
                 // Take note of this, so if the image reloads the original thumbnail will be used.
-                DecodedThumbnailUrl decodedUrl = DecodedThumbnailUrl.decodeImageUrl(url);
-                if (decodedUrl == null) {
-                    return; // Not a thumbnail.
-                }
-
                 LogHelper.printDebug(() -> "handleCronetSuccess, image not available: " + url);
-
-                ThumbnailQuality quality = ThumbnailQuality.altImageNameToQuality(decodedUrl.imageQuality);
-                if (quality == null) {
-                    // Video is a short or a seekbar thumbnail, but somehow did not load.  Should not happen.
-                    LogHelper.printDebug(() -> "Failed to recognize image quality of url: " + decodedUrl.sanitizedUrl);
-                    return;
-                }
-
-                VerifiedQualities.setAltThumbnailDoesNotExist(decodedUrl.videoId, quality);
+                setAltThumbnailLoaded(url, false);
             }
         } catch (Exception ex) {
             LogHelper.printException(() -> "Callback success error", ex);
         }
     }
 
+    /**
+     * Feeds the result of a Cronet image load to {@link VerifiedQualities},
+     * so loaded images do not need a separate verification request.
+     *
+     * @param exists If the image loaded, or FALSE if the image does not exist.
+     */
+    private static void setAltThumbnailLoaded(@NonNull String url, boolean exists) {
+        if (!DecodedThumbnailUrl.isYouTubeThumbnail(url)) {
+            return;
+        }
+        DecodedThumbnailUrl decodedUrl = DecodedThumbnailUrl.decodeImageUrl(url);
+        if (decodedUrl == null) {
+            return; // Not a thumbnail.
+        }
+
+        ThumbnailQuality quality = ThumbnailQuality.altImageNameToQuality(decodedUrl.imageQuality);
+        if (quality == null) {
+            if (!exists) {
+                // Video is a short or a seekbar thumbnail, but somehow did not load.  Should not happen.
+                LogHelper.printDebug(() -> "Failed to recognize image quality of url: " + decodedUrl.sanitizedUrl);
+            }
+            return; // Original thumbnail.
+        }
+
+        if (exists) {
+            VerifiedQualities.setAltThumbnailExists(decodedUrl.videoId, quality);
+        } else {
+            VerifiedQualities.setAltThumbnailDoesNotExist(decodedUrl.videoId, quality);
+        }
+    }
+
     /**
      * Injection point.
      * <p>
@@ -391,12 +444,16 @@ public final class AlternativeThumbnailsPatch {
                                            IOException exception) {
         try {
             String url = ((CronetUrlRequest) request).getHookedUrl();
+            final int statusCode = (responseInfo != null)
+                    ? responseInfo.getHttpStatusCode()
+                    : 0;
             if (urlIsDeArrow(url)) {
                 LogHelper.printDebug(() -> "handleCronetFailure, exception: " + exception);
-                final int statusCode = (responseInfo != null)
-                        ? responseInfo.getHttpStatusCode()
-                        : 0;
-                handleDeArrowError(url, statusCode);
+                deArrowMetrics.recordFailure(-1, false);
+                handleDeArrowError(url, statusCode, responseInfo);
+            } else if (statusCode == 404) {
+                // A connection failure does not mean the image does not exist, so only a 404 is recorded.
+                setAltThumbnailLoaded(url, false);
             }
         } catch (Exception ex) {
             LogHelper.printException(() -> "Callback failure error", ex);
@@ -509,6 +566,12 @@ public final class AlternativeThumbnailsPatch {
          */
         private static final long NOT_AVAILABLE_TIMEOUT_MILLISECONDS = 10 * 60 * 1000; // 10 minutes.
 
+        /**
+         * How long to wait for a verification, including time spent queued behind other verifications.
+         * Longer than the connect and read timeouts of a single verification request.
+         */
+        private static final long VERIFICATION_WAIT_MILLISECONDS = 25 * 1000; // 25 seconds.
+
         /**
          * Cache used to verify if an alternative thumbnails exists for a given video id.
          */
@@ -543,6 +606,27 @@ public final class AlternativeThumbnailsPatch {
             return verified.verifyYouTubeThumbnailExists(videoId, quality, imageUrl);
         }
 
+        /**
+         * Never blocks.  If the quality is not yet verified, it is verified in the background.
+         *
+         * @return The quality if it is verified as existing, otherwise the highest lower quality
+         *         that is verified as existing, or NULL if no quality is verified yet.
+         */
+        @Nullable
+        static ThumbnailQuality getVerifiedAltThumbnailQuality(@NonNull String videoId,
+                                                               @NonNull ThumbnailQuality quality,
+                                                               @NonNull String imageUrl) {
+            VerifiedQualities verified = getVerifiedQualities(videoId, false);
+            //noinspection ConstantConditions
+            return verified.getVerifiedQualityWithoutBlocking(videoId, quality, imageUrl);
+        }
+
+        static void setAltThumbnailExists(@NonNull String videoId, @NonNull ThumbnailQuality quality) {
+            VerifiedQualities verified = getVerifiedQualities(videoId, false);
+            //noinspection ConstantConditions
+            verified.setQualityVerified(videoId, quality, true);
+        }
+
         static void setAltThumbnailDoesNotExist(@NonNull String videoId, @NonNull ThumbnailQuality quality) {
             VerifiedQualities verified = getVerifiedQualities(videoId, false);
             //noinspection ConstantConditions
@@ -580,54 +664,67 @@ public final class AlternativeThumbnailsPatch {
             }
         }
 
+        @Nullable
+        private ThumbnailQuality getVerifiedQualityWithoutBlocking(@NonNull String videoId,
+                                                                   @NonNull ThumbnailQuality quality,
+                                                                   @NonNull String imageUrl) {
+            synchronized (this) {
+                if (highestQualityVerified != null && highestQualityVerified.ordinal() >= quality.ordinal()) {
+                    return quality; // Previously verified as existing.
+                }
+                if (lowestQualityNotAvailable != null && lowestQualityNotAvailable.ordinal() <= quality.ordinal()) {
+                    if (System.currentTimeMillis() < timeToReVerifyLowestQuality) {
+                        return highestQualityVerified; // Previously verified as not existing.
+                    }
+                    LogHelper.printDebug(() -> "Resetting lowest verified quality for: " + videoId);
+                    lowestQualityNotAvailable = null;
+                }
+            }
+
+            ThumbnailVerifier.verifyInBackground(imageUrl,
+                    exists -> setQualityVerified(videoId, quality, exists));
+
+            synchronized (this) {
+                return highestQualityVerified; // Null or lower than the quality requested.
+            }
+        }
+
         /**
          * Verify if a video alt thumbnail exists.  Does so by making a minimal HEAD http request.
+         * The lock is not held while waiting for the request, so other qualities and videos are not blocked.
          */
-        synchronized boolean verifyYouTubeThumbnailExists(@NonNull String videoId, @NonNull ThumbnailQuality quality,
-                                                          @NonNull String imageUrl) {
-            if (highestQualityVerified != null && highestQualityVerified.ordinal() >= quality.ordinal()) {
-                return true; // Previously verified as existing.
-            }
+        boolean verifyYouTubeThumbnailExists(@NonNull String videoId, @NonNull ThumbnailQuality quality,
+                                             @NonNull String imageUrl) {
+            synchronized (this) {
+                if (highestQualityVerified != null && highestQualityVerified.ordinal() >= quality.ordinal()) {
+                    return true; // Previously verified as existing.
+                }
 
-            final boolean fastQuality = SettingsEnum.ALT_THUMBNAIL_STILLS_FAST.getBoolean();
-            if (lowestQualityNotAvailable != null && lowestQualityNotAvailable.ordinal() <= quality.ordinal()) {
-                if (fastQuality || System.currentTimeMillis() < timeToReVerifyLowestQuality) {
-                    return false; // Previously verified as not existing.
+                final boolean fastQuality = SettingsEnum.ALT_THUMBNAIL_STILLS_FAST.getBoolean();
+                if (lowestQualityNotAvailable != null && lowestQualityNotAvailable.ordinal() <= quality.ordinal()) {
+                    if (fastQuality || System.currentTimeMillis() < timeToReVerifyLowestQuality) {
+                        return false; // Previously verified as not existing.
+                    }
+                    // Enough time has passed, and should re-verify again.
+                    LogHelper.printDebug(() -> "Resetting lowest verified quality for: " + videoId);
+                    lowestQualityNotAvailable = null;
                 }
-                // Enough time has passed, and should re-verify again.
-                LogHelper.printDebug(() -> "Resetting lowest verified quality for: " + videoId);
-                lowestQualityNotAvailable = null;
-            }
 
-            if (fastQuality) {
-                return true; // Unknown if it exists or not. Use the URL anyway and update afterward if loading fails.
+                if (fastQuality) {
+                    return true; // Unknown if it exists or not. Use the URL anyway and update afterward if loading fails.
+                }
             }
 
             boolean imageFileFound;
             try {
-                // This hooked code is running on a low priority thread, and it's slightly faster
-                // to run the url connection through the integrations thread pool which runs at the highest priority.
                 final long start = System.currentTimeMillis();
-                imageFileFound = ReVancedUtils.submitOnBackgroundThread(() -> {
-                    final int connectionTimeoutMillis = 10000; // 10 seconds.
-                    HttpURLConnection connection = (HttpURLConnection) new URL(imageUrl).openConnection();
-                    connection.setConnectTimeout(connectionTimeoutMillis);
-                    connection.setReadTimeout(connectionTimeoutMillis);
-                    connection.setRequestMethod("HEAD");
-                    // Even with a HEAD request, the response is the same size as a full GET request.
-                    // Using an empty range fixes this.
-                    connection.setRequestProperty("Range", "bytes=0-0");
-                    final int responseCode = connection.getResponseCode();
-                    if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
-                        String contentType = connection.getContentType();
-                        return (contentType != null && contentType.startsWith("image"));
-                    }
-                    if (responseCode != HttpURLConnection.HTTP_NOT_FOUND) {
-                        LogHelper.printDebug(() -> "Unexpected response code: " + responseCode + " for url: " + imageUrl);
-                    }
-                    return false;
-                }).get();
+                imageFileFound = ThumbnailVerifier.verify(imageUrl)
+                        .get(VERIFICATION_WAIT_MILLISECONDS, TimeUnit.MILLISECONDS);
                 LogHelper.printDebug(() -> "Verification took: " + (System.currentTimeMillis() - start) + "ms for image: " + imageUrl);
+            } catch (TimeoutException ex) {
+                // Not recorded as unavailable, as the verification may still succeed.
+                LogHelper.printInfo(() -> "Timed out verifying alt url: " + imageUrl);
+                return false;
             } catch (ExecutionException | InterruptedException ex) {
                 LogHelper.printInfo(() -> "Could not verify alt url: " + imageUrl, ex);
                 imageFileFound = false;
@@ -647,6 +744,10 @@ public final class AlternativeThumbnailsPatch {
          */
         private static final String YOUTUBE_THUMBNAIL_PREFIX = "https://i.ytimg.com/vi";
 
+        static boolean isYouTubeThumbnail(@NonNull String url) {
+            return url.startsWith(YOUTUBE_THUMBNAIL_PREFIX);
+        }
+
         @Nullable
         static DecodedThumbnailUrl decodeImageUrl(String url) {
             final int videoIdStartIndex = url.indexOf('/', YOUTUBE_THUMBNAIL_PREFIX.length()) + 1;
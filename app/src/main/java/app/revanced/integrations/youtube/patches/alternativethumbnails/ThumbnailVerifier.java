@@ -0,0 +1,265 @@
+package app.revanced.integrations.youtube.patches.alternativethumbnails;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import app.revanced.integrations.youtube.requests.RouteMetrics;
+import app.revanced.integrations.youtube.utils.BackgroundLane;
+import app.revanced.integrations.youtube.utils.LogHelper;
+
+/**
+ * Verifies alternative thumbnail images exist, using HEAD requests.
+ * <p>
+ * Verifications requested while all connections are busy are queued, and the queue is sent
+ * as a batch as connections become free.  At most {@link #MAX_CONCURRENT_REQUESTS} requests run at once,
+ * so a full feed page does not use all {@link BackgroundLane#INTERACTIVE} threads.
+ * Responses are fully read, so the keep alive connections to i.ytimg are reused by the next request.
+ * <p>
+ * Concurrent verifications of the same url share one request, and each waiter completes
+ * as soon as its own request finishes.  Callers that cannot block can instead use
+ * {@link #verifyInBackground(String, Consumer)}.  Request latency percentiles are recorded
+ * to the route metrics named 'Thumbnail verification'.
+ */
+public final class ThumbnailVerifier {
+    private static final int MAX_CONCURRENT_REQUESTS = 3;
+
+    private static final int CONNECTION_TIMEOUT_MILLISECONDS = 10000;
+
+    private static final RouteMetrics metrics = RouteMetrics.forName("Thumbnail verification");
+
+    private static final class Verification extends FutureTask<Boolean> {
+        @NonNull
+        final String imageUrl;
+        final long queuedTime = System.currentTimeMillis();
+        /**
+         * Callbacks of {@link #verifyInBackground(String, Consumer)}.  NULL once the verification is done.
+         */
+        @GuardedBy("ThumbnailVerifier.class")
+        @Nullable
+        List<Consumer<Boolean>> callbacks = new ArrayList<>();
+
+        Verification(@NonNull String imageUrl) {
+            super(() -> imageExists(imageUrl));
+            this.imageUrl = imageUrl;
+        }
+
+        /**
+         * Completes as not verified, without sending a request.
+         */
+        void setNotVerified() {
+            set(false);
+        }
+
+        @Override
+        protected void done() {
+            List<Consumer<Boolean>> callbacksToRun;
+            synchronized (ThumbnailVerifier.class) {
+                inFlight.remove(imageUrl);
+                callbacksToRun = callbacks;
+                callbacks = null;
+            }
+            //noinspection ConstantConditions
+            if (callbacksToRun.isEmpty()) {
+                return;
+            }
+            boolean exists;
+            try {
+                exists = get();
+            } catch (ExecutionException | InterruptedException ex) {
+                exists = false; // should never happen
+            }
+            for (Consumer<Boolean> callback : callbacksToRun) {
+                try {
+                    callback.accept(exists);
+                } catch (Exception ex) {
+                    LogHelper.printException(() -> "Verification callback failure", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Key is the image url.  Includes queued and running verifications.
+     */
+    @GuardedBy("ThumbnailVerifier.class")
+    private static final Map<String, Verification> inFlight = new HashMap<>();
+
+    @GuardedBy("ThumbnailVerifier.class")
+    private static final ArrayDeque<Verification> queue = new ArrayDeque<>();
+
+    @GuardedBy("ThumbnailVerifier.class")
+    private static int activeRequests;
+
+    private static final AtomicLong verificationsRequested = new AtomicLong();
+    private static final AtomicLong verificationsShared = new AtomicLong();
+    private static final AtomicLong maxQueueDepth = new AtomicLong();
+    private static final AtomicLong totalQueueMilliseconds = new AtomicLong();
+
+    private ThumbnailVerifier() {
+    }
+
+    /**
+     * @return Future that is TRUE if the image exists, or FALSE if it does not or could not be verified.
+     */
+    @NonNull
+    static Future<Boolean> verify(@NonNull String imageUrl) {
+        return verify(imageUrl, null);
+    }
+
+    /**
+     * Verifies without blocking.  The callback is called on a background thread with
+     * TRUE if the image exists, or FALSE if it does not or could not be verified.
+     */
+    static void verifyInBackground(@NonNull String imageUrl, @NonNull Consumer<Boolean> callback) {
+        verify(imageUrl, callback);
+    }
+
+    @NonNull
+    private static Future<Boolean> verify(@NonNull String imageUrl, @Nullable Consumer<Boolean> callback) {
+        verificationsRequested.incrementAndGet();
+        List<Verification> toStart;
+        Verification verification;
+        synchronized (ThumbnailVerifier.class) {
+            verification = inFlight.get(imageUrl);
+            if (verification != null) {
+                verificationsShared.incrementAndGet();
+                if (callback != null) {
+                    //noinspection ConstantConditions
+                    verification.callbacks.add(callback); // Not null, as done() removes from the map first.
+                }
+                return verification;
+            }
+            verification = new Verification(imageUrl);
+            if (callback != null) {
+                //noinspection ConstantConditions
+                verification.callbacks.add(callback);
+            }
+            inFlight.put(imageUrl, verification);
+            queue.add(verification);
+            maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+            toStart = takeStartableRequests();
+        }
+        start(toStart);
+        return verification;
+    }
+
+    @GuardedBy("ThumbnailVerifier.class")
+    @NonNull
+    private static List<Verification> takeStartableRequests() {
+        List<Verification> toStart = new ArrayList<>();
+        while (activeRequests < MAX_CONCURRENT_REQUESTS && !queue.isEmpty()) {
+            activeRequests++;
+            toStart.add(queue.poll());
+        }
+        return toStart;
+    }
+
+    /**
+     * Must be called without holding the lock, as a full lane runs the task on the calling thread.
+     * If the lane rejects a verification, it completes as not verified and the next queued verification is started.
+     */
+    private static void start(@NonNull List<Verification> toStart) {
+        ArrayDeque<Verification> pending = new ArrayDeque<>(toStart);
+        Verification verification;
+        while ((verification = pending.poll()) != null) {
+            if (execute(verification)) {
+                continue;
+            }
+            synchronized (ThumbnailVerifier.class) {
+                activeRequests--;
+                pending.addAll(takeStartableRequests());
+            }
+            verification.setNotVerified();
+        }
+    }
+
+    /**
+     * @return If the verification was accepted by the lane.
+     */
+    private static boolean execute(@NonNull Verification verification) {
+        try {
+            BackgroundLane.INTERACTIVE.execute(() -> {
+                totalQueueMilliseconds.addAndGet(System.currentTimeMillis() - verification.queuedTime);
+                try {
+                    verification.run();
+                } finally {
+                    List<Verification> next;
+                    synchronized (ThumbnailVerifier.class) {
+                        activeRequests--;
+                        next = takeStartableRequests();
+                    }
+                    start(next);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            LogHelper.printInfo(() -> "Could not start verification of: " + verification.imageUrl, ex);
+            return false;
+        }
+    }
+
+    private static boolean imageExists(@NonNull String imageUrl) {
+        final long startTime = RouteMetrics.startTime();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(imageUrl).openConnection();
+            connection.setConnectTimeout(CONNECTION_TIMEOUT_MILLISECONDS);
+            connection.setReadTimeout(CONNECTION_TIMEOUT_MILLISECONDS);
+            connection.setRequestMethod("HEAD");
+            // Even with a HEAD request, the response is the same size as a full GET request.
+            // Using an empty range fixes this.
+            connection.setRequestProperty("Range", "bytes=0-0");
+            final int responseCode = connection.getResponseCode();
+            metrics.recordResponse(startTime, responseCode, 0, 0);
+
+            // Close the stream but do not disconnect, so the connection is returned to the pool.
+            try (InputStream inputStream = responseCode < 400
+                    ? connection.getInputStream()
+                    : connection.getErrorStream()) {
+                // HEAD responses have no body.
+            }
+
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                String contentType = connection.getContentType();
+                return (contentType != null && contentType.startsWith("image"));
+            }
+            if (responseCode != HttpURLConnection.HTTP_NOT_FOUND) {
+                LogHelper.printDebug(() -> "Unexpected response code: " + responseCode + " for url: " + imageUrl);
+            }
+            return false;
+        } catch (IOException ex) {
+            metrics.recordFailure(startTime, ex instanceof SocketTimeoutException);
+            LogHelper.printInfo(() -> "Could not verify alt url: " + imageUrl, ex);
+            return false;
+        }
+    }
+
+    @NonNull
+    public static String getSummary() {
+        final long requested = verificationsRequested.get();
+        final long shared = verificationsShared.get();
+        final long sent = requested - shared;
+        return String.format(Locale.US,
+                "Thumbnail verification queue\nrequested: %d  shared: %d  max queued: %d\naverage queue wait: %dms",
+                requested, shared, maxQueueDepth.get(),
+                sent == 0 ? 0 : totalQueueMilliseconds.get() / sent);
+    }
+}
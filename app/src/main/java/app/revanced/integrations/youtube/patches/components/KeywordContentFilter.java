@@ -119,15 +119,16 @@ final class KeywordContentFilter extends Filter {
     private volatile ByteTrieSearch bufferSearch;
 
     private static boolean hideKeywordSettingIsActive() {
+        NavigationBar.NavigationState navigationState = NavigationBar.getState();
         // Must check player type first, as search bar can be active behind the player.
-        if (PlayerType.getCurrent().isMaximizedOrFullscreen()) {
+        if (navigationState.playerType.isMaximizedOrFullscreen()) {
             // For now, consider the under video results the same as the home feed.
             // Player active
             return SettingsEnum.HIDE_KEYWORD_CONTENT_HOME.getBoolean();
         }
 
         // Must check second, as search can be from any tab.
-        if (NavigationBar.isSearchBarActive()) {
+        if (navigationState.searchBarActive) {
             // Search
             return SettingsEnum.HIDE_KEYWORD_CONTENT_SEARCH.getBoolean();
         }
@@ -139,7 +140,7 @@ final class KeywordContentFilter extends Filter {
             return false;
         }
 
-        NavigationButton selectedNavButton = NavigationButton.getSelectedNavigationButton();
+        NavigationButton selectedNavButton = navigationState.selectedNavigationButton;
         if (selectedNavButton == null) {
             return hideHome; // Unknown tab, treat the same as home.
         }
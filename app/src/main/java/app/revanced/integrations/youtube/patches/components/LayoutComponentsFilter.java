@@ -220,11 +220,12 @@ public final class LayoutComponentsFilter extends Filter {
             return grayDescriptionIdentifier.check(protobufBufferArray).isFiltered();
         }
         if (matchedGroup == communityPosts) {
-            if (PlayerType.getCurrent() == PlayerType.WATCH_WHILE_MAXIMIZED)
+            NavigationBar.NavigationState navigationState = NavigationBar.getState();
+            if (navigationState.playerType == PlayerType.WATCH_WHILE_MAXIMIZED)
                 return SettingsEnum.HIDE_COMMUNITY_POSTS_RELATED_VIDEO.getBoolean();
 
             // YouTube is testing new community post component in home feed
-            NavigationBar.NavigationButton selectedNavButton = NavigationBar.NavigationButton.getSelectedNavigationButton();
+            NavigationBar.NavigationButton selectedNavButton = navigationState.selectedNavigationButton;
             if (selectedNavButton == NavigationBar.NavigationButton.HOME) {
                 return SettingsEnum.HIDE_COMMUNITY_POSTS_HOME.getBoolean();
             }
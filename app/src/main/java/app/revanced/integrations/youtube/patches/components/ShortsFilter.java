@@ -310,13 +310,14 @@ public final class ShortsFilter extends Filter {
             return true;
         }
 
+        NavigationBar.NavigationState navigationState = NavigationBar.getState();
         // Must check player type first, as search bar can be active behind the player.
-        if (PlayerType.getCurrent().isMaximizedOrFullscreen()) {
+        if (navigationState.playerType.isMaximizedOrFullscreen()) {
             // For now, consider the under video results the same as the home feed.
             return hideHome;
         }
 
-        if (NavigationBar.isSearchBarActive()) { // Must check search first.
+        if (navigationState.searchBarActive) { // Must check search first.
             return hideSearch;
         }
 
@@ -325,7 +326,7 @@ public final class ShortsFilter extends Filter {
             return false;
         }
 
-        NavigationButton selectedNavButton = NavigationButton.getSelectedNavigationButton();
+        NavigationButton selectedNavButton = navigationState.selectedNavigationButton;
         if (selectedNavButton == null) {
             return hideHome; // Unknown tab, treat the same as home.
         }
@@ -58,18 +58,19 @@ public final class SuggestionsShelfFilter extends Filter {
     }
 
     private static boolean hideShelves() {
+        NavigationBar.NavigationState navigationState = NavigationBar.getState();
         // If the player is opened while library is selected,
         // then filter any recommendations below the player.
-        if (PlayerType.getCurrent().isMaximizedOrFullscreen()
+        if (navigationState.playerType.isMaximizedOrFullscreen()
                 // Or if the search is active while library is selected, then also filter.
-                || NavigationBar.isSearchBarActive()) {
+                || navigationState.searchBarActive) {
             return true;
         }
 
         // Check navigation button last.
         // Only filter if the library tab is not selected.
         // This check is important as the shelf layout is used for the library tab playlists.
-        NavigationButton selectedNavButton = NavigationButton.getSelectedNavigationButton();
+        NavigationButton selectedNavButton = navigationState.selectedNavigationButton;
         return selectedNavButton != null && !selectedNavButton.isLibraryOrYouTab();
     }
 }
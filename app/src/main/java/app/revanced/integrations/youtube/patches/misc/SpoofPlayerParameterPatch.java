@@ -4,18 +4,21 @@ import static app.revanced.integrations.youtube.patches.misc.requests.Storyboard
 import static app.revanced.integrations.youtube.utils.ReVancedUtils.containsAny;
 import static app.revanced.integrations.youtube.utils.ReVancedUtils.submitOnBackgroundThread;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import app.revanced.integrations.youtube.patches.video.VideoInformation;
 import app.revanced.integrations.youtube.settings.SettingsEnum;
 import app.revanced.integrations.youtube.shared.PlayerType;
 import app.revanced.integrations.youtube.utils.LogHelper;
+import app.revanced.integrations.youtube.utils.VideoTaskScope;
 
 /**
  * @noinspection ALL
@@ -51,26 +54,71 @@ public class SpoofPlayerParameterPatch {
     private static final String SCRIM_PARAMETER = "SAFgAXgB";
 
     /**
-     * Last video id loaded. Used to prevent reloading the same spec multiple times.
+     * How long a fetched renderer is reused.  The storyboard spec contains signed urls that eventually expire.
      */
-    @Nullable
-    private static volatile String lastPlayerResponseVideoId;
+    private static final long RENDERER_CACHE_TIMEOUT_MILLISECONDS = 30 * 60 * 1000; // 30 Minutes.
+
+    private static class RendererFetch {
+        @NonNull
+        final Future<StoryboardRenderer> future;
+        final long timeFetched;
+
+        RendererFetch(@NonNull Future<StoryboardRenderer> future) {
+            this.future = future;
+            this.timeFetched = System.currentTimeMillis();
+        }
 
+        /**
+         * @return If the fetch is expired, or finished without a renderer and should be fetched again.
+         */
+        boolean isUnusable() {
+            if (System.currentTimeMillis() - timeFetched > RENDERER_CACHE_TIMEOUT_MILLISECONDS) {
+                return true;
+            }
+            if (!future.isDone()) {
+                return false;
+            }
+            try {
+                return future.get() == null;
+            } catch (CancellationException | ExecutionException | InterruptedException ex) {
+                return true; // Cancelled because the user opened a different video.
+            }
+        }
+    }
+
+    /**
+     * Renderer fetches by video id, in least recently used order.
+     * Navigating back to a previous video, or opening a video that was autoplaying in the feed, uses the existing fetch.
+     */
+    @GuardedBy("itself")
+    private static final Map<String, RendererFetch> rendererCache = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final int CACHE_LIMIT = 20;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > CACHE_LIMIT; // Evict the oldest entry if over the cache limit.
+        }
+    };
+
+    /**
+     * Renderer fetch of the current video.
+     */
     @Nullable
     private static volatile Future<StoryboardRenderer> rendererFuture;
 
     private static volatile boolean useOriginalStoryboardRenderer;
 
+    /**
+     * Never blocks.  If the renderer is not yet fetched, the original values are used until it is.
+     *
+     * @return The renderer of the current video, or null if the fetch has not finished or failed.
+     */
     @Nullable
-    private static StoryboardRenderer getRenderer(boolean waitForCompletion) {
+    private static StoryboardRenderer getRenderer() {
         Future<StoryboardRenderer> future = rendererFuture;
-        if (future != null) {
+        if (future != null && future.isDone() && !future.isCancelled()) {
             try {
-                if (waitForCompletion || future.isDone()) {
-                    return future.get(20000, TimeUnit.MILLISECONDS); // Any arbitrarily large timeout.
-                } // else, return null.
-            } catch (TimeoutException ex) {
-                LogHelper.printDebug(() -> "Could not get renderer (get timed out)");
+                return future.get();
             } catch (ExecutionException | InterruptedException ex) {
                 // Should never happen.
                 LogHelper.printException(() -> "Could not get renderer", ex);
@@ -79,6 +127,20 @@ public class SpoofPlayerParameterPatch {
         return null;
     }
 
+    @NonNull
+    private static Future<StoryboardRenderer> getOrFetchRenderer(@NonNull String videoId) {
+        synchronized (rendererCache) {
+            RendererFetch fetch = rendererCache.get(videoId);
+            if (fetch == null || fetch.isUnusable()) {
+                fetch = new RendererFetch(submitOnBackgroundThread(() -> getStoryboardRenderer(videoId)));
+                rendererCache.put(videoId, fetch);
+            } else {
+                LogHelper.printDebug(() -> "Using existing renderer fetch for: " + videoId);
+            }
+            return fetch.future;
+        }
+    }
+
     /**
      * Injection point.
      * <p>
@@ -118,6 +180,8 @@ public class SpoofPlayerParameterPatch {
                 if (useOriginalStoryboardRenderer = !spoofParameterInFeed) {
                     // Don't spoof the feed video playback. This will cause video playback issues,
                     // but only if user continues watching for more than 1 minute.
+                    // The user may open the video, so speculatively fetch the renderer.
+                    getOrFetchRenderer(videoId);
                     return parameters;
                 }
                 // Spoof the feed video.  Video will show up in watch history and video subtitles are missing.
@@ -132,21 +196,22 @@ public class SpoofPlayerParameterPatch {
         return INCOGNITO_PARAMETERS;
     }
 
+    /**
+     * Does not wait for the fetch to complete, so the player response is never delayed.
+     * Until the fetch completes the original storyboard is used, and the fetched renderer
+     * is used by all storyboard hooks called afterward.
+     */
     private static void fetchStoryboardRenderer(@NonNull String videoId) {
-        if (!videoId.equals(lastPlayerResponseVideoId)) {
-            rendererFuture = submitOnBackgroundThread(() -> getStoryboardRenderer(videoId));
-            lastPlayerResponseVideoId = videoId;
-        }
-        // Block until the renderer fetch completes.
-        // This is desired because if this returns without finishing the fetch
-        // then video will start playback but the storyboard is not ready yet.
-        getRenderer(true);
+        Future<StoryboardRenderer> future = getOrFetchRenderer(videoId);
+        // If the user opens a different video before the fetch completes, the fetch is cancelled.
+        VideoTaskScope.add(videoId, future);
+        rendererFuture = future;
     }
 
     private static String getStoryboardRendererSpec(String originalStoryboardRendererSpec,
                                                     boolean returnNullIfLiveStream) {
         if (spoofParameter && !useOriginalStoryboardRenderer) {
-            final StoryboardRenderer renderer = getRenderer(false);
+            final StoryboardRenderer renderer = getRenderer();
             if (renderer != null) {
                 if (returnNullIfLiveStream && renderer.isLiveStream()) {
                     return null;
@@ -185,7 +250,7 @@ public class SpoofPlayerParameterPatch {
      */
     public static int getRecommendedLevel(int originalLevel) {
         if (spoofParameter && !useOriginalStoryboardRenderer) {
-            final StoryboardRenderer renderer = getRenderer(false);
+            final StoryboardRenderer renderer = getRenderer();
             if (renderer != null) {
                 Integer recommendedLevel = renderer.getRecommendedLevel();
                 if (recommendedLevel != null) return recommendedLevel;
@@ -203,7 +268,7 @@ public class SpoofPlayerParameterPatch {
         if (!spoofParameter) {
             return false;
         }
-        final StoryboardRenderer renderer = getRenderer(false);
+        final StoryboardRenderer renderer = getRenderer();
         if (renderer == null) {
             // Spoof storyboard renderer is turned off,
             // video is paid, or the storyboard fetch timed out.
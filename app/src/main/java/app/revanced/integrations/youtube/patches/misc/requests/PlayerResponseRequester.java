@@ -0,0 +1,156 @@
+package app.revanced.integrations.youtube.patches.misc.requests;
+
+import static app.revanced.integrations.youtube.patches.misc.requests.PlayerRoutes.GET_PLAYER_RESPONSE;
+import static app.revanced.integrations.youtube.patches.misc.requests.PlayerRoutes.TV_EMBED_INNER_TUBE_BODY;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import app.revanced.integrations.youtube.requests.CircuitBreaker;
+import app.revanced.integrations.youtube.requests.Requester;
+import app.revanced.integrations.youtube.utils.LogHelper;
+import app.revanced.integrations.youtube.utils.ReVancedUtils;
+
+/**
+ * Player responses shared by all features that need data of the current video.
+ * <p>
+ * All requests use {@link PlayerRoutes#GET_PLAYER_RESPONSE}, which includes the fields of every consumer.
+ * A playable response is cached, so the storyboard spoof, and later adding the channel to the whitelist,
+ * make only one network request per video.
+ */
+public final class PlayerResponseRequester {
+    /**
+     * How long a response is reused.  The storyboard spec contains signed urls that eventually expire.
+     */
+    private static final long CACHE_TIMEOUT_MILLISECONDS = 30 * 60 * 1000; // 30 Minutes.
+
+    private static class CachedResponse {
+        @NonNull
+        final JSONObject playerResponse;
+        final long timeFetched;
+
+        CachedResponse(@NonNull JSONObject playerResponse) {
+            this.playerResponse = playerResponse;
+            this.timeFetched = System.currentTimeMillis();
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - timeFetched > CACHE_TIMEOUT_MILLISECONDS;
+        }
+    }
+
+    /**
+     * Key is the video id.  Responses are never modified after being cached.
+     */
+    @GuardedBy("itself")
+    private static final Map<String, CachedResponse> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final int CACHE_LIMIT = 20;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > CACHE_LIMIT; // Evict the oldest entry if over the cache limit.
+        }
+    };
+
+    private PlayerResponseRequester() {
+    }
+
+    /**
+     * @return If the response is playable, and contains the fields of all consumers.
+     */
+    static boolean isPlayable(@NonNull JSONObject playerResponse) {
+        JSONObject playabilityStatus = playerResponse.optJSONObject("playabilityStatus");
+        return playabilityStatus != null && "OK".equals(playabilityStatus.optString("status"));
+    }
+
+    /**
+     * @return The cached response of the video, or NULL if none is cached.
+     */
+    @Nullable
+    public static JSONObject getCachedPlayerResponse(@NonNull String videoId) {
+        synchronized (cache) {
+            CachedResponse cached = cache.get(videoId);
+            if (cached == null) {
+                return null;
+            }
+            if (cached.isExpired()) {
+                cache.remove(videoId);
+                return null;
+            }
+            return cached.playerResponse;
+        }
+    }
+
+    /**
+     * Caches a response fetched using {@link PlayerRoutes#GET_PLAYER_RESPONSE}, if it is playable.
+     * The response must not be modified after calling this method.
+     */
+    static void cachePlayerResponse(@NonNull String videoId, @NonNull JSONObject playerResponse) {
+        if (!isPlayable(playerResponse)) {
+            return;
+        }
+        synchronized (cache) {
+            cache.put(videoId, new CachedResponse(playerResponse));
+        }
+    }
+
+    /**
+     * Uses the cached response if available, otherwise fetches using the TV embedded client
+     * (which can fetch age restricted videos).  Must be called off the main thread.
+     *
+     * @return The player response, or NULL if the fetch failed or back off is in effect.
+     */
+    @Nullable
+    public static JSONObject getPlayerResponse(@NonNull String videoId) {
+        ReVancedUtils.verifyOffMainThread();
+        Objects.requireNonNull(videoId);
+
+        JSONObject cached = getCachedPlayerResponse(videoId);
+        if (cached != null) {
+            LogHelper.printDebug(() -> "Using cached player response for: " + videoId);
+            return cached;
+        }
+
+        CircuitBreaker circuitBreaker = null;
+        try {
+            final byte[] innerTubeBody = TV_EMBED_INNER_TUBE_BODY.getBytes(videoId);
+
+            HttpURLConnection connection = PlayerRoutes.getPlayerResponseConnectionFromRoute(GET_PLAYER_RESPONSE);
+            circuitBreaker = CircuitBreaker.forConnection(connection);
+            if (!circuitBreaker.allowRequest()) {
+                LogHelper.printDebug(() -> "Ignoring player response fetch as back off is in effect");
+                return null;
+            }
+
+            final int responseCode = Requester.getResponseCode(connection,
+                    GET_PLAYER_RESPONSE.getMetrics(), circuitBreaker, innerTubeBody);
+            circuitBreaker.recordResponse(connection, responseCode);
+            if (responseCode != 200) {
+                LogHelper.printInfo(() -> "Player response fetch failed with response code: " + responseCode);
+                connection.disconnect();
+                return null;
+            }
+
+            JSONObject playerResponse = Requester.parseJSONObject(connection);
+            cachePlayerResponse(videoId, playerResponse);
+            return playerResponse;
+        } catch (IOException | JSONException ex) {
+            LogHelper.printInfo(() -> "Player response fetch failed", ex);
+        } finally {
+            if (circuitBreaker != null) {
+                circuitBreaker.requestFinished();
+            }
+        }
+        return null;
+    }
+}
@@ -2,38 +2,52 @@ package app.revanced.integrations.youtube.patches.misc.requests;
 
 import static app.revanced.integrations.youtube.utils.ReVancedHelper.appVersionName;
 
+import androidx.annotation.NonNull;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 
 import app.revanced.integrations.youtube.requests.Requester;
 import app.revanced.integrations.youtube.requests.Route;
 import app.revanced.integrations.youtube.utils.LogHelper;
 
 public final class PlayerRoutes {
-    public static final Route.CompiledRoute GET_CHANNEL_INFORMATION = new Route(
-            Route.Method.POST,
-            "player" +
-                    "?fields=videoDetails.channelId," +
-                    "videoDetails.author"
-    ).compile();
-
-    public static final Route.CompiledRoute GET_STORYBOARD_SPEC_RENDERER = new Route(
+    /**
+     * Fields of all features that use the player response, so a single response can be shared.
+     *
+     * @see PlayerResponseRequester
+     */
+    public static final Route.CompiledRoute GET_PLAYER_RESPONSE = new Route(
             Route.Method.POST,
             "player" +
                     "?fields=storyboards.playerStoryboardSpecRenderer," +
                     "storyboards.playerLiveStoryboardSpecRenderer," +
                     "playabilityStatus.status," +
-                    "playabilityStatus.errorScreen"
+                    "playabilityStatus.errorScreen," +
+                    "videoDetails.channelId," +
+                    "videoDetails.author"
     ).compile();
 
-    public static final String WEB_INNER_TUBE_BODY;
-    public static final String ANDROID_INNER_TUBE_BODY;
-    public static final String TV_EMBED_INNER_TUBE_BODY;
+    public static final InnerTubeBody WEB_INNER_TUBE_BODY;
+    public static final InnerTubeBody ANDROID_INNER_TUBE_BODY;
+    public static final InnerTubeBody TV_EMBED_INNER_TUBE_BODY;
+
+    /**
+     * Video id placeholder used when building the request bodies.
+     */
+    private static final String VIDEO_ID_PLACEHOLDER = "%s";
+
+    static final String YT_API_URL = "https://www.youtube.com/youtubei/v1/";
 
-    private static final String YT_API_URL = "https://www.youtube.com/youtubei/v1/";
+    /**
+     * Url the player route is relative to.  Only changed by tests, to use a local server.
+     */
+    private static volatile String apiUrl = YT_API_URL;
 
     /**
      * TCP connection and HTTP read timeout
@@ -54,11 +68,11 @@ public final class PlayerRoutes {
             context.put("client", client);
 
             innerTubeBody.put("context", context);
-            innerTubeBody.put("videoId", "%s");
+            innerTubeBody.put("videoId", VIDEO_ID_PLACEHOLDER);
         } catch (JSONException e) {
             LogHelper.printException(() -> "Failed to create innerTubeBody", e);
         }
-        ANDROID_INNER_TUBE_BODY = innerTubeBody.toString();
+        ANDROID_INNER_TUBE_BODY = new InnerTubeBody(innerTubeBody.toString());
 
         JSONObject tvEmbedInnerTubeBody = new JSONObject();
 
@@ -72,17 +86,17 @@ public final class PlayerRoutes {
             client.put("clientScreen", "EMBED");
 
             JSONObject thirdParty = new JSONObject();
-            thirdParty.put("embedUrl", "https://www.youtube.com/watch?v=%s");
+            thirdParty.put("embedUrl", "https://www.youtube.com/watch?v=" + VIDEO_ID_PLACEHOLDER);
 
             context.put("thirdParty", thirdParty);
             context.put("client", client);
 
             tvEmbedInnerTubeBody.put("context", context);
-            tvEmbedInnerTubeBody.put("videoId", "%s");
+            tvEmbedInnerTubeBody.put("videoId", VIDEO_ID_PLACEHOLDER);
         } catch (JSONException e) {
             LogHelper.printException(() -> "Failed to create tvEmbedInnerTubeBody", e);
         }
-        TV_EMBED_INNER_TUBE_BODY = tvEmbedInnerTubeBody.toString();
+        TV_EMBED_INNER_TUBE_BODY = new InnerTubeBody(tvEmbedInnerTubeBody.toString());
 
         JSONObject webInnerTubeBody = new JSONObject();
 
@@ -97,21 +111,70 @@ public final class PlayerRoutes {
             context.put("client", client);
 
             webInnerTubeBody.put("context", context);
-            webInnerTubeBody.put("videoId", "%s");
+            webInnerTubeBody.put("videoId", VIDEO_ID_PLACEHOLDER);
         } catch (JSONException e) {
             LogHelper.printException(() -> "Failed to create webInnerTubeBody", e);
         }
-        WEB_INNER_TUBE_BODY = webInnerTubeBody.toString();
+        WEB_INNER_TUBE_BODY = new InnerTubeBody(webInnerTubeBody.toString());
     }
 
     private PlayerRoutes() {
     }
 
+    /**
+     * Request body that is encoded once, and only needs the video id copied in for each request.
+     */
+    public static final class InnerTubeBody {
+        /**
+         * Encoded body, with the placeholders removed.
+         */
+        private final byte[] template;
+        /**
+         * Index in {@link #template} of each video id, in ascending order.
+         */
+        private final int[] videoIdOffsets;
+
+        private InnerTubeBody(@NonNull String json) {
+            String[] parts = json.split(VIDEO_ID_PLACEHOLDER, -1);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream(json.length());
+            videoIdOffsets = new int[parts.length - 1];
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    videoIdOffsets[i - 1] = stream.size();
+                }
+                byte[] part = parts[i].getBytes(StandardCharsets.UTF_8);
+                stream.write(part, 0, part.length);
+            }
+            template = stream.toByteArray();
+        }
+
+        /**
+         * @return The encoded request body of the video.
+         */
+        @NonNull
+        public byte[] getBytes(@NonNull String videoId) {
+            final byte[] id = videoId.getBytes(StandardCharsets.UTF_8);
+            byte[] body = new byte[template.length + id.length * videoIdOffsets.length];
+            int templateIndex = 0;
+            int bodyIndex = 0;
+            for (int offset : videoIdOffsets) {
+                final int length = offset - templateIndex;
+                System.arraycopy(template, templateIndex, body, bodyIndex, length);
+                bodyIndex += length;
+                System.arraycopy(id, 0, body, bodyIndex, id.length);
+                bodyIndex += id.length;
+                templateIndex = offset;
+            }
+            System.arraycopy(template, templateIndex, body, bodyIndex, template.length - templateIndex);
+            return body;
+        }
+    }
+
     /**
      * @noinspection SameParameterValue
      */
     public static HttpURLConnection getPlayerResponseConnectionFromRoute(Route.CompiledRoute route) throws IOException {
-        var connection = Requester.getConnectionFromCompiledRoute(YT_API_URL, route);
+        var connection = Requester.getConnectionFromCompiledRoute(apiUrl, route);
 
         connection.setRequestProperty(
                 "User-Agent", "com.google.android.youtube/" +
@@ -128,4 +191,13 @@ public final class PlayerRoutes {
         connection.setReadTimeout(CONNECTION_TIMEOUT_MILLISECONDS);
         return connection;
     }
+
+    /**
+     * For tests only.
+     *
+     * @param url Api url, ending with a slash.
+     */
+    static void setApiUrl(@NonNull String url) {
+        apiUrl = url;
+    }
 }
\ No newline at end of file
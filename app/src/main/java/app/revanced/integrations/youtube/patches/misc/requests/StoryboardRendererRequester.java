@@ -1,11 +1,12 @@
 package app.revanced.integrations.youtube.patches.misc.requests;
 
 import static app.revanced.integrations.youtube.patches.misc.requests.PlayerRoutes.ANDROID_INNER_TUBE_BODY;
-import static app.revanced.integrations.youtube.patches.misc.requests.PlayerRoutes.GET_STORYBOARD_SPEC_RENDERER;
+import static app.revanced.integrations.youtube.patches.misc.requests.PlayerRoutes.GET_PLAYER_RESPONSE;
 import static app.revanced.integrations.youtube.patches.misc.requests.PlayerRoutes.TV_EMBED_INNER_TUBE_BODY;
 import static app.revanced.integrations.youtube.patches.misc.requests.PlayerRoutes.WEB_INNER_TUBE_BODY;
 import static app.revanced.integrations.youtube.utils.StringRef.str;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -15,11 +16,17 @@ import org.json.JSONObject;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
-import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import app.revanced.integrations.youtube.patches.misc.StoryboardRenderer;
+import app.revanced.integrations.youtube.requests.CircuitBreaker;
 import app.revanced.integrations.youtube.requests.Requester;
+import app.revanced.integrations.youtube.utils.BackgroundLane;
 import app.revanced.integrations.youtube.utils.LogHelper;
 import app.revanced.integrations.youtube.utils.ReVancedUtils;
 
@@ -33,6 +40,89 @@ public class StoryboardRendererRequester {
     private static final StoryboardRenderer emptyStoryboard
             = new StoryboardRenderer(null, false, null);
 
+    /**
+     * How long to wait for the Android client before also requesting the TV embedded client.
+     */
+    private static final long HEDGE_DELAY_MILLISECONDS = 750;
+
+    /**
+     * Maximum time to wait for all client requests to finish.
+     * Each request is limited by the {@link PlayerRoutes} timeouts,
+     * but the Android client can make an additional request for premieres.
+     */
+    private static final long MAX_WAIT_MILLISECONDS = 20 * 1000;
+
+    /**
+     * Videos the Android client recently could not fetch.
+     * For these videos the TV embedded client is requested immediately.
+     */
+    @GuardedBy("itself")
+    private static final Map<String, Boolean> androidClientFailedVideoIds = new LinkedHashMap<>() {
+        private static final int CACHE_LIMIT = 50;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > CACHE_LIMIT; // Evict the oldest entry if over the cache limit.
+        }
+    };
+
+    /**
+     * A storyboard renderer fetch using a single client.  Can be cancelled from any thread.
+     */
+    private static class ClientRequest {
+        @NonNull
+        final String clientName;
+        @NonNull
+        final byte[] innerTubeBody;
+        final boolean showToastOnIOException;
+
+        /**
+         * Connection currently in use.  Disconnected if the request is cancelled.
+         */
+        @Nullable
+        volatile HttpURLConnection connection;
+        volatile boolean cancelled;
+        volatile boolean finished;
+        @Nullable
+        volatile StoryboardRenderer renderer;
+
+        ClientRequest(@NonNull String clientName, @NonNull byte[] innerTubeBody, boolean showToastOnIOException) {
+            this.clientName = clientName;
+            this.innerTubeBody = innerTubeBody;
+            this.showToastOnIOException = showToastOnIOException;
+        }
+
+        /**
+         * Starts the fetch on a background thread, and adds this request to the queue when finished.
+         */
+        void start(@NonNull String videoId, @NonNull BlockingQueue<ClientRequest> finishedRequests) {
+            ReVancedUtils.runOnBackgroundThread(BackgroundLane.INTERACTIVE, () -> {
+                try {
+                    renderer = getStoryboardRendererUsingBody(this, videoId);
+                } catch (Exception ex) {
+                    LogHelper.printException(() -> "Storyboard fetch failed", ex); // Should never happen.
+                } finally {
+                    finished = true;
+                    finishedRequests.add(this);
+                }
+            });
+        }
+
+        /**
+         * Stops the request, if it has not already finished.  A cancelled request does not show any error toasts.
+         */
+        void cancel() {
+            if (finished) {
+                return; // Do not disconnect, the same server connection will likely be used again soon.
+            }
+            cancelled = true;
+            HttpURLConnection currentConnection = connection;
+            if (currentConnection != null) {
+                currentConnection.disconnect();
+            }
+        }
+    }
+
     private StoryboardRendererRequester() {
     }
 
@@ -43,33 +133,56 @@ public class StoryboardRendererRequester {
     }
 
     @Nullable
-    private static JSONObject fetchPlayerResponse(@NonNull String requestBody, boolean showToastOnIOException) {
+    private static JSONObject fetchPlayerResponse(@NonNull ClientRequest request, @NonNull byte[] innerTubeBody,
+                                                  boolean showToastOnIOException) {
         final long startTime = System.currentTimeMillis();
+        CircuitBreaker circuitBreaker = null;
         try {
             ReVancedUtils.verifyOffMainThread();
-            Objects.requireNonNull(requestBody);
-
-            final byte[] innerTubeBody = requestBody.getBytes(StandardCharsets.UTF_8);
+            Objects.requireNonNull(innerTubeBody);
 
-            HttpURLConnection connection = PlayerRoutes.getPlayerResponseConnectionFromRoute(GET_STORYBOARD_SPEC_RENDERER);
-            connection.getOutputStream().write(innerTubeBody, 0, innerTubeBody.length);
+            HttpURLConnection connection = PlayerRoutes.getPlayerResponseConnectionFromRoute(GET_PLAYER_RESPONSE);
+            circuitBreaker = CircuitBreaker.forConnection(connection);
+            request.connection = connection;
+            if (request.cancelled) {
+                return null;
+            }
+            if (!circuitBreaker.allowRequest()) {
+                LogHelper.printDebug(() -> "Ignoring player response fetch as back off is in effect");
+                return null;
+            }
 
-            final int responseCode = connection.getResponseCode();
+            // Failures are recorded to the circuit breaker below, as a cancelled request is not a failure.
+            final int responseCode = Requester.getResponseCode(connection,
+                    GET_PLAYER_RESPONSE.getMetrics(), null, innerTubeBody);
+            circuitBreaker.recordResponse(connection, responseCode);
             if (responseCode == 200) return Requester.parseJSONObject(connection);
 
             // Always show a toast for this, as a non 200 response means something is broken.
             handleConnectionError(str("revanced_spoof_failure_connection_status_code" + responseCode),
                     null, showToastOnIOException);
             connection.disconnect();
-        } catch (SocketTimeoutException ex) {
-            handleConnectionError((str("revanced_spoof_failure_connection_timeout")),
-                    ex, showToastOnIOException);
         } catch (IOException ex) {
-            handleConnectionError((str("revanced_spoof_failure_generic" + ex.getMessage())),
-                    ex, showToastOnIOException);
+            if (request.cancelled) {
+                LogHelper.printDebug(() -> request.clientName + " client request cancelled");
+                return null;
+            }
+            if (circuitBreaker != null) {
+                circuitBreaker.recordFailure();
+            }
+            if (ex instanceof SocketTimeoutException) {
+                handleConnectionError((str("revanced_spoof_failure_connection_timeout")),
+                        ex, showToastOnIOException);
+            } else {
+                handleConnectionError((str("revanced_spoof_failure_generic" + ex.getMessage())),
+                        ex, showToastOnIOException);
+            }
         } catch (Exception ex) {
             LogHelper.printException(() -> "Spoof storyboard fetch failed", ex); // Should never happen.
         } finally {
+            if (circuitBreaker != null) {
+                circuitBreaker.requestFinished(); // Releases the trial, if the request was cancelled.
+            }
             LogHelper.printDebug(() -> "Request took: " + (System.currentTimeMillis() - startTime) + "ms");
         }
 
@@ -87,37 +200,41 @@ public class StoryboardRendererRequester {
     }
 
     /**
-     * Fetches the storyboardRenderer from the innerTubeBody.
+     * Fetches the storyboardRenderer from the innerTubeBody of the request.
      *
-     * @param innerTubeBody The innerTubeBody to use to fetch the storyboardRenderer.
      * @return StoryboardRenderer or null if playabilityStatus is not OK.
      */
     @Nullable
-    private static StoryboardRenderer getStoryboardRendererUsingBody(@NonNull String innerTubeBody,
-                                                                     boolean showToastOnIOException,
+    private static StoryboardRenderer getStoryboardRendererUsingBody(@NonNull ClientRequest request,
                                                                      @NonNull String videoId) {
-        final JSONObject playerResponse = fetchPlayerResponse(innerTubeBody, showToastOnIOException);
+        final JSONObject playerResponse = fetchPlayerResponse(request, request.innerTubeBody,
+                request.showToastOnIOException);
         if (playerResponse == null)
             return null;
 
         final String playabilityStatus = GetPlayabilityStatus(playerResponse);
 
-        if (playabilityStatus.equals("OK"))
+        if (playabilityStatus.equals("OK")) {
+            PlayerResponseRequester.cachePlayerResponse(videoId, playerResponse);
             return getStoryboardRendererUsingResponse(playerResponse);
+        }
 
         // Get the StoryboardRenderer from Premieres Video.
         // In Android client, YouTube used weird base64-like encoding for PlayerResponse.
         // So additational fetching with WEB client is required for getting unserialized ones.
         if (playabilityStatus.equals("LIVE_STREAM_OFFLINE"))
-            return getTrailerStoryboardRenderer(videoId);
+            return getTrailerStoryboardRenderer(request, videoId);
         return null;
     }
 
     @Nullable
-    private static StoryboardRenderer getTrailerStoryboardRenderer(@NonNull String videoId) {
+    private static StoryboardRenderer getTrailerStoryboardRenderer(@NonNull ClientRequest request,
+                                                                   @NonNull String videoId) {
         try {
-            final JSONObject playerResponse = fetchPlayerResponse(
-                        String.format(WEB_INNER_TUBE_BODY, videoId), false);
+            final JSONObject playerResponse = fetchPlayerResponse(request,
+                        WEB_INNER_TUBE_BODY.getBytes(videoId), false);
+            if (playerResponse == null)
+                return null;
 
             JSONObject unserializedPlayerResponse = playerResponse.getJSONObject("playabilityStatus")
                         .getJSONObject("errorScreen").getJSONObject("ypcTrailerRenderer").getJSONObject("unserializedPlayerResponse");
@@ -165,21 +282,93 @@ public class StoryboardRendererRequester {
         return null;
     }
 
+    /**
+     * Uses the cached player response if available.  Otherwise fetches the renderer using the Android client,
+     * and hedges using the TV embedded client if the Android client fails or is slow to respond.  The first acceptable renderer is used,
+     * and any request still in progress is cancelled.
+     */
     @Nullable
     public static StoryboardRenderer getStoryboardRenderer(@NonNull String videoId) {
         Objects.requireNonNull(videoId);
 
-        StoryboardRenderer renderer = getStoryboardRendererUsingBody(
-                String.format(ANDROID_INNER_TUBE_BODY, videoId), false, videoId);
-        if (renderer == null) {
-            LogHelper.printDebug(() -> videoId + " not available using Android client");
-            renderer = getStoryboardRendererUsingBody(
-                    String.format(TV_EMBED_INNER_TUBE_BODY, videoId, videoId), true, videoId);
-            if (renderer == null) {
-                LogHelper.printDebug(() -> videoId + " not available using TV embedded client");
+        JSONObject cachedResponse = PlayerResponseRequester.getCachedPlayerResponse(videoId);
+        if (cachedResponse != null) {
+            LogHelper.printDebug(() -> "Using cached player response for: " + videoId);
+            return getStoryboardRendererUsingResponse(cachedResponse);
+        }
+
+        final boolean androidClientFailedRecently;
+        synchronized (androidClientFailedVideoIds) {
+            androidClientFailedRecently = androidClientFailedVideoIds.containsKey(videoId);
+        }
+
+        BlockingQueue<ClientRequest> finishedRequests = new LinkedBlockingQueue<>();
+        ClientRequest androidRequest = new ClientRequest("Android",
+                ANDROID_INNER_TUBE_BODY.getBytes(videoId), false);
+        ClientRequest tvEmbedRequest = new ClientRequest("TV embedded",
+                TV_EMBED_INNER_TUBE_BODY.getBytes(videoId), true);
+
+        androidRequest.start(videoId, finishedRequests);
+        int pendingRequests = 1;
+        boolean tvEmbedStarted = false;
+        if (androidClientFailedRecently) {
+            LogHelper.printDebug(() -> "Android client recently failed for: " + videoId);
+            tvEmbedRequest.start(videoId, finishedRequests);
+            pendingRequests++;
+            tvEmbedStarted = true;
+        }
+
+        final long deadline = System.currentTimeMillis() + MAX_WAIT_MILLISECONDS;
+        try {
+            while (pendingRequests > 0) {
+                final long remaining = deadline - System.currentTimeMillis();
+                ClientRequest finished = finishedRequests.poll(tvEmbedStarted
+                        ? remaining
+                        : Math.min(remaining, HEDGE_DELAY_MILLISECONDS), TimeUnit.MILLISECONDS);
+                if (finished == null) {
+                    if (tvEmbedStarted) {
+                        LogHelper.printDebug(() -> "Timed out fetching renderer for: " + videoId);
+                        break;
+                    }
+                    LogHelper.printDebug(() -> "Android client is slow, also using TV embedded client for: " + videoId);
+                    tvEmbedRequest.start(videoId, finishedRequests);
+                    pendingRequests++;
+                    tvEmbedStarted = true;
+                    continue;
+                }
+                pendingRequests--;
+
+                StoryboardRenderer renderer = finished.renderer;
+                if (renderer != null) {
+                    LogHelper.printDebug(() -> videoId + " fetched using " + finished.clientName + " client");
+                    if (finished == androidRequest && androidClientFailedRecently) {
+                        synchronized (androidClientFailedVideoIds) {
+                            androidClientFailedVideoIds.remove(videoId);
+                        }
+                    }
+                    return renderer;
+                }
+
+                LogHelper.printDebug(() -> videoId + " not available using " + finished.clientName + " client");
+                if (finished == androidRequest) {
+                    synchronized (androidClientFailedVideoIds) {
+                        androidClientFailedVideoIds.put(videoId, Boolean.TRUE);
+                    }
+                    if (!tvEmbedStarted) {
+                        tvEmbedRequest.start(videoId, finishedRequests);
+                        pendingRequests++;
+                        tvEmbedStarted = true;
+                    }
+                }
             }
+        } catch (InterruptedException ex) {
+            LogHelper.printDebug(() -> "Renderer fetch interrupted for: " + videoId);
+            Thread.currentThread().interrupt();
+        } finally {
+            androidRequest.cancel();
+            tvEmbedRequest.cancel();
         }
 
-        return renderer;
+        return null;
     }
 }
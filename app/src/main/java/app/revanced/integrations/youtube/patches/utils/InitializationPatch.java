@@ -6,13 +6,23 @@ import static app.revanced.integrations.youtube.utils.ReVancedUtils.runOnMainThr
 import android.app.Activity;
 import android.content.Context;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 
+import app.revanced.integrations.youtube.requests.ConnectionWarmer;
 import app.revanced.integrations.youtube.settings.SettingsEnum;
+import app.revanced.integrations.youtube.shared.NavigationBar;
+import app.revanced.integrations.youtube.sponsorblock.SegmentPlaybackController;
+import app.revanced.integrations.youtube.sponsorblock.ui.SponsorBlockViewController;
+import app.revanced.integrations.youtube.utils.EventBus;
+import app.revanced.integrations.youtube.utils.MainThreadWatchdog;
 import app.revanced.integrations.youtube.utils.ReVancedHelper;
+import app.revanced.integrations.youtube.utils.VideoTaskScope;
 
 @SuppressWarnings("unused")
 public class InitializationPatch {
+    @GuardedBy("InitializationPatch.class")
+    private static boolean eventListenersSubscribed;
 
     /**
      * The new layout is not loaded when the app is first installed.
@@ -26,7 +36,10 @@ public class InitializationPatch {
      * The version of the current integrations is saved to YouTube's SharedPreferences to identify if the app was first installed.
      */
     public static void initializeReVancedSettings(@NonNull Context context) {
+        subscribeToEvents();
         ReVancedHelper.setPlayerFlyoutPanelAdditionalSettings();
+        ConnectionWarmer.warmUpIfEnabled();
+        MainThreadWatchdog.startIfEnabled();
         if (SettingsEnum.INITIALIZED.getBoolean())
             return;
 
@@ -46,6 +59,21 @@ public class InitializationPatch {
         );
     }
 
+    /**
+     * Subscribes all {@link EventBus} listeners.  Done here and not in static initializers,
+     * so no listener misses an event posted before its class is loaded.
+     */
+    private static synchronized void subscribeToEvents() {
+        if (eventListenersSubscribed)
+            return;
+        eventListenersSubscribed = true;
+
+        VideoTaskScope.subscribeToEvents();
+        NavigationBar.subscribeToEvents();
+        SponsorBlockViewController.subscribeToEvents();
+        SegmentPlaybackController.subscribeToEvents();
+    }
+
     public static void setDeviceInformation(@NonNull Context context) {
         ReVancedHelper.setPackageName(context);
         ReVancedHelper.setApplicationLabel(context);
@@ -158,6 +158,13 @@ public class ReturnYouTubeDislikePatch {
         if (!oldUIReplacementSpan.equals(oldUITextView.getText())) {
             oldUITextView.setText(oldUIReplacementSpan);
         }
+        if (!videoData.fetchCompleted()) {
+            videoData.runOnFetchCompleted(() -> {
+                if (videoData == currentVideoData) {
+                    updateOldUIDislikesTextView();
+                }
+            });
+        }
     }
 
     /**
@@ -196,6 +203,16 @@ public class ReturnYouTubeDislikePatch {
     // Litho player for both regular videos and Shorts.
     //
 
+    /**
+     * Maximum time to wait for the fetch, when a Litho segmented button that does not use Rolling Number is created.
+     * Unlike Rolling Number, that button has no view that can be updated after the fetch completes,
+     * and a placeholder is shown until Litho recreates the span.
+     * <p>
+     * Must be much less than 5 seconds, as per:
+     * <a href="https://developer.android.com/topic/performance/vitals/anr">...</a>
+     */
+    private static final long MAX_MILLISECONDS_TO_BLOCK_LITHO_WAITING_FOR_FETCH = 1000;
+
     /**
      * Injection point.
      *
@@ -239,6 +256,9 @@ public class ReturnYouTubeDislikePatch {
                 if (!(original instanceof Spanned)) {
                     original = new SpannableString(original);
                 }
+                if (!isRollingNumber && !videoData.fetchCompleted()) {
+                    videoData.getFetchData(MAX_MILLISECONDS_TO_BLOCK_LITHO_WAITING_FOR_FETCH);
+                }
                 replacement = videoData.getDislikesSpanForRegularVideo((Spanned) original,
                         true, isRollingNumber);
             } else if (!isRollingNumber && conversionContextString.contains("|shorts_dislike_button.eml|")) {
@@ -290,6 +310,13 @@ public class ReturnYouTubeDislikePatch {
     @Nullable
     private static volatile CharSequence rollingNumberSpan;
 
+    /**
+     * Data of the video that a Rolling Number update is pending for, if the fetch was not completed
+     * when the placeholder span was shown.  Prevents adding a listener on every Rolling Number update.
+     */
+    @Nullable
+    private static volatile ReturnYouTubeDislike rollingNumberPendingVideoData;
+
     /**
      * Injection point.
      */
@@ -379,6 +406,55 @@ public class ReturnYouTubeDislikePatch {
         }
     }
 
+    private static void applyRollingNumberPatchChanges(TextView view) {
+        if (SettingsEnum.RYD_COMPACT_LAYOUT.getBoolean()) {
+            removeRollingNumberPatchChanges(view);
+        } else {
+            addRollingNumberPatchChanges(view);
+        }
+
+        // Remove any padding set by Rolling Number.
+        view.setPadding(0, 0, 0, 0);
+    }
+
+    /**
+     * If the Rolling Number is showing a placeholder, replaces it once the fetch completes.
+     */
+    private static void updateRollingNumberAfterFetch(TextView view) {
+        ReturnYouTubeDislike videoData = currentVideoData;
+        if (videoData == null || videoData.fetchCompleted() || videoData == rollingNumberPendingVideoData) {
+            return;
+        }
+        rollingNumberPendingVideoData = videoData;
+        WeakReference<TextView> viewRef = new WeakReference<>(view);
+
+        videoData.runOnFetchCompleted(() -> {
+            if (rollingNumberPendingVideoData == videoData) {
+                rollingNumberPendingVideoData = null;
+            }
+            TextView textView = viewRef.get();
+            CharSequence placeholder = rollingNumberSpan;
+            if (textView == null || placeholder == null || videoData != currentVideoData
+                    || !placeholder.toString().equals(textView.getText().toString())) {
+                return; // View was reused or a different video is showing.
+            }
+            Spanned replacement = videoData.getDislikesSpanForRegularVideo(
+                    new SpannableString(placeholder), true, true);
+            if (replacement.toString().equals(placeholder.toString())) {
+                return;
+            }
+            LogHelper.printDebug(() -> "Replacing rolling number placeholder with: " + replacement);
+            rollingNumberSpan = replacement;
+            if (ReturnYouTubeDislike.isPreviouslyCreatedSegmentedSpan(replacement.toString())) {
+                applyRollingNumberPatchChanges(textView);
+            } else {
+                removeRollingNumberPatchChanges(textView); // Fetch failed.
+            }
+            textView.setText(replacement);
+            textView.requestLayout();
+        });
+    }
+
     /**
      * Injection point.
      */
@@ -405,14 +481,8 @@ public class ReturnYouTubeDislikePatch {
                 return original;
             }
 
-            if (SettingsEnum.RYD_COMPACT_LAYOUT.getBoolean()) {
-                removeRollingNumberPatchChanges(view);
-            } else {
-                addRollingNumberPatchChanges(view);
-            }
-
-            // Remove any padding set by Rolling Number.
-            view.setPadding(0, 0, 0, 0);
+            applyRollingNumberPatchChanges(view);
+            updateRollingNumberAfterFetch(view);
 
             // When displaying dislikes, the rolling animation is not visually correct
             // and the dislikes always animate (even though the dislike count has not changed).
@@ -434,6 +504,12 @@ public class ReturnYouTubeDislikePatch {
      */
     private static final Spannable SHORTS_LOADING_SPAN = new SpannableString("-");
 
+    /**
+     * Main thread task keys of Shorts text view updates.
+     */
+    private static final String SHORTS_UPDATE_KEY = "ReturnYouTubeDislikePatch.shortsUpdate";
+    private static final String SHORTS_FORCE_UPDATE_KEY = "ReturnYouTubeDislikePatch.shortsForceUpdate";
+
     /**
      * Dislikes TextViews used by Shorts.
      *
@@ -508,7 +584,7 @@ public class ReturnYouTubeDislikePatch {
 
             Runnable update = () -> {
                 Spanned shortsDislikesSpan = videoData.getDislikeSpanForShort(SHORTS_LOADING_SPAN);
-                ReVancedUtils.runOnMainThreadNowOrLater(() -> {
+                Runnable textViewUpdate = () -> {
                     String videoId = videoData.getVideoId();
                     if (!videoId.equals(VideoInformation.getVideoId())) {
                         // User swiped to new video before fetch completed
@@ -531,13 +607,20 @@ public class ReturnYouTubeDislikePatch {
                             textView.setText(shortsDislikesSpan);
                         }
                     }
-                });
+                };
+                final String key = forceUpdate ? SHORTS_FORCE_UPDATE_KEY : SHORTS_UPDATE_KEY;
+                if (ReVancedUtils.isCurrentlyOnMainThread()) {
+                    // Update now, so the text view is not drawn with the loading span.
+                    // Any scheduled update is outdated by this update.
+                    ReVancedUtils.cancelOnMainThreadKeyed(key);
+                    textViewUpdate.run();
+                } else {
+                    // Multiple updates can be requested at once, as a hook is called for each text view.
+                    ReVancedUtils.runOnMainThreadKeyed(key, textViewUpdate);
+                }
             };
-            if (videoData.fetchCompleted()) {
-                update.run(); // Network call is completed, no need to wait on background thread.
-            } else {
-                ReVancedUtils.runOnBackgroundThread(update);
-            }
+            // Runs now if the network call is completed, otherwise when it completes.
+            videoData.runOnFetchCompleted(update);
         } catch (Exception ex) {
             LogHelper.printException(() -> "updateOnScreenShortsTextViews failure", ex);
         }
@@ -13,6 +13,8 @@ import java.util.Objects;
 
 import app.revanced.integrations.youtube.settings.SettingsEnum;
 import app.revanced.integrations.youtube.shared.VideoState;
+import app.revanced.integrations.youtube.sponsorblock.SegmentPlaybackController;
+import app.revanced.integrations.youtube.utils.EventBus;
 import app.revanced.integrations.youtube.utils.LogHelper;
 import app.revanced.integrations.youtube.utils.ReVancedUtils;
 import app.revanced.integrations.youtube.utils.VideoHelpers;
@@ -170,6 +172,7 @@ public final class VideoInformation {
             return;
 
         videoId = newlyLoadedVideoId;
+        EventBus.VIDEO_CHANGED.post(newlyLoadedVideoId);
     }
 
     /**
@@ -249,6 +252,7 @@ public final class VideoInformation {
     public static void setPlayerResponseVideoId(@NonNull String videoId, boolean isShortAndOpeningOrPlaying) {
         if (!playerResponseVideoId.equals(videoId)) {
             playerResponseVideoId = videoId;
+            SegmentPlaybackController.preloadVideoId(videoId, isShortAndOpeningOrPlaying);
         }
     }
 
@@ -296,6 +300,7 @@ public final class VideoInformation {
      */
     public static void setVideoTime(final long time) {
         videoTime = time;
+        EventBus.VIDEO_TIME_TICK.post(time);
     }
 
     /**
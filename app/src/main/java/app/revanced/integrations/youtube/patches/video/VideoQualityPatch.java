@@ -19,6 +19,9 @@ public class VideoQualityPatch {
     private static final SettingsEnum mobileQualitySetting = SettingsEnum.DEFAULT_VIDEO_QUALITY_MOBILE;
     private static final SettingsEnum wifiQualitySetting = SettingsEnum.DEFAULT_VIDEO_QUALITY_WIFI;
 
+    private static final String OVERRIDE_QUALITY_KEY = "VideoQualityPatch.overrideQuality";
+    private static final String USER_CHANGED_QUALITY_KEY = "VideoQualityPatch.userChangedQuality";
+
     private static Boolean useCustomQuality = false;
     @Nullable
     private static int customQuality;
@@ -75,7 +78,8 @@ public class VideoQualityPatch {
         if (preferredQuality == -2)
             return;
 
-        ReVancedUtils.runOnMainThreadDelayed(() -> 
+        // Replaces the pending override, if the video changes again before the delay ends.
+        ReVancedUtils.runOnMainThreadKeyedDelayed(OVERRIDE_QUALITY_KEY, () ->
             setVideoQuality((useCustomQuality) ? customQuality 
                                                : preferredQuality)
         , 300);
@@ -133,7 +137,7 @@ public class VideoQualityPatch {
      * @param selectedQuality user selected quality
      */
     public static void userChangedQuality(final int selectedQuality) {
-        ReVancedUtils.runOnMainThreadDelayed(() ->
+        ReVancedUtils.runOnMainThreadKeyedDelayed(USER_CHANGED_QUALITY_KEY, () ->
                         changeDefaultQuality(getCurrentQuality(selectedQuality)),
                 300
         );
@@ -0,0 +1,306 @@
+package app.revanced.integrations.youtube.requests;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ThreadLocalRandom;
+
+import app.revanced.integrations.youtube.utils.LogHelper;
+
+/**
+ * Per host circuit breaker, shared by all API requesters.
+ * <p>
+ * Closed: requests are allowed.  After {@link #FAILURE_THRESHOLD} consecutive failures,
+ * or if the server requests a back off, the breaker opens.
+ * <p>
+ * Open: requests are refused until the back off time passes.  The back off time doubles each time
+ * the breaker opens without a success in between, and is randomly jittered so clients do not
+ * all resume at the same moment.  A server provided Retry-After is always honored.
+ * <p>
+ * Half open: a single trial request is allowed.  A success closes the breaker, a failure opens it again.
+ * If the trial ends without a result, such as a cancelled request or an unexpected exception,
+ * {@link #requestFinished()} releases the trial so the next request is the new trial.
+ */
+public final class CircuitBreaker {
+    /**
+     * Number of consecutive failures before the breaker opens.
+     */
+    private static final int FAILURE_THRESHOLD = 3;
+
+    /**
+     * Back off time when the breaker first opens.
+     */
+    private static final long BACKOFF_INITIAL_MILLISECONDS = 30 * 1000; // 30 Seconds.
+
+    /**
+     * Maximum back off time, if the server does not specify one.
+     */
+    private static final long BACKOFF_MAXIMUM_MILLISECONDS = 30 * 60 * 1000; // 30 Minutes.
+
+    /**
+     * Maximum Retry-After time honored.  Guards against bad server values.
+     */
+    private static final long RETRY_AFTER_MAXIMUM_MILLISECONDS = 60 * 60 * 1000; // 1 Hour.
+
+    /**
+     * If a half open trial request has not reported a result after this long,
+     * then the result was lost and another trial is allowed.
+     * Only used for requests that cannot call {@link #requestFinished()}, such as Cronet image requests.
+     */
+    private static final long TRIAL_TIMEOUT_MILLISECONDS = 60 * 1000; // 1 Minute.
+
+    /**
+     * Indicates a client rate limit has been reached and the client must back off.
+     */
+    private static final int HTTP_STATUS_CODE_RATE_LIMIT = 429;
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Key is the host name.
+     */
+    @GuardedBy("itself")
+    private static final Map<String, CircuitBreaker> breakers = new HashMap<>();
+
+    /**
+     * @return The circuit breaker of the host.
+     */
+    @NonNull
+    public static CircuitBreaker forHost(@NonNull String host) {
+        synchronized (breakers) {
+            CircuitBreaker breaker = breakers.get(host);
+            if (breaker == null) {
+                breaker = new CircuitBreaker(host);
+                breakers.put(host, breaker);
+            }
+            return breaker;
+        }
+    }
+
+    /**
+     * @return The circuit breaker of the host the connection is made to.
+     */
+    @NonNull
+    public static CircuitBreaker forConnection(@NonNull HttpURLConnection connection) {
+        return forHost(connection.getURL().getHost());
+    }
+
+    /**
+     * @return If the response code indicates the server is overloaded or requested a back off.
+     */
+    public static boolean isBackOffResponse(int responseCode) {
+        return responseCode == HTTP_STATUS_CODE_RATE_LIMIT
+                || responseCode == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
+    /**
+     * @param retryAfter Retry-After header value, either delay seconds or a HTTP date.
+     * @return Milliseconds to wait, or zero if the value is missing or not valid.
+     */
+    public static long parseRetryAfter(@Nullable String retryAfter) {
+        if (retryAfter == null || retryAfter.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            Date date = format.parse(retryAfter.trim());
+            return date == null ? 0 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        } catch (ParseException ex) {
+            LogHelper.printDebug(() -> "Could not parse Retry-After: " + retryAfter);
+            return 0;
+        }
+    }
+
+    @NonNull
+    private final String host;
+
+    @GuardedBy("this")
+    private State state = State.CLOSED;
+
+    @GuardedBy("this")
+    private int consecutiveFailures;
+
+    /**
+     * Number of times opened since the last success.  Used for the exponential back off.
+     */
+    @GuardedBy("this")
+    private int timesOpened;
+
+    /**
+     * If open, the system time a trial request is allowed.
+     * If half open, the system time the trial request started.
+     */
+    @GuardedBy("this")
+    private long stateTime;
+
+    /**
+     * If half open, the thread making the trial request.  NULL if the trial result is not reported
+     * on the thread that asked to make the request.
+     */
+    @GuardedBy("this")
+    @Nullable
+    private Thread trialThread;
+
+    private CircuitBreaker(@NonNull String host) {
+        this.host = host;
+    }
+
+    /**
+     * Must be called before each request.  If this returns true,
+     * the result must be reported using one of the record methods,
+     * and {@link #requestFinished()} should be called in a finally block.
+     *
+     * @return If a request to the host can be made.
+     */
+    public synchronized boolean allowRequest() {
+        final long now = System.currentTimeMillis();
+        switch (state) {
+            case OPEN:
+                if (now < stateTime) {
+                    return false;
+                }
+                LogHelper.printDebug(() -> "Allowing trial request to: " + host);
+                state = State.HALF_OPEN;
+                stateTime = now;
+                trialThread = Thread.currentThread();
+                return true;
+            case HALF_OPEN:
+                if (now - stateTime < TRIAL_TIMEOUT_MILLISECONDS) {
+                    return false; // Trial is in progress.
+                }
+                stateTime = now;
+                trialThread = Thread.currentThread();
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Must be called after each request made on the calling thread, including requests that were refused,
+     * cancelled or failed with an unexpected exception.  If the calling thread made the half open trial
+     * request and no result was recorded, the trial is released and the next request is allowed as the trial.
+     */
+    public synchronized void requestFinished() {
+        if (state == State.HALF_OPEN && trialThread == Thread.currentThread()) {
+            LogHelper.printDebug(() -> "Trial request to: " + host + " finished without a result");
+            state = State.OPEN;
+            stateTime = System.currentTimeMillis();
+            trialThread = null;
+        }
+    }
+
+    /**
+     * @return If requests are currently refused.
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() < stateTime;
+    }
+
+    /**
+     * The server responded normally.  Includes responses such as 404 that are an expected result.
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            LogHelper.printDebug(() -> "Resuming requests to: " + host);
+        }
+        state = State.CLOSED;
+        trialThread = null;
+        consecutiveFailures = 0;
+        timesOpened = 0;
+    }
+
+    /**
+     * The request failed with a connection error or an unexpected response code.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD) {
+            open(0);
+        }
+    }
+
+    /**
+     * The server requested a back off.  Opens the breaker immediately.
+     *
+     * @param retryAfterMilliseconds Server requested wait time, or zero if not specified.
+     */
+    public synchronized void recordBackOff(long retryAfterMilliseconds) {
+        open(Math.min(retryAfterMilliseconds, RETRY_AFTER_MAXIMUM_MILLISECONDS));
+    }
+
+    /**
+     * The server requested a back off, using the Retry-After header of the connection if present.
+     */
+    public void recordBackOff(@NonNull HttpURLConnection connection) {
+        recordBackOff(parseRetryAfter(connection.getHeaderField("Retry-After")));
+    }
+
+    /**
+     * Records the result of a request, using the response code.
+     *
+     * @param connection Connection with a response.
+     * @param expectedResponseCodes Response codes other than 200 that are a normal server response.
+     */
+    public void recordResponse(@NonNull HttpURLConnection connection, int responseCode, int... expectedResponseCodes) {
+        if (responseCode == HttpURLConnection.HTTP_OK) {
+            recordSuccess();
+            return;
+        }
+        for (int expected : expectedResponseCodes) {
+            if (responseCode == expected) {
+                recordSuccess();
+                return;
+            }
+        }
+        if (isBackOffResponse(responseCode)) {
+            recordBackOff(connection);
+        } else {
+            recordFailure();
+        }
+    }
+
+    /**
+     * Clears any back off in effect.
+     */
+    public synchronized void reset() {
+        state = State.CLOSED;
+        trialThread = null;
+        consecutiveFailures = 0;
+        timesOpened = 0;
+    }
+
+    @GuardedBy("this")
+    private void open(long retryAfterMilliseconds) {
+        final long backOff = Math.min(BACKOFF_MAXIMUM_MILLISECONDS,
+                BACKOFF_INITIAL_MILLISECONDS << Math.min(timesOpened, 16));
+        // Equal jitter. Wait at least half the back off, plus a random amount up to the other half.
+        final long jitteredBackOff = backOff / 2 + ThreadLocalRandom.current().nextLong(backOff / 2 + 1);
+        final long waitTime = Math.max(jitteredBackOff, retryAfterMilliseconds);
+
+        timesOpened++;
+        consecutiveFailures = 0;
+        state = State.OPEN;
+        trialThread = null;
+        stateTime = System.currentTimeMillis() + waitTime;
+        LogHelper.printDebug(() -> "Stopping requests to: " + host + " for the next " + waitTime + "ms");
+    }
+}
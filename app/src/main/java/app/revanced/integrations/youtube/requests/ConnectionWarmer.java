@@ -0,0 +1,118 @@
+package app.revanced.integrations.youtube.requests;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import app.revanced.integrations.youtube.returnyoutubedislike.requests.ReturnYouTubeDislikeRoutes;
+import app.revanced.integrations.youtube.settings.SettingsEnum;
+import app.revanced.integrations.youtube.utils.BackgroundLane;
+import app.revanced.integrations.youtube.utils.LogHelper;
+import app.revanced.integrations.youtube.utils.ReVancedUtils;
+
+/**
+ * Opens connections to the SponsorBlock, RYD and DeArrow hosts when the app starts,
+ * so the first real request does not pay for DNS, TCP and TLS setup inside its own short timeout.
+ * <p>
+ * Each host is sent a HEAD request for the root path, and the keep alive connection is left
+ * in the {@link HttpURLConnection} connection pool for the next request to the same host.
+ * DeArrow thumbnails are loaded by Cronet, which has its own connection pool,
+ * so for DeArrow only the DNS lookup and server side TLS session are warmed.
+ * <p>
+ * Warm up is skipped on metered networks.
+ * The time of each warm up is recorded to the route metrics named 'Warm up' and the host.
+ */
+public final class ConnectionWarmer {
+    private static final int TIMEOUT_MILLISECONDS = 5000;
+
+    private static final AtomicBoolean warmUpStarted = new AtomicBoolean();
+
+    private ConnectionWarmer() {
+    }
+
+    /**
+     * Starts warming connections in the background, if enabled.  Only the first call does anything.
+     */
+    public static void warmUpIfEnabled() {
+        if (!SettingsEnum.PREWARM_CONNECTIONS.getBoolean() || !warmUpStarted.compareAndSet(false, true)) {
+            return;
+        }
+        if (ReVancedUtils.isNetworkNotConnected()) {
+            LogHelper.printDebug(() -> "Skipping connection warm up, as network is not connected");
+            return;
+        }
+        if (ReVancedUtils.isNetworkMetered()) {
+            LogHelper.printDebug(() -> "Skipping connection warm up, as network is metered");
+            return;
+        }
+
+        Set<URL> urls = new LinkedHashSet<>();
+        if (SettingsEnum.SB_ENABLED.getBoolean()) {
+            addRootUrl(urls, SettingsEnum.SB_API_URL.getString());
+        }
+        if (SettingsEnum.RYD_ENABLED.getBoolean()) {
+            addRootUrl(urls, ReturnYouTubeDislikeRoutes.RYD_API_URL);
+        }
+        if (SettingsEnum.ALT_THUMBNAIL_DEARROW_API_URL.isAvailable()) {
+            addRootUrl(urls, SettingsEnum.ALT_THUMBNAIL_DEARROW_API_URL.getString());
+        }
+
+        for (URL url : urls) {
+            BackgroundLane.NETWORK.execute(() -> warmUp(url));
+        }
+    }
+
+    private static void addRootUrl(@NonNull Set<URL> urls, @Nullable String apiUrl) {
+        try {
+            URL url = new URL(apiUrl);
+            if (!"https".equals(url.getProtocol()) || url.getHost().isEmpty()) {
+                LogHelper.printDebug(() -> "Not warming connection to: " + apiUrl);
+                return;
+            }
+            urls.add(new URL(url.getProtocol(), url.getHost(), url.getPort(), "/"));
+        } catch (MalformedURLException ex) {
+            LogHelper.printDebug(() -> "Not warming connection to invalid url: " + apiUrl);
+        }
+    }
+
+    private static void warmUp(@NonNull URL url) {
+        final String host = url.getHost();
+        RouteMetrics metrics = RouteMetrics.forName("Warm up " + host);
+        final long startTime = RouteMetrics.startTime();
+        try {
+            final long resolveStartTime = System.currentTimeMillis();
+            InetAddress.getAllByName(host);
+            final long resolveTime = System.currentTimeMillis() - resolveStartTime;
+
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(TIMEOUT_MILLISECONDS);
+            connection.setReadTimeout(TIMEOUT_MILLISECONDS);
+            final int responseCode = connection.getResponseCode();
+            metrics.recordResponse(startTime, responseCode, 0, 0);
+            final long totalTime = (System.nanoTime() - startTime) / 1_000_000;
+
+            // Do not disconnect, otherwise the connection is closed instead of returned to the pool.
+            try (InputStream inputStream = responseCode < 400
+                    ? connection.getInputStream()
+                    : connection.getErrorStream()) {
+                // HEAD responses have no body.
+            }
+            LogHelper.printDebug(() -> "Warmed connection to: " + host + " response code: " + responseCode
+                    + " dns: " + resolveTime + "ms total: " + totalTime + "ms");
+        } catch (IOException ex) {
+            metrics.recordFailure(startTime, ex instanceof SocketTimeoutException);
+            LogHelper.printInfo(() -> "Failed to warm connection to: " + host, ex);
+        }
+    }
+}
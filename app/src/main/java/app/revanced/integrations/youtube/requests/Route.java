@@ -4,11 +4,14 @@ public class Route {
     private final String route;
     private final Route.Method method;
     private final int paramCount;
+    private final RouteMetrics metrics;
 
     public Route(Route.Method method, String route) {
         this.method = method;
         this.route = route;
         this.paramCount = countMatches(route, '{');
+        // Routes with the same method and path share the same metrics.
+        this.metrics = RouteMetrics.forName(method + " " + route);
 
         if (paramCount != countMatches(route, '}'))
             throw new IllegalArgumentException("Not enough parameters");
@@ -18,6 +21,10 @@ public class Route {
         return method;
     }
 
+    public RouteMetrics getMetrics() {
+        return metrics;
+    }
+
     public Route.CompiledRoute compile(String... params) {
         if (params.length != paramCount)
             throw new IllegalArgumentException("Error compiling route [" + route + "], incorrect amount of parameters provided. " +
@@ -62,5 +69,9 @@ public class Route {
         public Route.Method getMethod() {
             return baseRoute.method;
         }
+
+        public RouteMetrics getMetrics() {
+            return baseRoute.metrics;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,191 @@
+package app.revanced.integrations.youtube.requests;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Request statistics of an API endpoint.
+ * <p>
+ * All updates are lock free, and can be made from any thread.
+ * Values are read without a snapshot, so a summary may be very slightly inconsistent
+ * if a request finishes while it is created.
+ */
+public final class RouteMetrics {
+    /**
+     * Upper bound of each latency histogram bucket, in milliseconds.
+     * The last bucket holds all responses slower than the last bound.
+     */
+    private static final long[] LATENCY_BUCKET_BOUNDS_MILLISECONDS = {
+            25, 50, 100, 200, 400, 800, 1600, 3200, 6400
+    };
+
+    /**
+     * Key is the metrics name.
+     */
+    private static final Map<String, RouteMetrics> registry = new ConcurrentHashMap<>();
+
+    /**
+     * @return The metrics of an endpoint.  Endpoints requested using a {@link Route} should use {@link Route#getMetrics()}.
+     */
+    @NonNull
+    public static RouteMetrics forName(@NonNull String name) {
+        return registry.computeIfAbsent(name, RouteMetrics::new);
+    }
+
+    /**
+     * @return Summary of all endpoints that have made at least one request, sorted by name.
+     */
+    @NonNull
+    public static String getSummaryOfAllRoutes() {
+        List<RouteMetrics> metrics = new ArrayList<>(registry.values());
+        metrics.sort((first, second) -> first.name.compareTo(second.name));
+
+        StringBuilder builder = new StringBuilder();
+        for (RouteMetrics routeMetrics : metrics) {
+            if (routeMetrics.requestCount.get() == 0) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append("\n\n");
+            }
+            builder.append(routeMetrics.getSummary());
+        }
+        return builder.toString();
+    }
+
+    @NonNull
+    private final String name;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    /**
+     * Connection failures other than timeouts.
+     */
+    private final AtomicLong errorCount = new AtomicLong();
+    /**
+     * Index is the status code class. Index 2 is 2xx, index 4 is 4xx, etc.
+     */
+    private final AtomicLongArray statusClassCounts = new AtomicLongArray(6);
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKET_BOUNDS_MILLISECONDS.length + 1);
+
+    private RouteMetrics(@NonNull String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The start time to use when recording the result of a request.
+     */
+    public static long startTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a request that received a response.
+     *
+     * @param startTime     Value of {@link #startTime()} from when the request started,
+     *                      or a negative value if the latency is not known.
+     * @param bytesSent     Request body length.
+     * @param bytesReceived Response body length, or a negative value if not known.
+     */
+    public void recordResponse(long startTime, int responseCode, long bytesSent, long bytesReceived) {
+        requestCount.incrementAndGet();
+        final int statusClass = responseCode / 100;
+        if (statusClass > 0 && statusClass < statusClassCounts.length()) {
+            statusClassCounts.incrementAndGet(statusClass);
+        }
+        if (bytesSent > 0) {
+            this.bytesSent.addAndGet(bytesSent);
+        }
+        if (bytesReceived > 0) {
+            this.bytesReceived.addAndGet(bytesReceived);
+        }
+        if (startTime >= 0) {
+            recordLatency(startTime);
+        }
+    }
+
+    /**
+     * Records a request that failed before receiving a response.
+     *
+     * @param isTimeout If the failure was a connection or read timeout.
+     */
+    public void recordFailure(long startTime, boolean isTimeout) {
+        requestCount.incrementAndGet();
+        if (isTimeout) {
+            timeoutCount.incrementAndGet();
+        } else {
+            errorCount.incrementAndGet();
+        }
+        if (startTime >= 0) {
+            recordLatency(startTime);
+        }
+    }
+
+    private void recordLatency(long startTime) {
+        final long latencyMilliseconds = (System.nanoTime() - startTime) / 1_000_000;
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKET_BOUNDS_MILLISECONDS.length
+                && latencyMilliseconds > LATENCY_BUCKET_BOUNDS_MILLISECONDS[bucket]) {
+            bucket++;
+        }
+        latencyBuckets.incrementAndGet(bucket);
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 1.
+     * @return Upper bound of the histogram bucket that contains the percentile,
+     * -1 if no latencies are recorded, or {@link Long#MAX_VALUE} if the percentile is in the overflow bucket.
+     */
+    public long getLatencyPercentile(double percentile) {
+        final int bucketCount = latencyBuckets.length();
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            total += latencyBuckets.get(i);
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        final long target = (long) Math.ceil(total * percentile);
+        long cumulative = 0;
+        for (int i = 0; i < bucketCount - 1; i++) {
+            cumulative += latencyBuckets.get(i);
+            if (cumulative >= target) {
+                return LATENCY_BUCKET_BOUNDS_MILLISECONDS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @NonNull
+    private String formatPercentile(double percentile) {
+        final long value = getLatencyPercentile(percentile);
+        if (value < 0) {
+            return "-";
+        }
+        if (value == Long.MAX_VALUE) {
+            return ">" + LATENCY_BUCKET_BOUNDS_MILLISECONDS[LATENCY_BUCKET_BOUNDS_MILLISECONDS.length - 1] + "ms";
+        }
+        return "<=" + value + "ms";
+    }
+
+    @NonNull
+    public String getSummary() {
+        return String.format(Locale.US,
+                "%s\nrequests: %d  timeouts: %d  errors: %d\n2xx: %d  3xx: %d  4xx: %d  5xx: %d\n"
+                        + "sent: %d bytes  received: %d bytes\np50: %s  p90: %s  p99: %s",
+                name, requestCount.get(), timeoutCount.get(), errorCount.get(),
+                statusClassCounts.get(2), statusClassCounts.get(3), statusClassCounts.get(4), statusClassCounts.get(5),
+                bytesSent.get(), bytesReceived.get(),
+                formatPercentile(0.5), formatPercentile(0.9), formatPercentile(0.99));
+    }
+}
@@ -0,0 +1,275 @@
+package app.revanced.integrations.youtube.returnyoutubedislike;
+
+import android.content.Context;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import app.revanced.integrations.youtube.returnyoutubedislike.requests.RYDVoteData;
+import app.revanced.integrations.youtube.settings.SettingsEnum;
+import app.revanced.integrations.youtube.utils.LogHelper;
+import app.revanced.integrations.youtube.utils.ReVancedUtils;
+
+/**
+ * Disk backed second tier of the RYD vote cache, so vote data survives app restarts.
+ * <p>
+ * Stored as an append-only file of fixed layout records.  If a video is fetched again,
+ * a new record is appended and the later record replaces the earlier one when loading.
+ * The file is compacted when it contains too many replaced or expired records.
+ * <p>
+ * All methods must be called off the main thread.
+ */
+class RYDVoteCache {
+    private static final String CACHE_FILE_NAME = "revanced_ryd_votes.bin";
+    private static final int FILE_MAGIC = 0x52594443; // "RYDC"
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Maximum number of videos to retain.  Each record is about 50 bytes.
+     */
+    private static final int MAX_ENTRIES = 2000;
+
+    /**
+     * Compact the file if it contains this many more records than are currently in use.
+     */
+    private static final int COMPACT_UNUSED_RECORDS_THRESHOLD = 500;
+
+    static class CachedVotes {
+        @NonNull
+        final RYDVoteData voteData;
+        final long timeFetched;
+
+        CachedVotes(@NonNull RYDVoteData voteData, long timeFetched) {
+            this.voteData = voteData;
+            this.timeFetched = timeFetched;
+        }
+
+        boolean isOlderThan(long milliseconds) {
+            return System.currentTimeMillis() - timeFetched > milliseconds;
+        }
+    }
+
+    private static class Record {
+        final long timeFetched;
+        final long viewCount;
+        final long likeCount;
+        final long dislikeCount;
+
+        Record(long timeFetched, long viewCount, long likeCount, long dislikeCount) {
+            this.timeFetched = timeFetched;
+            this.viewCount = viewCount;
+            this.likeCount = likeCount;
+            this.dislikeCount = dislikeCount;
+        }
+    }
+
+    /**
+     * Key is the video id.  Iteration order is oldest fetch first.
+     * Value is NULL until the cache file is loaded.
+     */
+    @GuardedBy("RYDVoteCache.class")
+    @Nullable
+    private static LinkedHashMap<String, Record> records;
+
+    /**
+     * Number of records in the file, including records that were replaced or expired.
+     */
+    @GuardedBy("RYDVoteCache.class")
+    private static int fileRecordCount;
+
+    /**
+     * If the file ends with a partially written record, and must be rewritten before appending.
+     */
+    @GuardedBy("RYDVoteCache.class")
+    private static boolean fileIsTruncated;
+
+    private RYDVoteCache() {
+    }
+
+    /**
+     * @return How long cached votes can be used, or zero if the disk cache is disabled.
+     */
+    private static long getMaxAgeMilliseconds() {
+        return Math.max(0, SettingsEnum.RYD_CACHE_DURATION.getInt()) * 60 * 60 * 1000L;
+    }
+
+    @Nullable
+    private static File getCacheFile() {
+        Context context = ReVancedUtils.getContext();
+        if (context == null) {
+            return null;
+        }
+        return new File(context.getCacheDir(), CACHE_FILE_NAME);
+    }
+
+    /**
+     * @return The cached votes, or NULL if the video is not cached or the cached data has expired.
+     */
+    @Nullable
+    static synchronized CachedVotes get(@NonNull String videoId) {
+        final long maxAge = getMaxAgeMilliseconds();
+        if (maxAge == 0) {
+            return null;
+        }
+        Record record = getRecords().get(videoId);
+        if (record == null || System.currentTimeMillis() - record.timeFetched > maxAge) {
+            return null;
+        }
+        RYDVoteData voteData = new RYDVoteData(videoId, record.viewCount, record.likeCount, record.dislikeCount);
+        return new CachedVotes(voteData, record.timeFetched);
+    }
+
+    static synchronized void put(@NonNull RYDVoteData voteData) {
+        if (getMaxAgeMilliseconds() == 0) {
+            return;
+        }
+        File file = getCacheFile();
+        if (file == null) {
+            return;
+        }
+        Map<String, Record> map = getRecords();
+        Record record = new Record(System.currentTimeMillis(), voteData.viewCount,
+                voteData.getFetchedLikeCount(), voteData.getFetchedDislikeCount());
+        map.remove(voteData.videoId); // Remove first, so the entry moves to the end of the iteration order.
+        map.put(voteData.videoId, record);
+        if (map.size() > MAX_ENTRIES) {
+            Iterator<Record> iterator = map.values().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+
+        if (fileIsTruncated || fileRecordCount - map.size() >= COMPACT_UNUSED_RECORDS_THRESHOLD || !file.exists()) {
+            writeAllRecords(file);
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+            writeRecord(out, voteData.videoId, record);
+            fileRecordCount++;
+        } catch (IOException ex) {
+            LogHelper.printInfo(() -> "Could not append vote cache record", ex);
+        }
+    }
+
+    @GuardedBy("RYDVoteCache.class")
+    @NonNull
+    private static LinkedHashMap<String, Record> getRecords() {
+        if (records == null) {
+            records = new LinkedHashMap<>();
+            fileRecordCount = 0;
+            File file = getCacheFile();
+            if (file != null && file.exists()) {
+                try {
+                    readFile(file);
+                    LogHelper.printDebug(() -> "Loaded vote cache records: " + records.size()
+                            + " file records: " + fileRecordCount);
+                } catch (IOException ex) {
+                    LogHelper.printInfo(() -> "Could not read vote cache", ex);
+                    records.clear();
+                    fileRecordCount = 0;
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Forgets the loaded records, so the next use reads the file again.
+     */
+    static synchronized void unloadRecords() {
+        records = null;
+    }
+
+    @GuardedBy("RYDVoteCache.class")
+    private static void readFile(@NonNull File file) throws IOException {
+        final long now = System.currentTimeMillis();
+        final long expirationTime = now - getMaxAgeMilliseconds();
+        long bytesRead = 8; // Header.
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Unknown vote cache format");
+            }
+            while (true) {
+                String videoId;
+                Record record;
+                try {
+                    videoId = in.readUTF();
+                    record = new Record(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+                } catch (EOFException ex) {
+                    break; // End of file.
+                }
+                if (record.viewCount < 0 || record.likeCount < 0 || record.dislikeCount < 0) {
+                    throw new IOException("Invalid vote cache record"); // Corrupt file.
+                }
+                fileRecordCount++;
+                bytesRead += 2 + videoId.length() + 4 * 8;
+                records.remove(videoId);
+                // Fetched in the future, if the device clock was changed.  Only this record is dropped,
+                // as its age is unknown.  It's replaced or removed from the file when next compacted.
+                if (record.timeFetched > expirationTime && record.timeFetched <= now) {
+                    records.put(videoId, record);
+                }
+            }
+        }
+        // App was closed while appending.
+        fileIsTruncated = bytesRead != file.length();
+
+        while (records.size() > MAX_ENTRIES) {
+            Iterator<Record> iterator = records.values().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static void writeRecord(@NonNull DataOutputStream out, @NonNull String videoId,
+                                    @NonNull Record record) throws IOException {
+        out.writeUTF(videoId);
+        out.writeLong(record.timeFetched);
+        out.writeLong(record.viewCount);
+        out.writeLong(record.likeCount);
+        out.writeLong(record.dislikeCount);
+    }
+
+    /**
+     * Rewrites the file with only the records currently in use.
+     */
+    @GuardedBy("RYDVoteCache.class")
+    private static void writeAllRecords(@NonNull File file) {
+        Map<String, Record> map = getRecords();
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                for (Map.Entry<String, Record> entry : map.entrySet()) {
+                    writeRecord(out, entry.getKey(), entry.getValue());
+                }
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Could not rename: " + tempFile);
+            }
+            fileRecordCount = map.size();
+            fileIsTruncated = false;
+            LogHelper.printDebug(() -> "Compacted vote cache records: " + map.size());
+        } catch (IOException ex) {
+            LogHelper.printInfo(() -> "Could not write vote cache", ex);
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+    }
+}
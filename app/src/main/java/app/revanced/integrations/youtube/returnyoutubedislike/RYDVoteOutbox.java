@@ -0,0 +1,402 @@
+package app.revanced.integrations.youtube.returnyoutubedislike;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import app.revanced.integrations.youtube.returnyoutubedislike.requests.ReturnYouTubeDislikeApi;
+import app.revanced.integrations.youtube.utils.LogHelper;
+import app.revanced.integrations.youtube.utils.ReVancedUtils;
+
+/**
+ * Votes waiting to be sent to the RYD API, stored on disk so they survive app restarts.
+ * <p>
+ * Only the last vote of each video is kept, so quickly toggling like and dislike sends only the final state.
+ * Votes are sent one by one in the order the user made them.  If sending fails the outbox is retried later.
+ * Votes waiting for a network connection are sent as soon as a new network becomes available,
+ * but a network change does not skip the wait before retrying a vote that failed to send.
+ */
+class RYDVoteOutbox {
+    private static final String OUTBOX_FILE_NAME = "revanced_ryd_vote_outbox.bin";
+    private static final int FILE_MAGIC = 0x52594456; // "RYDV"
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Votes older than this are discarded, as the user has likely forgotten them.
+     */
+    private static final long MAX_VOTE_AGE_MILLISECONDS = 7 * 24 * 60 * 60 * 1000L; // 7 Days.
+
+    /**
+     * A vote that fails to send this many times is discarded.  The API may be refusing it.
+     */
+    private static final int MAX_SEND_ATTEMPTS = 5;
+
+    private static final long RETRY_INITIAL_MILLISECONDS = 60 * 1000; // 1 Minute.
+    private static final long RETRY_MAXIMUM_MILLISECONDS = 30 * 60 * 1000; // 30 Minutes.
+
+    private static class PendingVote {
+        @NonNull
+        final ReturnYouTubeDislike.Vote vote;
+        final long timeVoted;
+        int attempts;
+        /**
+         * {@link System#nanoTime()} after which sending can be attempted again, or zero if it can be sent now.
+         * Not saved to disk.
+         */
+        long nextAttemptNanos;
+
+        PendingVote(@NonNull ReturnYouTubeDislike.Vote vote, long timeVoted, int attempts) {
+            this.vote = vote;
+            this.timeVoted = timeVoted;
+            this.attempts = attempts;
+        }
+    }
+
+    /**
+     * Used to send votes and write the outbox file, one by one, in the same order the user created them.
+     */
+    private static final ScheduledExecutorService voteSerialExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Key is the video id.  Iteration order is the order the votes were made.
+     * Value is NULL until the outbox file is loaded.
+     */
+    @GuardedBy("RYDVoteOutbox.class")
+    @Nullable
+    private static LinkedHashMap<String, PendingVote> pendingVotes;
+
+    @GuardedBy("RYDVoteOutbox.class")
+    private static boolean started;
+
+    @GuardedBy("RYDVoteOutbox.class")
+    private static boolean retryScheduled;
+
+    /**
+     * {@link System#nanoTime()} of the scheduled retry.  Only valid if {@link #retryScheduled} is true.
+     */
+    @GuardedBy("RYDVoteOutbox.class")
+    private static long retryNanos;
+
+    @GuardedBy("RYDVoteOutbox.class")
+    private static int consecutiveFailedDrains;
+
+    @GuardedBy("RYDVoteOutbox.class")
+    private static boolean networkCallbackRegistered;
+
+    /**
+     * Last network reported by the network callback, or the network that was available when it was registered.
+     */
+    @GuardedBy("RYDVoteOutbox.class")
+    @Nullable
+    private static Network lastAvailableNetwork;
+
+    private static final AtomicLong votesSent = new AtomicLong();
+    private static final AtomicLong votesCoalesced = new AtomicLong();
+    private static final AtomicLong votesDiscarded = new AtomicLong();
+    private static final AtomicLong totalSendLatencyMilliseconds = new AtomicLong();
+    private static final AtomicLong maxSendLatencyMilliseconds = new AtomicLong();
+
+    private RYDVoteOutbox() {
+    }
+
+    /**
+     * Sends any votes remaining from a previous app session.  Only the first call does anything.
+     */
+    static synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        voteSerialExecutor.execute(RYDVoteOutbox::drain);
+    }
+
+    /**
+     * Replaces any vote of the video that was not yet sent.  Can be called from any thread.
+     */
+    static void enqueue(@NonNull String videoId, @NonNull ReturnYouTubeDislike.Vote vote) {
+        final long timeVoted = System.currentTimeMillis();
+        voteSerialExecutor.execute(() -> {
+            try {
+                synchronized (RYDVoteOutbox.class) {
+                    started = true;
+                    Map<String, PendingVote> map = getPendingVotes();
+                    if (map.remove(videoId) != null) {
+                        votesCoalesced.incrementAndGet();
+                        LogHelper.printDebug(() -> "Replacing unsent vote for video: " + videoId);
+                    }
+                    map.put(videoId, new PendingVote(vote, timeVoted, 0));
+                    writeFile();
+                }
+                drain();
+            } catch (Exception ex) {
+                LogHelper.printException(() -> "Failed to queue vote", ex);
+            }
+        });
+    }
+
+    /**
+     * Sends all pending votes.  Must be called using {@link #voteSerialExecutor}.
+     */
+    private static void drain() {
+        try {
+            while (true) {
+                String videoId;
+                PendingVote pending;
+                synchronized (RYDVoteOutbox.class) {
+                    Map<String, PendingVote> map = getPendingVotes();
+                    if (map.isEmpty()) {
+                        consecutiveFailedDrains = 0;
+                        return;
+                    }
+                    Map.Entry<String, PendingVote> first = map.entrySet().iterator().next();
+                    videoId = first.getKey();
+                    pending = first.getValue();
+                    if (pending.nextAttemptNanos != 0 && pending.nextAttemptNanos - System.nanoTime() > 0) {
+                        LogHelper.printDebug(() -> "Waiting for the scheduled retry to send votes");
+                        return;
+                    }
+                }
+
+                if (ReVancedUtils.isNetworkNotConnected()) {
+                    LogHelper.printDebug(() -> "Network not connected, waiting to send votes");
+                    synchronized (RYDVoteOutbox.class) {
+                        registerNetworkCallback();
+                    }
+                    return;
+                }
+                if (ReturnYouTubeDislikeApi.isBackOffInEffect()) {
+                    // Not counted as a failed attempt, as the vote was not sent.
+                    synchronized (RYDVoteOutbox.class) {
+                        pending.nextAttemptNanos = scheduleRetry();
+                    }
+                    return;
+                }
+
+                final boolean sent = ReturnYouTubeDislikeApi.sendVote(videoId, pending.vote);
+                synchronized (RYDVoteOutbox.class) {
+                    Map<String, PendingVote> map = getPendingVotes();
+                    if (sent) {
+                        final long latency = System.currentTimeMillis() - pending.timeVoted;
+                        votesSent.incrementAndGet();
+                        totalSendLatencyMilliseconds.addAndGet(latency);
+                        maxSendLatencyMilliseconds.accumulateAndGet(latency, Math::max);
+                        map.remove(videoId);
+                        consecutiveFailedDrains = 0;
+                        writeFile();
+                        continue;
+                    }
+
+                    if (ReVancedUtils.isNetworkNotConnected()) {
+                        // Not counted as a failed attempt, and sent again when a network is available.
+                        LogHelper.printDebug(() -> "Network lost, waiting to send votes");
+                        registerNetworkCallback();
+                        return;
+                    }
+
+                    pending.attempts++;
+                    if (pending.attempts >= MAX_SEND_ATTEMPTS) {
+                        LogHelper.printInfo(() -> "Discarding vote that could not be sent for video: " + videoId);
+                        votesDiscarded.incrementAndGet();
+                        map.remove(videoId);
+                        writeFile();
+                        continue;
+                    }
+                    writeFile();
+                    pending.nextAttemptNanos = scheduleRetry();
+                    return;
+                }
+            }
+        } catch (Exception ex) {
+            LogHelper.printException(() -> "Failed to send votes", ex);
+        }
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the scheduled retry.
+     */
+    @GuardedBy("RYDVoteOutbox.class")
+    private static long scheduleRetry() {
+        if (retryScheduled) {
+            return retryNanos;
+        }
+        retryScheduled = true;
+        final long delay = Math.min(RETRY_MAXIMUM_MILLISECONDS,
+                RETRY_INITIAL_MILLISECONDS << Math.min(consecutiveFailedDrains, 16));
+        consecutiveFailedDrains++;
+        retryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        LogHelper.printDebug(() -> "Retrying to send votes in: " + delay + "ms");
+        voteSerialExecutor.schedule(() -> {
+            synchronized (RYDVoteOutbox.class) {
+                retryScheduled = false;
+                // All votes waiting for a retry were waiting for this one.
+                for (PendingVote pending : getPendingVotes().values()) {
+                    pending.nextAttemptNanos = 0;
+                }
+            }
+            drain();
+        }, delay, TimeUnit.MILLISECONDS);
+        return retryNanos;
+    }
+
+    /**
+     * Drains the outbox when a new network becomes available.
+     * The callback made when registering, for the network that is already available, is ignored.
+     */
+    @GuardedBy("RYDVoteOutbox.class")
+    private static void registerNetworkCallback() {
+        if (networkCallbackRegistered) {
+            return;
+        }
+        Context context = ReVancedUtils.getContext();
+        if (context == null || !(context.getSystemService(Context.CONNECTIVITY_SERVICE) instanceof ConnectivityManager cm)) {
+            return;
+        }
+        try {
+            lastAvailableNetwork = cm.getActiveNetwork();
+            cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    synchronized (RYDVoteOutbox.class) {
+                        if (network.equals(lastAvailableNetwork)) {
+                            return; // Registration callback, or the same network reported again.
+                        }
+                        lastAvailableNetwork = network;
+                        if (pendingVotes == null || pendingVotes.isEmpty()) {
+                            return;
+                        }
+                    }
+                    // Drain skips votes that are waiting for a scheduled retry.
+                    LogHelper.printDebug(() -> "Network available, sending votes");
+                    voteSerialExecutor.execute(RYDVoteOutbox::drain);
+                }
+            });
+            networkCallbackRegistered = true;
+        } catch (Exception ex) {
+            LogHelper.printInfo(() -> "Could not register network callback", ex); // Missing permission.
+        }
+    }
+
+    @Nullable
+    private static File getOutboxFile() {
+        Context context = ReVancedUtils.getContext();
+        if (context == null) {
+            return null;
+        }
+        // Not the cache directory, as the system can clear that at any time.
+        return new File(context.getFilesDir(), OUTBOX_FILE_NAME);
+    }
+
+    @GuardedBy("RYDVoteOutbox.class")
+    @NonNull
+    private static LinkedHashMap<String, PendingVote> getPendingVotes() {
+        if (pendingVotes == null) {
+            pendingVotes = new LinkedHashMap<>();
+            File file = getOutboxFile();
+            if (file != null && file.exists()) {
+                try {
+                    readFile(file, pendingVotes);
+                    LogHelper.printDebug(() -> "Loaded unsent votes: " + pendingVotes.size());
+                } catch (IOException ex) {
+                    LogHelper.printInfo(() -> "Could not read vote outbox", ex);
+                    pendingVotes.clear();
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        }
+        return pendingVotes;
+    }
+
+    private static void readFile(@NonNull File file, @NonNull Map<String, PendingVote> map) throws IOException {
+        final long expirationTime = System.currentTimeMillis() - MAX_VOTE_AGE_MILLISECONDS;
+        ReturnYouTubeDislike.Vote[] votes = ReturnYouTubeDislike.Vote.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Unknown vote outbox format");
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String videoId = in.readUTF();
+                final int voteOrdinal = in.readUnsignedByte();
+                final long timeVoted = in.readLong();
+                final int attempts = in.readUnsignedByte();
+                if (voteOrdinal >= votes.length) {
+                    throw new IOException("Invalid vote: " + voteOrdinal);
+                }
+                if (timeVoted > expirationTime) {
+                    map.put(videoId, new PendingVote(votes[voteOrdinal], timeVoted, attempts));
+                }
+            }
+        }
+    }
+
+    @GuardedBy("RYDVoteOutbox.class")
+    private static void writeFile() {
+        File file = getOutboxFile();
+        if (file == null) {
+            return;
+        }
+        Map<String, PendingVote> map = getPendingVotes();
+        if (map.isEmpty()) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return;
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(map.size());
+                for (Map.Entry<String, PendingVote> entry : map.entrySet()) {
+                    PendingVote pending = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeByte(pending.vote.ordinal());
+                    out.writeLong(pending.timeVoted);
+                    out.writeByte(pending.attempts);
+                }
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Could not rename: " + tempFile);
+            }
+        } catch (IOException ex) {
+            LogHelper.printInfo(() -> "Could not write vote outbox", ex);
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+    }
+
+    @NonNull
+    static String getSummary() {
+        final int queued;
+        synchronized (RYDVoteOutbox.class) {
+            queued = pendingVotes == null ? 0 : pendingVotes.size();
+        }
+        final long sent = votesSent.get();
+        return String.format(Locale.US,
+                "RYD vote outbox\nqueued: %d  sent: %d  replaced: %d  discarded: %d\n"
+                        + "average send latency: %dms  max send latency: %dms",
+                queued, sent, votesCoalesced.get(), votesDiscarded.get(),
+                sent == 0 ? 0 : totalSendLatencyMilliseconds.get() / sent, maxSendLatencyMilliseconds.get());
+    }
+}
@@ -26,14 +26,15 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -41,6 +42,7 @@ import app.revanced.integrations.youtube.returnyoutubedislike.requests.RYDVoteDa
 import app.revanced.integrations.youtube.returnyoutubedislike.requests.ReturnYouTubeDislikeApi;
 import app.revanced.integrations.youtube.settings.SettingsEnum;
 import app.revanced.integrations.youtube.shared.PlayerType;
+import app.revanced.integrations.youtube.utils.BackgroundLane;
 import app.revanced.integrations.youtube.utils.LogHelper;
 import app.revanced.integrations.youtube.utils.ReVancedUtils;
 
@@ -66,14 +68,6 @@ public class ReturnYouTubeDislike {
         }
     }
 
-    /**
-     * Maximum amount of time to block the UI from updates while waiting for network call to complete.
-     * <p>
-     * Must be less than 5 seconds, as per:
-     * <a href="https://developer.android.com/topic/performance/vitals/anr">...</a>
-     */
-    private static final long MAX_MILLISECONDS_TO_BLOCK_UI_WAITING_FOR_FETCH = 4000;
-
     /**
      * How long to retain successful RYD fetches.
      */
@@ -91,6 +85,11 @@ public class ReturnYouTubeDislike {
      */
     private static final char MIDDLE_SEPARATOR_CHARACTER = '◎'; // 'bullseye'
 
+    /**
+     * Dislikes text of a placeholder span, shown until the fetch completes.
+     */
+    private static final String LOADING_DISLIKES_STRING = "-";
+
     private static final boolean IS_SPOOFING_TO_OLD_SEPARATOR_COLOR
             = SpoofAppVersionPatch.isSpoofingToEqualOrLessThan("18.09.39");
 
@@ -100,11 +99,6 @@ public class ReturnYouTubeDislike {
     @GuardedBy("itself")
     private static final Map<String, ReturnYouTubeDislike> fetchCache = new HashMap<>();
 
-    /**
-     * Used to send votes, one by one, in the same order the user created them.
-     */
-    private static final ExecutorService voteSerialExecutor = Executors.newSingleThreadExecutor();
-
     /**
      * For formatting dislikes as number.
      */
@@ -151,6 +145,13 @@ public class ReturnYouTubeDislike {
      */
     private final Future<RYDVoteData> future;
 
+    /**
+     * Listeners to run on the main thread when the fetch completes.  NULL after the fetch completes.
+     */
+    @Nullable
+    @GuardedBy("this")
+    private List<Runnable> fetchCompletedListeners;
+
     /**
      * Time this instance and the fetch future was created.
      */
@@ -211,12 +212,13 @@ public class ReturnYouTubeDislike {
 
     /**
      * @param isSegmentedButton If UI is using the segmented single UI component for both like and dislike.
+     * @param voteData          Vote data, or NULL to create a placeholder with a loading dislike value.
      */
     @NonNull
     private static SpannableString createDislikeSpan(@NonNull Spanned oldSpannable,
                                                      boolean isSegmentedButton,
                                                      boolean isRollingNumber,
-                                                     @NonNull RYDVoteData voteData) {
+                                                     @Nullable RYDVoteData voteData) {
         if (!isSegmentedButton) {
             // Simple replacement of 'dislike' with a number/percentage.
             return newSpannableWithDislikes(oldSpannable, voteData);
@@ -288,7 +290,9 @@ public class ReturnYouTubeDislike {
         builder.append(middleSeparatorSpan);
 
         // dislikes
-        builder.append(newSpannableWithDislikes(oldSpannable, voteData));
+        builder.append(voteData == null
+                ? newSpanUsingStylingOfAnotherSpan(oldSpannable, LOADING_DISLIKES_STRING)
+                : newSpannableWithDislikes(oldSpannable, voteData));
 
         return new SpannableString(builder);
     }
@@ -390,6 +394,7 @@ public class ReturnYouTubeDislike {
     @NonNull
     public static ReturnYouTubeDislike getFetchForVideoId(@Nullable String videoId) {
         Objects.requireNonNull(videoId);
+        RYDVoteOutbox.start();
         synchronized (fetchCache) {
             // Remove any expired entries.
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
@@ -411,6 +416,14 @@ public class ReturnYouTubeDislike {
         }
     }
 
+    /**
+     * @return Statistics of votes sent.
+     */
+    @NonNull
+    public static String getVoteOutboxSummary() {
+        return RYDVoteOutbox.getSummary();
+    }
+
     /**
      * Should be called if the user changes dislikes appearance settings.
      */
@@ -425,7 +438,83 @@ public class ReturnYouTubeDislike {
     private ReturnYouTubeDislike(@NonNull String videoId) {
         this.videoId = Objects.requireNonNull(videoId);
         this.timeFetched = System.currentTimeMillis();
-        this.future = ReVancedUtils.submitOnBackgroundThread(() -> ReturnYouTubeDislikeApi.fetchVotes(videoId));
+        FutureTask<RYDVoteData> fetchTask = new FutureTask<>(() -> fetchVotesUsingDiskCache(videoId)) {
+            @Override
+            protected void done() {
+                onFetchCompleted();
+            }
+        };
+        this.future = fetchTask;
+        BackgroundLane.INTERACTIVE.execute(fetchTask);
+    }
+
+    private void onFetchCompleted() {
+        final List<Runnable> listeners;
+        synchronized (this) {
+            listeners = fetchCompletedListeners;
+            fetchCompletedListeners = null;
+        }
+        if (listeners != null) {
+            ReVancedUtils.runOnMainThreadNowOrLater(() -> {
+                for (Runnable listener : listeners) {
+                    runFetchCompletedListener(listener);
+                }
+            });
+        }
+    }
+
+    private static void runFetchCompletedListener(@NonNull Runnable listener) {
+        try {
+            listener.run();
+        } catch (Exception ex) {
+            LogHelper.printException(() -> "Fetch completed listener failure", ex);
+        }
+    }
+
+    /**
+     * Runs a listener on the main thread after the fetch completes, or as soon as possible if already completed.
+     * Used to update a placeholder span without blocking the thread that created it.
+     */
+    public void runOnFetchCompleted(@NonNull Runnable listener) {
+        Objects.requireNonNull(listener);
+        synchronized (this) {
+            if (!future.isDone()) {
+                if (fetchCompletedListeners == null) {
+                    fetchCompletedListeners = new ArrayList<>();
+                }
+                fetchCompletedListeners.add(listener);
+                return;
+            }
+        }
+        ReVancedUtils.runOnMainThreadNowOrLater(() -> runFetchCompletedListener(listener));
+    }
+
+    /**
+     * Uses the disk cache if available.  Cached data older than {@link #CACHE_TIMEOUT_SUCCESS_MILLISECONDS}
+     * is still used, but it is refreshed in the background for the next time the video is shown.
+     */
+    @Nullable
+    private static RYDVoteData fetchVotesUsingDiskCache(@NonNull String videoId) {
+        RYDVoteCache.CachedVotes cached = RYDVoteCache.get(videoId);
+        if (cached != null) {
+            if (cached.isOlderThan(CACHE_TIMEOUT_SUCCESS_MILLISECONDS)) {
+                LogHelper.printDebug(() -> "Using stale disk cache and refreshing: " + videoId);
+                ReVancedUtils.runOnBackgroundThread(BackgroundLane.NETWORK, () -> fetchVotesAndUpdateDiskCache(videoId));
+            } else {
+                LogHelper.printDebug(() -> "Using disk cache: " + videoId);
+            }
+            return cached.voteData;
+        }
+        return fetchVotesAndUpdateDiskCache(videoId);
+    }
+
+    @Nullable
+    private static RYDVoteData fetchVotesAndUpdateDiskCache(@NonNull String videoId) {
+        RYDVoteData voteData = ReturnYouTubeDislikeApi.fetchVotes(videoId);
+        if (voteData != null) {
+            RYDVoteCache.put(voteData);
+        }
+        return voteData;
     }
 
     private boolean isExpired(long now) {
@@ -437,7 +526,17 @@ public class ReturnYouTubeDislike {
             return true; // Always expired.
         }
         // Only expired if the fetch failed (API null response).
-        return (!fetchCompleted() || getFetchData(MAX_MILLISECONDS_TO_BLOCK_UI_WAITING_FOR_FETCH) == null);
+        return getFetchDataIfCompleted() == null;
+    }
+
+    /**
+     * Does not block.
+     *
+     * @return The fetched data, or NULL if the fetch has not completed or the fetch failed.
+     */
+    @Nullable
+    public RYDVoteData getFetchDataIfCompleted() {
+        return future.isDone() ? getFetchData(0) : null;
     }
 
     @Nullable
@@ -479,32 +578,58 @@ public class ReturnYouTubeDislike {
     }
 
     /**
+     * Does not block.  If the fetch has not completed, then a segmented button is given a placeholder span
+     * with a loading dislike value, and a regular button is given the original span.
+     * Use {@link #runOnFetchCompleted(Runnable)} to replace the placeholder after the fetch completes.
+     *
      * @return the replacement span containing dislikes, or the original span if RYD is not available.
      */
     @NonNull
     public synchronized Spanned getDislikesSpanForRegularVideo(@NonNull Spanned original,
                                                                boolean isSegmentedButton,
                                                                boolean isRollingNumber) {
-        return waitForFetchAndUpdateReplacementSpan(original, isSegmentedButton, isRollingNumber,false);
+        return updateReplacementSpan(original, isSegmentedButton, isRollingNumber, false);
     }
 
     /**
-     * Called when a Shorts dislike Spannable is created.
+     * Called when a Shorts dislike Spannable is created.  Does not block.
+     *
+     * @return the replacement span containing dislikes, or the original span if RYD is not yet available.
      */
     @NonNull
     public synchronized Spanned getDislikeSpanForShort(@NonNull Spanned original) {
-        return waitForFetchAndUpdateReplacementSpan(original, false, false, true);
+        return updateReplacementSpan(original, false, false, true);
     }
 
     @NonNull
-    private Spanned waitForFetchAndUpdateReplacementSpan(@NonNull Spanned original,
-                                                         boolean isSegmentedButton,
-                                                         boolean isRollingNumber,
-                                                         boolean spanIsForShort) {
+    private Spanned updateReplacementSpan(@NonNull Spanned original,
+                                          boolean isSegmentedButton,
+                                          boolean isRollingNumber,
+                                          boolean spanIsForShort) {
         try {
-            RYDVoteData votingData = getFetchData(MAX_MILLISECONDS_TO_BLOCK_UI_WAITING_FOR_FETCH);
+            if (!future.isDone()) {
+                if (!isSegmentedButton) {
+                    return original;
+                }
+                synchronized (this) {
+                    if (isPreviouslyCreatedSegmentedSpan(original.toString())) {
+                        return original; // Placeholder is already shown.
+                    }
+                    originalDislikeSpan = original;
+                }
+                LogHelper.printDebug(() -> "Using placeholder dislikes span for: " + videoId);
+                return createDislikeSpan(original, true, isRollingNumber, null);
+            }
+
+            RYDVoteData votingData = getFetchDataIfCompleted();
             if (votingData == null) {
                 LogHelper.printDebug(() -> "Cannot add dislike to UI (RYD data not available)");
+                synchronized (this) {
+                    if (isSegmentedButton && originalDislikeSpan != null
+                            && isPreviouslyCreatedSegmentedSpan(original.toString())) {
+                        return originalDislikeSpan; // Remove the placeholder.
+                    }
+                }
                 return original;
             }
 
@@ -560,7 +685,7 @@ public class ReturnYouTubeDislike {
                 return replacementLikeDislikeSpan;
             }
         } catch (Exception e) {
-            LogHelper.printException(() -> "waitForFetchAndUpdateReplacementSpan failure", e); // should never happen
+            LogHelper.printException(() -> "updateReplacementSpan failure", e); // should never happen
         }
         return original;
     }
@@ -578,13 +703,7 @@ public class ReturnYouTubeDislike {
 
             setUserVote(vote);
 
-            voteSerialExecutor.execute(() -> {
-                try { // Must wrap in try/catch to properly log exceptions.
-                    ReturnYouTubeDislikeApi.sendVote(videoId, vote);
-                } catch (Exception ex) {
-                    LogHelper.printException(() -> "Failed to send vote", ex);
-                }
-            });
+            RYDVoteOutbox.enqueue(videoId, vote);
         } catch (Exception ex) {
             LogHelper.printException(() -> "Error trying to send vote", ex);
         }
@@ -607,7 +726,7 @@ public class ReturnYouTubeDislike {
 
             if (future.isDone()) {
                 // Update the fetched vote data.
-                RYDVoteData voteData = getFetchData(MAX_MILLISECONDS_TO_BLOCK_UI_WAITING_FOR_FETCH);
+                RYDVoteData voteData = getFetchDataIfCompleted();
                 if (voteData == null) {
                     // RYD fetch failed.
                     LogHelper.printDebug(() -> "Cannot update UI (vote data not available)");
@@ -0,0 +1,177 @@
+package app.revanced.integrations.youtube.returnyoutubedislike.requests;
+
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import app.revanced.integrations.youtube.utils.BackgroundLane;
+import app.revanced.integrations.youtube.utils.LogHelper;
+
+/**
+ * Solves the RYD registration and vote proof of work puzzles.
+ * <p>
+ * The puzzle is to find a 4 byte nonce, where the SHA-512 hash of the nonce followed by the
+ * 16 byte challenge starts with at least the difficulty number of zero bits.
+ * <p>
+ * The nonce space is interleaved across the {@link BackgroundLane#CPU} threads, and all workers stop
+ * as soon as any worker finds a solution.  Each worker reuses its own input and digest buffers.
+ */
+final class RYDPuzzleSolver {
+    /**
+     * Puzzles of this difficulty or less are solved on the calling thread,
+     * as they take less time than starting the worker threads.
+     */
+    private static final int SINGLE_THREAD_MAX_DIFFICULTY = 12;
+
+    /**
+     * Returned by a worker that did not find a solution.
+     */
+    private static final long NO_SOLUTION = -1;
+
+    private static final int SHA_512_LENGTH = 64;
+
+    private RYDPuzzleSolver() {
+    }
+
+    /**
+     * @return The base64 encoded nonce.
+     */
+    @NonNull
+    static String solve(@NonNull String challenge, int difficulty) throws InterruptedException {
+        final long timeSolveStarted = System.currentTimeMillis();
+        byte[] decodedChallenge = Base64.decode(challenge, Base64.NO_WRAP);
+        if (decodedChallenge.length < 16) {
+            throw new IllegalArgumentException("Invalid challenge: " + challenge);
+        }
+
+        final int maxCount = (int) Math.min(Integer.MAX_VALUE, (long) (Math.pow(2, difficulty + 1) * 5));
+        final int workerCount = difficulty <= SINGLE_THREAD_MAX_DIFFICULTY
+                ? 1
+                : BackgroundLane.CPU.getThreadCount();
+
+        final long nonce;
+        if (workerCount == 1) {
+            nonce = new Worker(decodedChallenge, difficulty, maxCount, 0, 1, null).search();
+        } else {
+            AtomicInteger solutionFound = new AtomicInteger();
+            List<Future<Long>> futures = new ArrayList<>(workerCount);
+            for (int i = 0; i < workerCount; i++) {
+                Worker worker = new Worker(decodedChallenge, difficulty, maxCount, i, workerCount, solutionFound);
+                futures.add(BackgroundLane.CPU.submit(worker::search));
+            }
+            long found = NO_SOLUTION;
+            try {
+                for (Future<Long> future : futures) {
+                    final long result = future.get();
+                    if (result != NO_SOLUTION && found == NO_SOLUTION) {
+                        found = result;
+                    }
+                }
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException(ex); // should never happen
+            } finally {
+                solutionFound.set(1); // Stop any remaining workers, if this thread was interrupted.
+            }
+            nonce = found;
+        }
+
+        if (nonce == NO_SOLUTION) {
+            // should never be reached
+            throw new IllegalStateException("Failed to solve puzzle challenge: " + challenge + " difficulty: " + difficulty);
+        }
+
+        final int value = (int) nonce;
+        String solution = Base64.encodeToString(new byte[]{
+                (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)
+        }, Base64.NO_WRAP);
+        LogHelper.printDebug(() -> "Found puzzle solution: " + solution + " of difficulty: " + difficulty
+                + " using: " + workerCount + " threads in: " + (System.currentTimeMillis() - timeSolveStarted) + " ms");
+        return solution;
+    }
+
+    private static class Worker {
+        private final int difficulty;
+        private final int maxCount;
+        private final int start;
+        private final int step;
+        /**
+         * Set to non zero by the first worker to find a solution.  NULL if this is the only worker.
+         */
+        private final AtomicInteger solutionFound;
+        private final byte[] buffer = new byte[20];
+        private final byte[] digest = new byte[SHA_512_LENGTH];
+
+        Worker(byte[] decodedChallenge, int difficulty, int maxCount, int start, int step, AtomicInteger solutionFound) {
+            this.difficulty = difficulty;
+            this.maxCount = maxCount;
+            this.start = start;
+            this.step = step;
+            this.solutionFound = solutionFound;
+            System.arraycopy(decodedChallenge, 0, buffer, 4, 16);
+        }
+
+        /**
+         * @return The nonce, or {@link #NO_SOLUTION} if not found or another worker found a solution first.
+         */
+        long search() {
+            MessageDigest md;
+            try {
+                md = MessageDigest.getInstance("SHA-512");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex); // should never happen
+            }
+
+            for (int i = start; i < maxCount && i >= 0; i += step) {
+                // Checking every attempt is much cheaper than computing the hash.
+                if (solutionFound != null && solutionFound.get() != 0) {
+                    return NO_SOLUTION;
+                }
+                buffer[0] = (byte) i;
+                buffer[1] = (byte) (i >> 8);
+                buffer[2] = (byte) (i >> 16);
+                buffer[3] = (byte) (i >> 24);
+                md.update(buffer, 0, buffer.length);
+                try {
+                    md.digest(digest, 0, SHA_512_LENGTH);
+                } catch (DigestException ex) {
+                    throw new IllegalStateException(ex); // should never happen
+                }
+
+                if (countLeadingZeroes(digest) >= difficulty) {
+                    if (solutionFound != null) {
+                        solutionFound.set(1);
+                    }
+                    return i;
+                }
+            }
+            return NO_SOLUTION;
+        }
+    }
+
+    /**
+     * @return Number of leading zero bits of the digest, reading 8 bytes at a time as a big endian word.
+     */
+    static int countLeadingZeroes(@NonNull byte[] digest) {
+        int zeroes = 0;
+        for (int offset = 0; offset < digest.length; offset += 8) {
+            long word = 0;
+            for (int i = 0; i < 8; i++) {
+                word = (word << 8) | (digest[offset + i] & 0xFF);
+            }
+            if (word != 0) {
+                return zeroes + Long.numberOfLeadingZeros(word);
+            }
+            zeroes += 64;
+        }
+        return zeroes;
+    }
+}
@@ -47,6 +47,33 @@ public final class RYDVoteData {
         updatePercentages();
     }
 
+    /**
+     * Restores previously fetched vote data.
+     */
+    public RYDVoteData(@NonNull String videoId, long viewCount, long likeCount, long dislikeCount) {
+        this.videoId = videoId;
+        this.viewCount = viewCount;
+        fetchedLikeCount = likeCount;
+        fetchedDislikeCount = dislikeCount;
+        this.likeCount = fetchedLikeCount;
+        this.dislikeCount = fetchedDislikeCount;
+        updatePercentages();
+    }
+
+    /**
+     * Like count as fetched from the API, without any user vote applied.
+     */
+    public long getFetchedLikeCount() {
+        return fetchedLikeCount;
+    }
+
+    /**
+     * Dislike count as fetched from the API, without any user vote applied.
+     */
+    public long getFetchedDislikeCount() {
+        return fetchedDislikeCount;
+    }
+
     /**
      * Estimated like count
      */
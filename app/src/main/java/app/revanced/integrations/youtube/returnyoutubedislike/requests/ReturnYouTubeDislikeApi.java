@@ -1,10 +1,9 @@
 package app.revanced.integrations.youtube.returnyoutubedislike.requests;
 
+import static app.revanced.integrations.youtube.returnyoutubedislike.requests.ReturnYouTubeDislikeRoutes.RYD_API_HOST;
 import static app.revanced.integrations.youtube.returnyoutubedislike.requests.ReturnYouTubeDislikeRoutes.getRYDConnectionFromRoute;
 import static app.revanced.integrations.youtube.utils.StringRef.str;
 
-import android.util.Base64;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -12,16 +11,14 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Objects;
 
+import app.revanced.integrations.youtube.requests.CircuitBreaker;
 import app.revanced.integrations.youtube.requests.Requester;
 import app.revanced.integrations.youtube.returnyoutubedislike.ReturnYouTubeDislike;
 import app.revanced.integrations.youtube.settings.SettingsEnum;
@@ -59,20 +56,14 @@ public class ReturnYouTubeDislikeApi {
     private static final int HTTP_STATUS_CODE_RATE_LIMIT = 429;
 
     /**
-     * How long to wait until API calls are resumed, if the API requested a back off.
-     * No clear guideline of how long to wait until resuming.
-     */
-    private static final int BACKOFF_RATE_LIMIT_MILLISECONDS = 10 * 60 * 1000; // 10 Minutes.
-
-    /**
-     * How long to wait until API calls are resumed, if any connection error occurs.
+     * Back off state of the RYD API, used if the API requests a rate limit or connection errors occur.
+     * <p>
+     * A server requested rate limit backs off immediately, but connection errors back off only after
+     * the shared circuit breaker threshold of consecutive failures (previously a single failure backed off
+     * for 2 minutes).  So a single dropped connection no longer hides dislikes of the next videos opened,
+     * while a RYD outage still stops API calls after a few attempts.
      */
-    private static final int BACKOFF_CONNECTION_ERROR_MILLISECONDS = 2 * 60 * 1000; // 2 Minutes.
-
-    /**
-     * If non zero, then the system time of when API calls can resume.
-     */
-    private static volatile long timeToResumeAPICalls;
+    private static final CircuitBreaker circuitBreaker = CircuitBreaker.forHost(RYD_API_HOST);
 
     /**
      * If the last API getVotes call failed for any reason (including server requested rate limit).
@@ -80,64 +71,6 @@ public class ReturnYouTubeDislikeApi {
      */
     private static volatile boolean lastApiCallFailed;
 
-    /**
-     * Number of times {@link #HTTP_STATUS_CODE_RATE_LIMIT} was requested by RYD api.
-     * Does not include network calls attempted while rate limit is in effect,
-     * and does not include rate limit imposed if a fetch fails.
-     */
-    private static volatile int numberOfRateLimitRequestsEncountered;
-
-    /**
-     * Number of network calls made in {@link #fetchVotes(String)}
-     */
-    private static volatile int fetchCallCount;
-
-    /**
-     * Number of times {@link #fetchVotes(String)} failed due to timeout or any other error.
-     * This does not include when rate limit requests are encountered.
-     */
-    private static volatile int fetchCallNumberOfFailures;
-
-    /**
-     * Total time spent waiting for {@link #fetchVotes(String)} network call to complete.
-     * Value does does not persist on app shut down.
-     */
-    private static volatile long fetchCallResponseTimeTotal;
-
-    /**
-     * Round trip network time for the most recent call to {@link #fetchVotes(String)}
-     */
-    private static volatile long fetchCallResponseTimeLast;
-    private static volatile long fetchCallResponseTimeMin;
-    private static volatile long fetchCallResponseTimeMax;
-
-    public static final int FETCH_CALL_RESPONSE_TIME_VALUE_RATE_LIMIT = -1;
-
-    /**
-     * If rate limit was hit, this returns {@link #FETCH_CALL_RESPONSE_TIME_VALUE_RATE_LIMIT}
-     */
-    public static long getFetchCallResponseTimeLast() {
-        return fetchCallResponseTimeLast;
-    }
-    public static long getFetchCallResponseTimeMin() {
-        return fetchCallResponseTimeMin;
-    }
-    public static long getFetchCallResponseTimeMax() {
-        return fetchCallResponseTimeMax;
-    }
-    public static long getFetchCallResponseTimeAverage() {
-        return fetchCallCount == 0 ? 0 : (fetchCallResponseTimeTotal / fetchCallCount);
-    }
-    public static int getFetchCallCount() {
-        return fetchCallCount;
-    }
-    public static int getFetchCallNumberOfFailures() {
-        return fetchCallNumberOfFailures;
-    }
-    public static int getNumberOfRateLimitRequestsEncountered() {
-        return numberOfRateLimitRequestsEncountered;
-    }
-
     private ReturnYouTubeDislikeApi() {
     } // utility class
 
@@ -159,23 +92,25 @@ public class ReturnYouTubeDislikeApi {
      * Should be called if RYD is turned on/off.
      */
     public static void resetRateLimits() {
-        if (lastApiCallFailed || timeToResumeAPICalls != 0) {
+        if (lastApiCallFailed || circuitBreaker.isOpen()) {
             LogHelper.printDebug(() -> "Reset rate limit");
         }
         lastApiCallFailed = false;
-        timeToResumeAPICalls = 0;
+        circuitBreaker.reset();
+    }
+
+    /**
+     * @return If API calls are currently refused, because of recent failures or a server requested back off.
+     */
+    public static boolean isBackOffInEffect() {
+        return circuitBreaker.isOpen();
     }
 
     /**
      * @return True, if api rate limit is in effect.
      */
     private static boolean checkIfRateLimitInEffect(String apiEndPointName) {
-        if (timeToResumeAPICalls == 0) {
-            return false;
-        }
-        final long now = System.currentTimeMillis();
-        if (now > timeToResumeAPICalls) {
-            timeToResumeAPICalls = 0;
+        if (circuitBreaker.allowRequest()) {
             return false;
         }
         LogHelper.printDebug(() -> "Ignoring api call " + apiEndPointName + " as rate limit is in effect");
@@ -185,7 +120,7 @@ public class ReturnYouTubeDislikeApi {
     /**
      * @return True, if a client rate limit was requested
      */
-    private static boolean checkIfRateLimitWasHit(int httpResponseCode) {
+    private static boolean checkIfRateLimitWasHit(HttpURLConnection connection, int httpResponseCode) {
         final boolean DEBUG_RATE_LIMIT = false;  // set to true, to verify rate limit works
         if (DEBUG_RATE_LIMIT) {
             final double RANDOM_RATE_LIMIT_PERCENTAGE = 0.2; // 20% chance of a triggering a rate limit
@@ -194,36 +129,29 @@ public class ReturnYouTubeDislikeApi {
                 httpResponseCode = HTTP_STATUS_CODE_RATE_LIMIT;
             }
         }
-        return httpResponseCode == HTTP_STATUS_CODE_RATE_LIMIT;
+        if (httpResponseCode == HTTP_STATUS_CODE_RATE_LIMIT) {
+            circuitBreaker.recordBackOff(connection);
+            return true;
+        }
+        return false;
     }
 
-    @SuppressWarnings("NonAtomicOperationOnVolatileField") // Don't care, fields are estimates.
-    private static void updateRateLimitAndStats(long timeNetworkCallStarted, boolean connectionError, boolean rateLimitHit) {
+    /**
+     * Request statistics are recorded to the route metrics by {@link Requester#getResponseCode}.
+     */
+    private static void updateLastApiCallStatus(boolean connectionError, boolean rateLimitHit) {
         if (connectionError && rateLimitHit) {
             throw new IllegalArgumentException();
         }
-        final long responseTimeOfFetchCall = System.currentTimeMillis() - timeNetworkCallStarted;
-        fetchCallResponseTimeTotal += responseTimeOfFetchCall;
-        fetchCallResponseTimeMin = (fetchCallResponseTimeMin == 0) ? responseTimeOfFetchCall : Math.min(responseTimeOfFetchCall, fetchCallResponseTimeMin);
-        fetchCallResponseTimeMax = Math.max(responseTimeOfFetchCall, fetchCallResponseTimeMax);
-        fetchCallCount++;
         if (connectionError) {
-            timeToResumeAPICalls = System.currentTimeMillis() + BACKOFF_CONNECTION_ERROR_MILLISECONDS;
-            fetchCallResponseTimeLast = responseTimeOfFetchCall;
-            fetchCallNumberOfFailures++;
             lastApiCallFailed = true;
         } else if (rateLimitHit) {
-            LogHelper.printDebug(() -> "API rate limit was hit. Stopping API calls for the next "
-                    + BACKOFF_RATE_LIMIT_MILLISECONDS + " seconds");
-            timeToResumeAPICalls = System.currentTimeMillis() + BACKOFF_RATE_LIMIT_MILLISECONDS;
-            numberOfRateLimitRequestsEncountered++;
-            fetchCallResponseTimeLast = FETCH_CALL_RESPONSE_TIME_VALUE_RATE_LIMIT;
+            LogHelper.printDebug(() -> "API rate limit was hit");
             if (!lastApiCallFailed && SettingsEnum.RYD_TOAST_ON_CONNECTION_ERROR.getBoolean()) {
                 ReVancedUtils.showToastLong(str("revanced_ryd_failure_client_rate_limit_requested"));
             }
             lastApiCallFailed = true;
         } else {
-            fetchCallResponseTimeLast = responseTimeOfFetchCall;
             lastApiCallFailed = false;
         }
     }
@@ -239,6 +167,7 @@ public class ReturnYouTubeDislikeApi {
             }
         }
         lastApiCallFailed = true;
+        circuitBreaker.recordFailure();
 
         LogHelper.printInfo(() -> toastMessage, ex);
     }
@@ -255,7 +184,6 @@ public class ReturnYouTubeDislikeApi {
             return null;
         }
         LogHelper.printDebug(() -> "Fetching votes for: " + videoId);
-        final long timeNetworkCallStarted = System.currentTimeMillis();
 
         try {
             HttpURLConnection connection = getRYDConnectionFromRoute(ReturnYouTubeDislikeRoutes.GET_DISLIKES, videoId);
@@ -271,19 +199,21 @@ public class ReturnYouTubeDislikeApi {
 
             randomlyWaitIfLocallyDebugging();
 
-            final int responseCode = connection.getResponseCode();
-            if (checkIfRateLimitWasHit(responseCode)) {
+            final int responseCode = Requester.getResponseCode(connection,
+                    ReturnYouTubeDislikeRoutes.GET_DISLIKES.getMetrics(), null, null);
+            if (checkIfRateLimitWasHit(connection, responseCode)) {
                 connection.disconnect(); // rate limit hit, should disconnect
-                updateRateLimitAndStats(timeNetworkCallStarted, false, true);
+                updateLastApiCallStatus(false, true);
                 return null;
             }
 
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
+                circuitBreaker.recordSuccess();
                 // do not disconnect, the same server connection will likely be used again soon
                 JSONObject json = Requester.parseJSONObject(connection);
                 try {
                     RYDVoteData votingData = new RYDVoteData(json);
-                    updateRateLimitAndStats(timeNetworkCallStarted, false, false);
+                    updateLastApiCallStatus(false, false);
                     LogHelper.printDebug(() -> "Voting data fetched: " + votingData);
                     return votingData;
                 } catch (JSONException ex) {
@@ -303,9 +233,11 @@ public class ReturnYouTubeDislikeApi {
         } catch (Exception ex) {
             // should never happen
             LogHelper.printException(() -> "Failed to fetch votes", ex);
+        } finally {
+            circuitBreaker.requestFinished();
         }
 
-        updateRateLimitAndStats(timeNetworkCallStarted, true, false);
+        updateLastApiCallStatus(true, false);
         return null;
     }
 
@@ -327,17 +259,19 @@ public class ReturnYouTubeDislikeApi {
             connection.setConnectTimeout(API_REGISTER_VOTE_TIMEOUT_MILLISECONDS);
             connection.setReadTimeout(API_REGISTER_VOTE_TIMEOUT_MILLISECONDS);
 
-            final int responseCode = connection.getResponseCode();
-            if (checkIfRateLimitWasHit(responseCode)) {
+            final int responseCode = Requester.getResponseCode(connection,
+                    ReturnYouTubeDislikeRoutes.GET_REGISTRATION.getMetrics(), null, null);
+            if (checkIfRateLimitWasHit(connection, responseCode)) {
                 connection.disconnect(); // disconnect, as no more connections will be made for a little while
                 return null;
             }
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
+                circuitBreaker.recordSuccess();
                 JSONObject json = Requester.parseJSONObject(connection);
                 String challenge = json.getString("challenge");
                 int difficulty = json.getInt("difficulty");
 
-                String solution = solvePuzzle(challenge, difficulty);
+                String solution = RYDPuzzleSolver.solve(challenge, difficulty);
                 return confirmRegistration(userId, solution);
             }
             handleConnectionError(str("revanced_ryd_failure_connection_status_code", responseCode),
@@ -349,6 +283,8 @@ public class ReturnYouTubeDislikeApi {
             handleConnectionError(str("revanced_ryd_failure_generic", "registration failed"), ex, true);
         } catch (Exception ex) {
             LogHelper.printException(() -> "Failed to register user", ex); // should never happen
+        } finally {
+            circuitBreaker.requestFinished();
         }
         return null;
     }
@@ -368,17 +304,16 @@ public class ReturnYouTubeDislikeApi {
             applyCommonPostRequestSettings(connection);
 
             String jsonInputString = "{\"solution\": \"" + solution + "\"}";
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-            final int responseCode = connection.getResponseCode();
-            if (checkIfRateLimitWasHit(responseCode)) {
+            final int responseCode = Requester.getResponseCode(connection,
+                    ReturnYouTubeDislikeRoutes.CONFIRM_REGISTRATION.getMetrics(), null,
+                    jsonInputString.getBytes(StandardCharsets.UTF_8));
+            if (checkIfRateLimitWasHit(connection, responseCode)) {
                 connection.disconnect(); // disconnect, as no more connections will be made for a little while
                 return null;
             }
             String result = null;
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
+                circuitBreaker.recordSuccess();
                 result = Requester.parseJson(connection);
                 if (result.equalsIgnoreCase("true")) {
                     LogHelper.printDebug(() -> "Registration confirmation successful");
@@ -399,6 +334,8 @@ public class ReturnYouTubeDislikeApi {
         } catch (Exception ex) {
             LogHelper.printException(() -> "Failed to confirm registration for user: " + userId
                     + "solution: " + solution, ex);
+        } finally {
+            circuitBreaker.requestFinished();
         }
         return null;
     }
@@ -410,7 +347,7 @@ public class ReturnYouTubeDislikeApi {
      * and the network call fails, this returns NULL.
      */
     @Nullable
-    private static String getUserId() {
+    private static synchronized String getUserId() {
         ReVancedUtils.verifyOffMainThread();
 
         String userId = SettingsEnum.RYD_USER_ID.getString();
@@ -443,22 +380,20 @@ public class ReturnYouTubeDislikeApi {
             applyCommonPostRequestSettings(connection);
 
             String voteJsonString = "{\"userId\": \"" + userId + "\", \"videoId\": \"" + videoId + "\", \"value\": \"" + vote.value + "\"}";
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = voteJsonString.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-
-            final int responseCode = connection.getResponseCode();
-            if (checkIfRateLimitWasHit(responseCode)) {
+            final int responseCode = Requester.getResponseCode(connection,
+                    ReturnYouTubeDislikeRoutes.SEND_VOTE.getMetrics(), null,
+                    voteJsonString.getBytes(StandardCharsets.UTF_8));
+            if (checkIfRateLimitWasHit(connection, responseCode)) {
                 connection.disconnect(); // disconnect, as no more connections will be made for a little while
                 return false;
             }
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
+                circuitBreaker.recordSuccess();
                 JSONObject json = Requester.parseJSONObject(connection);
                 String challenge = json.getString("challenge");
                 int difficulty = json.getInt("difficulty");
 
-                String solution = solvePuzzle(challenge, difficulty);
+                String solution = RYDPuzzleSolver.solve(challenge, difficulty);
                 return confirmVote(videoId, userId, solution);
             }
             LogHelper.printInfo(() -> "Failed to send vote for video: " + videoId + " vote: " + vote
@@ -473,6 +408,8 @@ public class ReturnYouTubeDislikeApi {
         } catch (Exception ex) {
             // should never happen
             LogHelper.printException(() -> "Failed to send vote for video: " + videoId + " vote: " + vote, ex);
+        } finally {
+            circuitBreaker.requestFinished();
         }
         return false;
     }
@@ -492,17 +429,16 @@ public class ReturnYouTubeDislikeApi {
             applyCommonPostRequestSettings(connection);
 
             String jsonInputString = "{\"userId\": \"" + userId + "\", \"videoId\": \"" + videoId + "\", \"solution\": \"" + solution + "\"}";
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-            final int responseCode = connection.getResponseCode();
-            if (checkIfRateLimitWasHit(responseCode)) {
+            final int responseCode = Requester.getResponseCode(connection,
+                    ReturnYouTubeDislikeRoutes.CONFIRM_VOTE.getMetrics(), null,
+                    jsonInputString.getBytes(StandardCharsets.UTF_8));
+            if (checkIfRateLimitWasHit(connection, responseCode)) {
                 connection.disconnect(); // disconnect, as no more connections will be made for a little while
                 return false;
             }
             String result = null;
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
+                circuitBreaker.recordSuccess();
                 result = Requester.parseJson(connection);
                 if (result.equalsIgnoreCase("true")) {
                     LogHelper.printDebug(() -> "Vote confirm successful for video: " + videoId);
@@ -523,6 +459,8 @@ public class ReturnYouTubeDislikeApi {
         } catch (Exception ex) {
             LogHelper.printException(() -> "Failed to confirm vote for video: " + videoId
                     + " solution: " + solution, ex); // should never happen
+        } finally {
+            circuitBreaker.requestFinished();
         }
         return false;
     }
@@ -540,40 +478,6 @@ public class ReturnYouTubeDislikeApi {
     }
 
 
-    private static String solvePuzzle(String challenge, int difficulty) {
-        final long timeSolveStarted = System.currentTimeMillis();
-        byte[] decodedChallenge = Base64.decode(challenge, Base64.NO_WRAP);
-
-        byte[] buffer = new byte[20];
-        System.arraycopy(decodedChallenge, 0, buffer, 4, 16);
-
-        MessageDigest md;
-        try {
-            md = MessageDigest.getInstance("SHA-512");
-        } catch (NoSuchAlgorithmException ex) {
-            throw new IllegalStateException(ex); // should never happen
-        }
-
-        final int maxCount = (int) (Math.pow(2, difficulty + 1) * 5);
-        for (int i = 0; i < maxCount; i++) {
-            buffer[0] = (byte) i;
-            buffer[1] = (byte) (i >> 8);
-            buffer[2] = (byte) (i >> 16);
-            buffer[3] = (byte) (i >> 24);
-            byte[] messageDigest = md.digest(buffer);
-
-            if (countLeadingZeroes(messageDigest) >= difficulty) {
-                String solution = Base64.encodeToString(new byte[]{buffer[0], buffer[1], buffer[2], buffer[3]}, Base64.NO_WRAP);
-                LogHelper.printDebug(() -> "Found puzzle solution: " + solution + " of difficulty: " + difficulty
-                        + " in: " + (System.currentTimeMillis() - timeSolveStarted) + " ms");
-                return solution;
-            }
-        }
-
-        // should never be reached
-        throw new IllegalStateException("Failed to solve puzzle challenge: " + challenge + " difficulty: " + difficulty);
-    }
-
     // https://stackoverflow.com/a/157202
     private static String randomString(int len) {
         String AB = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
@@ -584,27 +488,4 @@ public class ReturnYouTubeDislikeApi {
             sb.append(AB.charAt(rnd.nextInt(AB.length())));
         return sb.toString();
     }
-
-    private static int countLeadingZeroes(byte[] uInt8View) {
-        int zeroes = 0;
-        for (byte b : uInt8View) {
-            int value = b & 0xFF;
-            if (value == 0) {
-                zeroes += 8;
-            } else {
-                int count = 1;
-                if (value >>> 4 == 0) {
-                    count += 4;
-                    value <<= 4;
-                }
-                if (value >>> 6 == 0) {
-                    count += 2;
-                    value <<= 2;
-                }
-                zeroes += count - (value >>> 7);
-                break;
-            }
-        }
-        return zeroes;
-    }
 }
@@ -9,8 +9,9 @@ import java.net.HttpURLConnection;
 import app.revanced.integrations.youtube.requests.Requester;
 import app.revanced.integrations.youtube.requests.Route;
 
-class ReturnYouTubeDislikeRoutes {
-    static final String RYD_API_URL = "https://returnyoutubedislikeapi.com/";
+public class ReturnYouTubeDislikeRoutes {
+    static final String RYD_API_HOST = "returnyoutubedislikeapi.com";
+    public static final String RYD_API_URL = "https://" + RYD_API_HOST + "/";
 
     static final Route SEND_VOTE = new Route(POST, "interact/vote");
     static final Route CONFIRM_VOTE = new Route(POST, "interact/confirmVote");
@@ -18,10 +19,24 @@ class ReturnYouTubeDislikeRoutes {
     static final Route GET_REGISTRATION = new Route(GET, "puzzle/registration?userId={user_id}");
     static final Route CONFIRM_REGISTRATION = new Route(POST, "puzzle/registration?userId={user_id}");
 
+    /**
+     * Url all routes are relative to.  Only changed by tests, to use a local server.
+     */
+    private static volatile String apiUrl = RYD_API_URL;
+
     private ReturnYouTubeDislikeRoutes() {
     }
 
     static HttpURLConnection getRYDConnectionFromRoute(Route route, String... params) throws IOException {
-        return Requester.getConnectionFromRoute(RYD_API_URL, route, params);
+        return Requester.getConnectionFromRoute(apiUrl, route, params);
+    }
+
+    /**
+     * For tests only.
+     *
+     * @param url Api url, ending with a slash.
+     */
+    static void setApiUrl(String url) {
+        apiUrl = url;
     }
 }
\ No newline at end of file
@@ -29,6 +29,7 @@ import java.util.Objects;
 
 import app.revanced.integrations.youtube.settingsmenu.ReVancedSettingsFragment;
 import app.revanced.integrations.youtube.sponsorblock.SponsorBlockSettings;
+import app.revanced.integrations.youtube.utils.EventBus;
 import app.revanced.integrations.youtube.utils.LogHelper;
 import app.revanced.integrations.youtube.utils.ReVancedUtils;
 
@@ -54,6 +55,7 @@ public enum SettingsEnum {
             "https://dearrow-thumb.ajay.app/api/v1/getThumbnail", true, new DeArrowAvailability()),
     ALT_THUMBNAIL_DEARROW_CONNECTION_TOAST("revanced_alt_thumbnail_dearrow_connection_toast", BOOLEAN, FALSE, new DeArrowAvailability()),
     ALT_THUMBNAIL_STILLS_FAST("revanced_alt_thumbnail_stills_fast", BOOLEAN, FALSE, new StillImagesAvailability()),
+    ALT_THUMBNAIL_STILLS_NON_BLOCKING("revanced_alt_thumbnail_stills_non_blocking", BOOLEAN, FALSE, new StillImagesAvailability()),
     ALT_THUMBNAIL_STILLS_TIME("revanced_alt_thumbnail_stills_time", INTEGER, ThumbnailStillTime.MIDDLE.altImageNumber, new StillImagesAvailability()),
 
     ALT_THUMBNAIL_HOME("revanced_alt_thumbnail_home", INTEGER, 0),
@@ -246,6 +248,7 @@ public enum SettingsEnum {
     DISABLE_UPDATE_SCREEN("revanced_disable_update_screen", BOOLEAN, TRUE, true),
     ENABLE_DEBUG_LOGGING("revanced_enable_debug_logging", BOOLEAN, FALSE),
     ENABLE_DEBUG_BUFFER_LOGGING("revanced_enable_debug_buffer_logging", BOOLEAN, FALSE),
+    ENABLE_DEBUG_STALL_WATCHDOG("revanced_enable_debug_stall_watchdog", BOOLEAN, FALSE, true),
     ENABLE_EXTERNAL_BROWSER("revanced_enable_external_browser", BOOLEAN, TRUE, true),
     ENABLE_LANGUAGE_SWITCH("revanced_enable_language_switch", BOOLEAN, TRUE, true),
     ENABLE_NEW_SPLASH_ANIMATION("revanced_enable_new_splash_animation", BOOLEAN, TRUE, true),
@@ -260,6 +263,7 @@ public enum SettingsEnum {
     ENABLE_TABLET_LAYOUT("revanced_enable_tablet_layout", BOOLEAN, FALSE, true),
     ENABLE_VIDEO_CODEC("revanced_enable_video_codec", BOOLEAN, FALSE, true),
     ENABLE_VIDEO_CODEC_TYPE("revanced_enable_video_codec_type", BOOLEAN, FALSE, true),
+    PREWARM_CONNECTIONS("revanced_prewarm_connections", BOOLEAN, FALSE, true),
     SPOOF_APP_VERSION("revanced_spoof_app_version", BOOLEAN, FALSE, true),
     SPOOF_APP_VERSION_TARGET("revanced_spoof_app_version_target", STRING, "18.17.43", true,
             parents(SPOOF_APP_VERSION)),
@@ -445,6 +449,7 @@ public enum SettingsEnum {
     RYD_DISLIKE_PERCENTAGE("ryd_dislike_percentage", BOOLEAN, FALSE, RETURN_YOUTUBE_DISLIKE, parents(RYD_ENABLED)),
     RYD_COMPACT_LAYOUT("ryd_compact_layout", BOOLEAN, FALSE, RETURN_YOUTUBE_DISLIKE, parents(RYD_ENABLED)),
     RYD_TOAST_ON_CONNECTION_ERROR("ryd_toast_on_connection_error", BOOLEAN, TRUE, RETURN_YOUTUBE_DISLIKE, parents(RYD_ENABLED)),
+    RYD_CACHE_DURATION("ryd_cache_duration", INTEGER, 24, RETURN_YOUTUBE_DISLIKE, parents(RYD_ENABLED)),
 
 
     // SponsorBlock
@@ -464,6 +469,8 @@ public enum SettingsEnum {
     SB_SEGMENT_MIN_DURATION("sb_min_segment_duration", FLOAT, 0F, SPONSOR_BLOCK, parents(SB_ENABLED)),
     SB_VIDEO_LENGTH_WITHOUT_SEGMENTS("sb_video_length_without_segments", BOOLEAN, FALSE, SPONSOR_BLOCK, parents(SB_ENABLED)),
     SB_API_URL("sb_api_url", STRING, "https://sponsor.ajay.app", SPONSOR_BLOCK),
+    SB_SEGMENT_CACHE_SIZE("sb_segment_cache_size", INTEGER, 256, SPONSOR_BLOCK, parents(SB_ENABLED)),
+    SB_HASH_PREFIX_LOOKUPS("sb_hash_prefix_lookups", BOOLEAN, FALSE, SPONSOR_BLOCK, parents(SB_ENABLED)),
     SB_USER_IS_VIP("sb_user_is_vip", BOOLEAN, FALSE, SPONSOR_BLOCK),
     // SB settings not exported
     SB_LAST_VIP_CHECK("sb_last_vip_check", LONG, 0L, SPONSOR_BLOCK),
@@ -669,6 +676,7 @@ public enum SettingsEnum {
             default:
                 throw new IllegalStateException(name());
         }
+        EventBus.SETTING_CHANGED.post(this);
     }
 
     /**
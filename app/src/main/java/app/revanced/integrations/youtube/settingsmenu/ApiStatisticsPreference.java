@@ -0,0 +1,62 @@
+package app.revanced.integrations.youtube.settingsmenu;
+
+import static app.revanced.integrations.youtube.utils.StringRef.str;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.preference.Preference;
+import android.util.AttributeSet;
+
+import app.revanced.integrations.youtube.patches.alternativethumbnails.ThumbnailVerifier;
+import app.revanced.integrations.youtube.requests.RouteMetrics;
+import app.revanced.integrations.youtube.returnyoutubedislike.ReturnYouTubeDislike;
+import app.revanced.integrations.youtube.utils.BackgroundLane;
+import app.revanced.integrations.youtube.utils.EventBus;
+import app.revanced.integrations.youtube.utils.MainThreadWatchdog;
+import app.revanced.integrations.youtube.utils.ReVancedUtils;
+import app.revanced.integrations.youtube.utils.VideoTaskScope;
+
+/**
+ * Shows the request statistics of all integration API endpoints, the background thread lanes,
+ * and the main thread stall report if the stall watchdog is enabled.  All statistics can be copied.
+ * @noinspection ALL
+ */
+public class ApiStatisticsPreference extends Preference {
+    {
+        setTitle(str("revanced_api_statistics_title"));
+        setSummary(str("revanced_api_statistics_summary"));
+        setOnPreferenceClickListener(pref -> {
+            String summary = RouteMetrics.getSummaryOfAllRoutes();
+            String stallReport = MainThreadWatchdog.getReport();
+            String message = (summary.isEmpty() ? str("revanced_api_statistics_empty") : summary)
+                    + "\n\n" + BackgroundLane.getSummaryOfAllLanes()
+                    + "\n\n" + VideoTaskScope.getSummary()
+                    + "\n\n" + ReVancedUtils.getMainThreadKeyedSummary()
+                    + "\n\n" + EventBus.getSummaryOfAllEvents()
+                    + "\n\n" + ThumbnailVerifier.getSummary()
+                    + "\n\n" + ReturnYouTubeDislike.getVoteOutboxSummary()
+                    + (stallReport.isEmpty() ? "" : "\n\n" + stallReport);
+            new AlertDialog.Builder(pref.getContext())
+                    .setTitle(str("revanced_api_statistics_title"))
+                    .setMessage(message)
+                    .setNeutralButton(str("revanced_extended_settings_import_copy"),
+                            (dialog, which) -> ReVancedUtils.setClipboard(message))
+                    .setPositiveButton(android.R.string.ok, null)
+                    .show();
+            return true;
+        });
+    }
+
+    public ApiStatisticsPreference(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+    }
+    public ApiStatisticsPreference(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+    public ApiStatisticsPreference(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+    public ApiStatisticsPreference(Context context) {
+        super(context);
+    }
+}
@@ -7,11 +7,13 @@ import android.app.Activity;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.preference.EditTextPreference;
 import android.preference.Preference;
 import android.preference.PreferenceCategory;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceScreen;
 import android.preference.SwitchPreference;
+import android.text.InputType;
 
 import app.revanced.integrations.youtube.patches.utils.ReturnYouTubeDislikePatch;
 import app.revanced.integrations.youtube.returnyoutubedislike.ReturnYouTubeDislike;
@@ -40,11 +42,17 @@ public class ReturnYouTubeDislikeSettingsFragment extends PreferenceFragment {
      */
     private SwitchPreference toastOnRYDNotAvailable;
 
+    /**
+     * Number of hours fetched votes are kept on disk.
+     */
+    private EditTextPreference cacheDurationPreference;
+
     private void updateUIState() {
         shortsPreference.setEnabled(SettingsEnum.RYD_SHORTS.isAvailable());
         percentagePreference.setEnabled(SettingsEnum.RYD_DISLIKE_PERCENTAGE.isAvailable());
         compactLayoutPreference.setEnabled(SettingsEnum.RYD_COMPACT_LAYOUT.isAvailable());
         toastOnRYDNotAvailable.setEnabled(SettingsEnum.RYD_TOAST_ON_CONNECTION_ERROR.isAvailable());
+        cacheDurationPreference.setEnabled(SettingsEnum.RYD_CACHE_DURATION.isAvailable());
     }
 
     @Override
@@ -125,6 +133,18 @@ public class ReturnYouTubeDislikeSettingsFragment extends PreferenceFragment {
         });
         preferenceScreen.addPreference(toastOnRYDNotAvailable);
 
+        cacheDurationPreference = new EditTextPreference(activity);
+        cacheDurationPreference.setText(SettingsEnum.RYD_CACHE_DURATION.getObjectValue().toString());
+        cacheDurationPreference.setTitle(str("revanced_ryd_cache_duration_title"));
+        cacheDurationPreference.setSummary(str("revanced_ryd_cache_duration_summary"));
+        cacheDurationPreference.getEditText().setInputType(InputType.TYPE_CLASS_NUMBER);
+        cacheDurationPreference.setOnPreferenceChangeListener((pref, newValue) -> {
+            SettingsEnum.RYD_CACHE_DURATION.saveValue(Integer.parseInt(newValue.toString()));
+            updateUIState();
+            return true;
+        });
+        preferenceScreen.addPreference(cacheDurationPreference);
+
         updateUIState();
 
 
@@ -146,5 +166,9 @@ public class ReturnYouTubeDislikeSettingsFragment extends PreferenceFragment {
             return false;
         });
         preferenceScreen.addPreference(aboutWebsitePreference);
+
+        if (SettingsEnum.ENABLE_DEBUG_LOGGING.getBoolean()) {
+            aboutCategory.addPreference(new ApiStatisticsPreference(activity));
+        }
     }
 }
@@ -53,8 +53,10 @@ public class SponsorBlockSettingsFragment extends PreferenceFragment {
     private SwitchPreference trackSkips;
     private SwitchPreference showTimeWithoutSegments;
     private SwitchPreference toastOnConnectionError;
+    private SwitchPreference hashPrefixLookups;
     private EditTextPreference newSegmentStep;
     private EditTextPreference minSegmentDuration;
+    private EditTextPreference segmentCacheSize;
     private EditTextPreference privateUserId;
     private EditTextPreference importExport;
     private Preference apiUrl;
@@ -98,12 +100,18 @@ public class SponsorBlockSettingsFragment extends PreferenceFragment {
             showTimeWithoutSegments.setChecked(SettingsEnum.SB_VIDEO_LENGTH_WITHOUT_SEGMENTS.getBoolean());
             showTimeWithoutSegments.setEnabled(enabled);
 
+            hashPrefixLookups.setChecked(SettingsEnum.SB_HASH_PREFIX_LOOKUPS.getBoolean());
+            hashPrefixLookups.setEnabled(enabled);
+
             newSegmentStep.setText(SettingsEnum.SB_CREATE_NEW_SEGMENT_STEP.getObjectValue().toString());
             newSegmentStep.setEnabled(enabled);
 
             minSegmentDuration.setText(SettingsEnum.SB_SEGMENT_MIN_DURATION.getObjectValue().toString());
             minSegmentDuration.setEnabled(enabled);
 
+            segmentCacheSize.setText(SettingsEnum.SB_SEGMENT_CACHE_SIZE.getObjectValue().toString());
+            segmentCacheSize.setEnabled(enabled);
+
             privateUserId.setText(SettingsEnum.SB_PRIVATE_USER_ID.getString());
             privateUserId.setEnabled(enabled);
 
@@ -330,6 +338,17 @@ public class SponsorBlockSettingsFragment extends PreferenceFragment {
         });
         category.addPreference(trackSkips);
 
+        hashPrefixLookups = new SwitchPreference(context);
+        hashPrefixLookups.setTitle(str("sb_hash_prefix_lookups_title"));
+        hashPrefixLookups.setSummaryOn(str("sb_hash_prefix_lookups_summary_on"));
+        hashPrefixLookups.setSummaryOff(str("sb_hash_prefix_lookups_summary_off"));
+        hashPrefixLookups.setOnPreferenceChangeListener((preference1, newValue) -> {
+            SettingsEnum.SB_HASH_PREFIX_LOOKUPS.saveValue(newValue);
+            updateUI();
+            return true;
+        });
+        category.addPreference(hashPrefixLookups);
+
         minSegmentDuration = new EditTextPreference(context);
         minSegmentDuration.setTitle(str("sb_general_min_duration"));
         minSegmentDuration.setSummary(str("sb_general_min_duration_sum"));
@@ -340,6 +359,16 @@ public class SponsorBlockSettingsFragment extends PreferenceFragment {
         });
         category.addPreference(minSegmentDuration);
 
+        segmentCacheSize = new EditTextPreference(context);
+        segmentCacheSize.setTitle(str("sb_general_segment_cache_size"));
+        segmentCacheSize.setSummary(str("sb_general_segment_cache_size_sum"));
+        segmentCacheSize.getEditText().setInputType(InputType.TYPE_CLASS_NUMBER);
+        segmentCacheSize.setOnPreferenceChangeListener((preference1, newValue) -> {
+            SettingsEnum.SB_SEGMENT_CACHE_SIZE.saveValue(Integer.parseInt(newValue.toString()));
+            return true;
+        });
+        category.addPreference(segmentCacheSize);
+
         privateUserId = new EditTextPreference(context);
         privateUserId.setTitle(str("sb_general_uuid"));
         privateUserId.setSummary(str("sb_general_uuid_sum"));
@@ -445,6 +474,10 @@ public class SponsorBlockSettingsFragment extends PreferenceFragment {
                 return false;
             });
         }
+
+        if (SettingsEnum.ENABLE_DEBUG_LOGGING.getBoolean()) {
+            category.addPreference(new ApiStatisticsPreference(context));
+        }
     }
 
     private void openGuidelines() {
@@ -5,131 +5,201 @@ import static app.revanced.integrations.youtube.shared.NavigationBar.NavigationB
 import android.app.Activity;
 import android.view.View;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import app.revanced.integrations.youtube.utils.EventBus;
 import app.revanced.integrations.youtube.utils.LogHelper;
-import app.revanced.integrations.youtube.utils.ReVancedUtils;
 import app.revanced.integrations.youtube.settings.SettingsEnum;
 
-import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("unused")
 public final class NavigationBar {
 
     //
-    // Search bar
+    // Navigation state
     //
-    private static volatile WeakReference<View> searchBarResultsRef = new WeakReference<>(null);
 
     /**
-     * Injection point.
+     * Immutable snapshot of the navigation state.
+     * <p>
+     * Snapshots are published by the main thread, and can be read from any thread without locking.
+     * Code that checks more than one value should read a single snapshot, so all values are consistent.
+     * <p>
+     * YT calls it's back button handlers out of order, and litho starts filtering before the
+     * navigation bar is updated.  After the back button is pressed, the snapshot is marked as
+     * {@link #navigationButtonPending} and readers use the last known tab.  No reader waits for the
+     * tab selection.  Filters keep no decision cache, so a component filtered using the last known tab
+     * is filtered again with the newer snapshot the next time litho creates it.
      */
-    public static void searchBarResultsViewLoaded(View searchbarResults) {
-        searchBarResultsRef = new WeakReference<>(searchbarResults);
-    }
+    public static final class NavigationState {
+        /**
+         * Increases by one each time a new snapshot is published.
+         */
+        public final long version;
+        /**
+         * The selected navigation tab, or NULL if the tab is unknown.
+         * If the user is in the upload video UI, this is the tab that is still visually selected on screen.
+         */
+        @Nullable
+        public final NavigationButton selectedNavigationButton;
+        /**
+         * If the search bar is on screen.  This includes if the player
+         * is on screen and the search results are behind the player (and not visible).
+         */
+        public final boolean searchBarActive;
+        @NonNull
+        public final PlayerType playerType;
+        /**
+         * If the back button was pressed and the navigation bar has not yet updated.
+         * If the back button does not change tabs, this stays true until the next tab is selected.
+         */
+        public final boolean navigationButtonPending;
+
+        private NavigationState(long version, @Nullable NavigationButton selectedNavigationButton,
+                                boolean searchBarActive, @NonNull PlayerType playerType,
+                                boolean navigationButtonPending) {
+            this.version = version;
+            this.selectedNavigationButton = selectedNavigationButton;
+            this.searchBarActive = searchBarActive;
+            this.playerType = playerType;
+            this.navigationButtonPending = navigationButtonPending;
+        }
 
-    /**
-     * @return If the search bar is on screen.  This includes if the player
-     * is on screen and the search results are behind the player (and not visible).
-     * Detecting the search is covered by the player can be done by checking {@link PlayerType#isMaximizedOrFullscreen()}.
-     */
-    public static boolean isSearchBarActive() {
-        View searchbarResults = searchBarResultsRef.get();
-        return searchbarResults != null && searchbarResults.getParent() != null;
+        @NonNull
+        @Override
+        public String toString() {
+            return "NavigationState{version=" + version + ", button=" + selectedNavigationButton
+                    + ", search=" + searchBarActive + ", player=" + playerType
+                    + ", pending=" + navigationButtonPending + "}";
+        }
     }
 
-    //
-    // Navigation bar buttons
-    //
-
     /**
-     * How long to wait for the set nav button latch to be released.  Maximum wait time must
-     * be as small as possible while still allowing enough time for the nav bar to update.
-     * <p>
-     * YT calls it's back button handlers out of order,
-     * and litho starts filtering before the navigation bar is updated.
-     * <p>
-     * Fixing this situation and not needlessly waiting requires somehow
-     * detecting if a back button key-press will cause a tab change.
-     * <p>
-     * Typically, after pressing the back button, the time between the first litho event and
-     * when the nav button is updated is about 10-20ms. Using 50-100ms here should be enough time
-     * and not noticeable, since YT typically takes 100-200ms (or more) to update the view anyway.
-     * <p>
-     * This issue can also be avoided on a patch by patch basis, by avoiding calls to
-     * {@link NavigationButton#getSelectedNavigationButton()} unless absolutely necessary.
+     * On app startup litho can start before the navigation bar is initialized,
+     * so the first snapshot has an unknown tab that is pending.
      */
-    private static final long LATCH_AWAIT_TIMEOUT_MILLISECONDS = 75;
+    @NonNull
+    private static volatile NavigationState state = new NavigationState(0, null, false, PlayerType.getCurrent(), true);
 
     /**
-     * Used as a workaround to fix the issue of YT calling back button handlers out of order.
-     * Used to hold calls to {@link NavigationButton#getSelectedNavigationButton()}
-     * until the current navigation button can be determined.
-     * <p>
-     * Only used when the hardware back button is pressed.
+     * Subscribes to player type changes.  Called once during initialization.
      */
-    @Nullable
-    private static volatile CountDownLatch navButtonLatch;
+    public static void subscribeToEvents() {
+        EventBus.PLAYER_TYPE_CHANGED.subscribe("Navigation state", EventBus.POSTING_THREAD,
+                NavigationBar::publishPlayerType);
+        publishPlayerType(PlayerType.getCurrent());
+    }
 
     /**
-     * Map of nav button layout views to Enum type.
-     * No synchronization is needed, and this is always accessed from the main thread.
+     * @return The current navigation state.  Never blocks.
+     * If {@link NavigationState#navigationButtonPending}, the last known tab is used.
      */
-    private static final Map<View, NavigationButton> viewToButtonMap = new WeakHashMap<>();
+    @NonNull
+    public static NavigationState getState() {
+        return state;
+    }
 
-    static {
-        // On app startup litho can start before the navigation bar is initialized.
-        // Force it to wait until the nav bar is updated.
-        createNavButtonLatch();
+    private static synchronized void publish(@Nullable NavigationButton selectedNavigationButton,
+                                             boolean searchBarActive, @NonNull PlayerType playerType,
+                                             boolean navigationButtonPending) {
+        NavigationState previous = state;
+        if (previous.selectedNavigationButton == selectedNavigationButton
+                && previous.searchBarActive == searchBarActive
+                && previous.playerType == playerType
+                && previous.navigationButtonPending == navigationButtonPending) {
+            return;
+        }
+        NavigationState newState = new NavigationState(previous.version + 1, selectedNavigationButton,
+                searchBarActive, playerType, navigationButtonPending);
+        state = newState;
+        LogHelper.printDebug(() -> "Navigation state changed: " + newState);
     }
 
-    private static void createNavButtonLatch() {
-        navButtonLatch = new CountDownLatch(1);
+    private static synchronized void publishSelectedNavigationButton(@Nullable NavigationButton button) {
+        NavigationState current = state;
+        publish(button, current.searchBarActive, current.playerType, false);
     }
 
-    private static void releaseNavButtonLatch() {
-        CountDownLatch latch = navButtonLatch;
-        if (latch != null) {
-            navButtonLatch = null;
-            latch.countDown();
-        }
+    private static synchronized void publishSearchBarActive(boolean searchBarActive) {
+        NavigationState current = state;
+        publish(current.selectedNavigationButton, searchBarActive, current.playerType, current.navigationButtonPending);
     }
 
-    private static void waitForNavButtonLatchIfNeeded() {
-        CountDownLatch latch = navButtonLatch;
-        if (latch == null) {
-            return;
+    private static synchronized void publishPlayerType(@NonNull PlayerType playerType) {
+        NavigationState current = state;
+        publish(current.selectedNavigationButton, current.searchBarActive, playerType, current.navigationButtonPending);
+    }
+
+    private static synchronized void publishNavigationButtonPending() {
+        NavigationState current = state;
+        publish(current.selectedNavigationButton, current.searchBarActive, current.playerType, true);
+    }
+
+    //
+    // Search bar
+    //
+
+    /**
+     * Search results views that are attached to the window.  More than one can be attached,
+     * such as when a search is made from the results of another search.
+     * Always accessed from the main thread.
+     */
+    private static final Set<View> attachedSearchBarResults = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private static final View.OnAttachStateChangeListener searchBarAttachListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(@NonNull View view) {
+            setSearchBarResultsAttached(view, true);
         }
 
-        if (ReVancedUtils.isCurrentlyOnMainThread()) {
-            // The latch is released from the main thread, and waiting from the main thread will always time out.
-            // This situation has only been observed when navigating out of a submenu and not changing tabs.
-            // and for that use case the nav bar does not change, so it's safe to return here.
-            LogHelper.printDebug(() -> "Cannot block main thread waiting for nav button. Using last known navbar button status.");
-            return;
+        @Override
+        public void onViewDetachedFromWindow(@NonNull View view) {
+            setSearchBarResultsAttached(view, false);
         }
+    };
 
-        try {
-            LogHelper.printDebug(() -> "Latch wait started");
-            if (latch.await(LATCH_AWAIT_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS)) {
-                // Back button changed the navigation tab.
-                LogHelper.printDebug(() -> "Latch wait complete");
-                return;
-            }
+    private static void setSearchBarResultsAttached(@NonNull View searchbarResults, boolean attached) {
+        if (attached) {
+            attachedSearchBarResults.add(searchbarResults);
+        } else {
+            attachedSearchBarResults.remove(searchbarResults);
+        }
+        publishSearchBarActive(!attachedSearchBarResults.isEmpty());
+    }
 
-            // Timeout occurred, and a normal event when pressing the physical back button
-            // does not change navigation tabs.
-            releaseNavButtonLatch(); // Prevent other threads from waiting for no reason.
-            LogHelper.printDebug(() -> "Latch wait timed out");
+    /**
+     * Injection point.
+     */
+    public static void searchBarResultsViewLoaded(View searchbarResults) {
+        // No way to check if the listener is already attached, so remove and add again.
+        searchbarResults.removeOnAttachStateChangeListener(searchBarAttachListener);
+        searchbarResults.addOnAttachStateChangeListener(searchBarAttachListener);
+        setSearchBarResultsAttached(searchbarResults, searchbarResults.isAttachedToWindow());
+    }
 
-        } catch (InterruptedException ex) {
-            LogHelper.printException(() -> "Latch wait interrupted failure", ex); // Will never happen.
-        }
+    /**
+     * @return If the search bar is on screen.  This includes if the player
+     * is on screen and the search results are behind the player (and not visible).
+     * Detecting the search is covered by the player can be done by checking {@link PlayerType#isMaximizedOrFullscreen()}.
+     */
+    public static boolean isSearchBarActive() {
+        return state.searchBarActive;
     }
 
+    //
+    // Navigation bar buttons
+    //
+
+    /**
+     * Map of nav button layout views to Enum type.
+     * No synchronization is needed, and this is always accessed from the main thread.
+     */
+    private static final Map<View, NavigationButton> viewToButtonMap = new WeakHashMap<>();
+
     /**
      * Last YT navigation enum loaded.  Not necessarily the active navigation tab.
      * Always accessed from the main thread.
@@ -204,15 +274,12 @@ public final class NavigationBar {
                     LogHelper.printException(() -> "Unknown navigation view selected: " + navButtonImageView);
                 }
 
-                NavigationButton.selectedNavigationButton = null;
+                publishSelectedNavigationButton(null);
                 return;
             }
 
-            NavigationButton.selectedNavigationButton = button;
             LogHelper.printDebug(() -> "Changed to navigation button: " + button);
-
-            // Release any threads waiting for the selected nav button.
-            releaseNavButtonLatch();
+            publishSelectedNavigationButton(button);
         } catch (Exception ex) {
             LogHelper.printException(() -> "navigationTabSelected failure", ex);
         }
@@ -223,7 +290,7 @@ public final class NavigationBar {
      */
     public static void onBackPressed(Activity activity) {
         LogHelper.printDebug(() -> "Back button pressed");
-        createNavButtonLatch();
+        publishNavigationButtonPending();
     }
 
     /**
@@ -273,9 +340,6 @@ public final class NavigationBar {
         // The hooked YT code does not use an enum, and a dummy name is used here.
         LIBRARY_YOU("YOU_LIBRARY_DUMMY_PLACEHOLDER_NAME");
 
-        @Nullable
-        private static volatile NavigationButton selectedNavigationButton;
-
         /**
          * This will return null only if the currently selected tab is unknown.
          * This scenario will only happen if the UI has different tabs due to an A/B user test
@@ -283,9 +347,8 @@ public final class NavigationBar {
          * <p>
          * All code calling this method should handle a null return value.
          * <p>
-         * <b>Due to issues with how YT processes physical back button events,
-         * this patch uses workarounds that can cause this method to take up to 75ms
-         * if the device back button was recently pressed.</b>
+         * If the device back button was just pressed, this is the last known tab
+         * (see {@link NavigationState#navigationButtonPending}).
          *
          * @return The active navigation tab.
          * If the user is in the upload video UI, this returns tab that is still visually
@@ -293,8 +356,7 @@ public final class NavigationBar {
          */
         @Nullable
         public static NavigationButton getSelectedNavigationButton() {
-            waitForNavButtonLatchIfNeeded();
-            return selectedNavigationButton;
+            return getState().selectedNavigationButton;
         }
 
         /**
@@ -1,6 +1,7 @@
 package app.revanced.integrations.youtube.shared
 
 import app.revanced.integrations.youtube.utils.Event
+import app.revanced.integrations.youtube.utils.EventBus
 import app.revanced.integrations.youtube.utils.LogHelper
 
 /**
@@ -69,6 +70,7 @@ enum class PlayerType {
             private set(value) {
                 currentPlayerType = value
                 onChange(currentPlayerType)
+                EventBus.PLAYER_TYPE_CHANGED.post(currentPlayerType)
             }
 
         @Volatile // value is read/write from different threads
@@ -8,6 +8,7 @@ import android.graphics.Rect;
 import android.text.TextUtils;
 import android.util.TypedValue;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -17,6 +18,8 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import app.revanced.integrations.youtube.patches.video.VideoInformation;
 import app.revanced.integrations.youtube.settings.SettingsEnum;
@@ -27,9 +30,12 @@ import app.revanced.integrations.youtube.sponsorblock.objects.SegmentCategory;
 import app.revanced.integrations.youtube.sponsorblock.objects.SponsorSegment;
 import app.revanced.integrations.youtube.sponsorblock.requests.SBRequester;
 import app.revanced.integrations.youtube.sponsorblock.ui.SponsorBlockViewController;
+import app.revanced.integrations.youtube.utils.BackgroundLane;
+import app.revanced.integrations.youtube.utils.EventBus;
 import app.revanced.integrations.youtube.utils.LogHelper;
 import app.revanced.integrations.youtube.utils.ReVancedUtils;
 import app.revanced.integrations.youtube.utils.VideoHelpers;
+import app.revanced.integrations.youtube.utils.VideoTaskScope;
 import app.revanced.integrations.youtube.whitelist.Whitelist;
 
 /**
@@ -53,6 +59,13 @@ public class SegmentPlaybackController {
      * Value is independent of device dpi.
      */
     private static final int HIGHLIGHT_SEGMENT_DRAW_BAR_WIDTH = 7;
+
+    /**
+     * Main thread task keys of {@link #scheduledHideSegment} and {@link #scheduledUpcomingSegment}.
+     * Scheduling a new segment replaces the previously scheduled task.
+     */
+    private static final String SCHEDULED_HIDE_KEY = "SegmentPlaybackController.scheduledHide";
+    private static final String SCHEDULED_SKIP_KEY = "SegmentPlaybackController.scheduledSkip";
     /**
      * Used to prevent re-showing a previously hidden skip button when exiting an embedded segment.
      * Only used when {@link SettingsEnum#SB_AUTO_HIDE_SKIP_BUTTON} is enabled.
@@ -112,6 +125,16 @@ public class SegmentPlaybackController {
     private static SponsorSegment toastSegmentSkipped;
     private static int highlightSegmentTimeBarScreenWidth = -1; // actual pixel width to use
 
+    /**
+     * Video id of segments fetched from the player response hook, before the video starts playing.
+     */
+    @GuardedBy("SegmentPlaybackController.class")
+    @Nullable
+    private static String prefetchVideoId;
+    @GuardedBy("SegmentPlaybackController.class")
+    @Nullable
+    private static Future<SponsorSegment[]> prefetchFuture;
+
     @Nullable
     static SponsorSegment[] getSegments() {
         return segments;
@@ -164,6 +187,13 @@ public class SegmentPlaybackController {
         return segments != null && segments.length > 0;
     }
 
+    private static void clearScheduledSegments() {
+        scheduledUpcomingSegment = null;
+        scheduledHideSegment = null;
+        ReVancedUtils.cancelOnMainThreadKeyed(SCHEDULED_SKIP_KEY);
+        ReVancedUtils.cancelOnMainThreadKeyed(SCHEDULED_HIDE_KEY);
+    }
+
     /**
      * Clears all downloaded data.
      */
@@ -174,8 +204,7 @@ public class SegmentPlaybackController {
         highlightSegmentInitialShowEndTime = 0;
         timeWithoutSegments = null;
         segmentCurrentlyPlaying = null;
-        scheduledUpcomingSegment = null;
-        scheduledHideSegment = null;
+        clearScheduledSegments();
         skipSegmentButtonEndTime = 0;
         toastSegmentSkipped = null;
         toastNumberOfSegmentsSkipped = 0;
@@ -226,7 +255,17 @@ public class SegmentPlaybackController {
             currentVideoId = videoId;
             LogHelper.printDebug(() -> "setCurrentVideoId: " + videoId);
 
-            ReVancedUtils.runOnBackgroundThread(() -> {
+            Future<SponsorSegment[]> prefetch = takePrefetch(videoId, true);
+            if (prefetch != null) {
+                // Segments are already available, so use them now before the first video time update.
+                if (!Whitelist.isChannelSBWhitelisted()) {
+                    LogHelper.printDebug(() -> "Using completed prefetch for video: " + videoId);
+                    setDownloadedSegments(videoId, prefetch.get());
+                }
+                return;
+            }
+
+            VideoTaskScope.execute(BackgroundLane.BLOCKING, videoId, () -> {
                 try {
                     executeDownloadSegments(videoId);
                 } catch (Exception e) {
@@ -238,6 +277,55 @@ public class SegmentPlaybackController {
         }
     }
 
+    /**
+     * Uses the 'playback response' video id hook to prefetch segments.
+     * Called by {@link VideoInformation#setPlayerResponseVideoId(String, boolean)} when the id changes,
+     * off the main thread and before {@link #setCurrentVideoId(String)}.
+     */
+    public static void preloadVideoId(@NonNull String videoId, boolean isShortAndOpeningOrPlaying) {
+        try {
+            if (!SettingsEnum.SB_ENABLED.getBoolean()) {
+                return;
+            }
+            if (VideoInformation.lastPlayerResponseIsShort()) {
+                return; // Segments are not used for Shorts.
+            }
+            if (ReVancedUtils.isNetworkNotConnected()) {
+                return;
+            }
+            synchronized (SegmentPlaybackController.class) {
+                if (videoId.equals(prefetchVideoId)) {
+                    return;
+                }
+                LogHelper.printDebug(() -> "Prefetching segments for video: " + videoId);
+                prefetchVideoId = videoId;
+                prefetchFuture = ReVancedUtils.submitOnBackgroundThread(BackgroundLane.INTERACTIVE,
+                        () -> SBRequester.getSegments(videoId));
+            }
+        } catch (Exception ex) {
+            LogHelper.printException(() -> "preloadVideoId failure", ex);
+        }
+    }
+
+    /**
+     * Removes and returns the prefetch of a video id.
+     * Prefetched segments are used only once, as segments have mutable skip state.
+     *
+     * @param onlyIfDone If the prefetch should only be returned if the fetch has already completed.
+     * @return NULL if the video was not prefetched.
+     */
+    @Nullable
+    private static synchronized Future<SponsorSegment[]> takePrefetch(@NonNull String videoId, boolean onlyIfDone) {
+        if (!videoId.equals(prefetchVideoId) || prefetchFuture == null
+                || (onlyIfDone && !prefetchFuture.isDone())) {
+            return null;
+        }
+        Future<SponsorSegment[]> future = prefetchFuture;
+        prefetchVideoId = null;
+        prefetchFuture = null;
+        return future;
+    }
+
     /**
      * Must be called off main thread
      */
@@ -246,52 +334,90 @@ public class SegmentPlaybackController {
             return;
         Objects.requireNonNull(videoId);
         try {
-            SponsorSegment[] segments = SBRequester.getSegments(videoId);
-
-            ReVancedUtils.runOnMainThread(() -> {
-                if (!videoId.equals(currentVideoId)) {
-                    // user changed videos before get segments network call could complete
-                    LogHelper.printDebug(() -> "Ignoring segments for prior video: " + videoId);
+            SponsorSegment[] segments = null;
+            Future<SponsorSegment[]> prefetch = takePrefetch(videoId, false);
+            if (prefetch != null) {
+                try {
+                    // Network call has its own timeouts, and this is not on the main thread.
+                    segments = prefetch.get();
+                    LogHelper.printDebug(() -> "Using prefetched segments for video: " + videoId);
+                } catch (InterruptedException ex) {
+                    LogHelper.printDebug(() -> "Segment download cancelled for video: " + videoId);
                     return;
+                } catch (ExecutionException ex) {
+                    LogHelper.printException(() -> "Prefetch failure", ex); // should never happen
                 }
-                setSegments(segments);
-
-                final long videoTime = VideoInformation.getVideoTime();
-                if (highlightSegment != null) {
-                    // If the current video time is before the highlight.
-                    final long timeUntilHighlight = highlightSegment.start - videoTime;
-                    if (timeUntilHighlight > 0) {
-                        if (highlightSegment.shouldAutoSkip()) {
-                            skipSegment(highlightSegment, false);
-                            return;
-                        }
-                        highlightSegmentInitialShowEndTime = System.currentTimeMillis() + Math.min(
-                                (long) (timeUntilHighlight / VideoHelpers.getCurrentSpeed()),
-                                DURATION_TO_SHOW_SKIP_BUTTON);
-                    }
-                }
+            }
+            if (segments == null) {
+                segments = SBRequester.getSegments(videoId);
+            }
 
-                // check for any skips now, instead of waiting for the next update to setVideoTime()
-                setVideoTime(videoTime);
-            });
+            final SponsorSegment[] downloadedSegments = segments;
+            ReVancedUtils.runOnMainThread(() -> setDownloadedSegments(videoId, downloadedSegments));
         } catch (Exception ex) {
             LogHelper.printException(() -> "executeDownloadSegments failure", ex);
         }
     }
 
+    /**
+     * Must be called on the main thread.
+     */
+    private static void setDownloadedSegments(@NonNull String videoId, @NonNull SponsorSegment[] downloadedSegments) {
+        if (!videoId.equals(currentVideoId)) {
+            // user changed videos before get segments network call could complete
+            LogHelper.printDebug(() -> "Ignoring segments for prior video: " + videoId);
+            return;
+        }
+        setSegments(downloadedSegments);
+
+        final long videoTime = VideoInformation.getVideoTime();
+        if (highlightSegment != null) {
+            // If the current video time is before the highlight.
+            final long timeUntilHighlight = highlightSegment.start - videoTime;
+            if (timeUntilHighlight > 0) {
+                if (highlightSegment.shouldAutoSkip()) {
+                    skipSegment(highlightSegment, false);
+                    return;
+                }
+                highlightSegmentInitialShowEndTime = System.currentTimeMillis() + Math.min(
+                        (long) (timeUntilHighlight / VideoHelpers.getCurrentSpeed()),
+                        DURATION_TO_SHOW_SKIP_BUTTON);
+            }
+        }
+
+        // check for any skips now, instead of waiting for the next video time tick
+        videoTimeChanged(videoTime);
+    }
+
+    /**
+     * Subscribes to video time ticks.  Called once during initialization.
+     */
+    public static void subscribeToEvents() {
+        EventBus.VIDEO_TIME_TICK.subscribe("SponsorBlock segments", EventBus.POSTING_THREAD,
+                SegmentPlaybackController::videoTimeChanged);
+    }
+
     /**
      * Injection point.
+     * Does nothing, as the same hook updates {@link VideoInformation#setVideoTime(long)}
+     * and SponsorBlock listens for {@link EventBus#VIDEO_TIME_TICK}.
+     * Kept so existing patches still resolve this method.
+     */
+    public static void setVideoTime(long ignoredMillis) {
+    }
+
+    /**
      * Updates SponsorBlock every 1000ms.
      * When changing videos, this is first called with value 0 and then the video is changed.
      */
-    public static void setVideoTime(long millis) {
+    private static void videoTimeChanged(long millis) {
         try {
             if (!SettingsEnum.SB_ENABLED.getBoolean()
                     || PlayerType.getCurrent().isNoneOrHidden() // Shorts playback.
                     || segments == null || segments.length == 0) {
                 return;
             }
-            LogHelper.printDebug(() -> "setVideoTime: " + millis);
+            LogHelper.printDebug(() -> "videoTimeChanged: " + millis);
 
             updateHiddenSegments(millis);
 
@@ -404,11 +530,12 @@ public class SegmentPlaybackController {
                 if (segmentToHide == null) {
                     LogHelper.printDebug(() -> "Clearing scheduled hide: " + scheduledHideSegment);
                     scheduledHideSegment = null;
+                    ReVancedUtils.cancelOnMainThreadKeyed(SCHEDULED_HIDE_KEY);
                 } else {
                     scheduledHideSegment = segmentToHide;
                     LogHelper.printDebug(() -> "Scheduling hide segment: " + segmentToHide + " playbackSpeed: " + playbackSpeed);
                     final long delayUntilHide = (long) ((segmentToHide.end - millis) / playbackSpeed);
-                    ReVancedUtils.runOnMainThreadDelayed(() -> {
+                    ReVancedUtils.runOnMainThreadKeyedDelayed(SCHEDULED_HIDE_KEY, () -> {
                         if (scheduledHideSegment != segmentToHide) {
                             LogHelper.printDebug(() -> "Ignoring old scheduled hide segment: " + segmentToHide);
                             return;
@@ -428,11 +555,11 @@ public class SegmentPlaybackController {
                         }
                         LogHelper.printDebug(() -> "Running scheduled hide segment: " + segmentToHide);
                         // Need more than just hide the skip button, as this may have been an embedded segment
-                        // Instead call back into setVideoTime to check everything again.
+                        // Instead call back into videoTimeChanged to check everything again.
                         // Should not use VideoInformation time as it is less accurate,
                         // but this scheduled handler was scheduled precisely so we can just use the segment end time
                         setSegmentCurrentlyPlaying(null);
-                        setVideoTime(segmentToHide.end);
+                        videoTimeChanged(segmentToHide.end);
                     }, delayUntilHide);
                 }
             }
@@ -441,13 +568,14 @@ public class SegmentPlaybackController {
                 if (foundUpcomingSegment == null) {
                     LogHelper.printDebug(() -> "Clearing scheduled segment: " + scheduledUpcomingSegment);
                     scheduledUpcomingSegment = null;
+                    ReVancedUtils.cancelOnMainThreadKeyed(SCHEDULED_SKIP_KEY);
                 } else {
                     scheduledUpcomingSegment = foundUpcomingSegment;
                     final SponsorSegment segmentToSkip = foundUpcomingSegment;
 
                     LogHelper.printDebug(() -> "Scheduling segment: " + segmentToSkip + " playbackSpeed: " + playbackSpeed);
                     final long delayUntilSkip = (long) ((segmentToSkip.start - millis) / playbackSpeed);
-                    ReVancedUtils.runOnMainThreadDelayed(() -> {
+                    ReVancedUtils.runOnMainThreadKeyedDelayed(SCHEDULED_SKIP_KEY, () -> {
                         if (scheduledUpcomingSegment != segmentToSkip) {
                             LogHelper.printDebug(() -> "Ignoring old scheduled segment: " + segmentToSkip);
                             return;
@@ -476,7 +604,7 @@ public class SegmentPlaybackController {
                 }
             }
         } catch (Exception e) {
-            LogHelper.printException(() -> "setVideoTime failure", e);
+            LogHelper.printException(() -> "videoTimeChanged failure", e);
         }
     }
 
@@ -540,8 +668,7 @@ public class SegmentPlaybackController {
             lastSegmentSkipped = segmentToSkip;
             lastSegmentSkippedTime = now;
             setSegmentCurrentlyPlaying(null);
-            scheduledHideSegment = null;
-            scheduledUpcomingSegment = null;
+            clearScheduledSegments();
             if (segmentToSkip == highlightSegment) {
                 highlightSegmentInitialShowEndTime = 0;
             }
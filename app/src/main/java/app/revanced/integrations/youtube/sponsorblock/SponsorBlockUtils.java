@@ -29,6 +29,7 @@ import app.revanced.integrations.youtube.sponsorblock.objects.SponsorSegment;
 import app.revanced.integrations.youtube.sponsorblock.objects.SponsorSegment.SegmentVote;
 import app.revanced.integrations.youtube.sponsorblock.requests.SBRequester;
 import app.revanced.integrations.youtube.sponsorblock.ui.SponsorBlockViewController;
+import app.revanced.integrations.youtube.utils.BackgroundLane;
 import app.revanced.integrations.youtube.utils.LogHelper;
 import app.revanced.integrations.youtube.utils.ReVancedUtils;
 
@@ -385,7 +386,7 @@ public class SponsorBlockUtils {
         SettingsEnum.SB_LOCAL_TIME_SAVED_NUMBER_SEGMENTS.saveValue(SettingsEnum.SB_LOCAL_TIME_SAVED_NUMBER_SEGMENTS.getInt() + 1);
 
         if (SettingsEnum.SB_TRACK_SKIP_COUNT.getBoolean()) {
-            ReVancedUtils.runOnBackgroundThread(() -> SBRequester.sendSegmentSkippedViewedRequest(segment));
+            ReVancedUtils.runOnBackgroundThread(BackgroundLane.NETWORK, () -> SBRequester.sendSegmentSkippedViewedRequest(segment));
         }
     }
 
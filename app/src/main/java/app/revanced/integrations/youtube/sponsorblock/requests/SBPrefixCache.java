@@ -0,0 +1,129 @@
+package app.revanced.integrations.youtube.sponsorblock.requests;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import app.revanced.integrations.youtube.sponsorblock.objects.SponsorSegment;
+import app.revanced.integrations.youtube.utils.LogHelper;
+
+/**
+ * In memory cache of SponsorBlock hash prefix lookups.
+ * <p>
+ * A hash prefix response contains the segments of every video whose id hash starts with the same prefix.
+ * The entire response is kept, so later videos that fall into the same prefix are answered without a network call.
+ */
+class SBPrefixCache {
+    /**
+     * Number of hex characters of the video id SHA-256 hash sent to the server.
+     * Four characters is the shortest prefix the API accepts, and gives the most privacy.
+     */
+    static final int HASH_PREFIX_LENGTH = 4;
+
+    /**
+     * How long to retain a fetched prefix bucket.
+     */
+    private static final long CACHE_TIMEOUT_MILLISECONDS = 10 * 60 * 1000; // 10 Minutes
+
+    /**
+     * Maximum number of prefix buckets to retain.
+     * There are 65536 possible prefixes, so a bucket is only reused if many videos are watched in a short time.
+     */
+    private static final int MAX_BUCKETS = 100;
+
+    private static final char[] HEX_CHARACTERS = "0123456789abcdef".toCharArray();
+
+    @GuardedBy("itself")
+    private static final Map<String, Bucket> buckets = new HashMap<>();
+
+    private static class Bucket {
+        final long timeFetched;
+        /**
+         * Categories used for the fetch. If the user changes the enabled categories, the bucket is not used.
+         */
+        @NonNull
+        final String categories;
+        /**
+         * Key is the video id.  Segments are not filtered by minimum duration.
+         */
+        @NonNull
+        final Map<String, SponsorSegment[]> videoSegments;
+
+        Bucket(@NonNull String categories, @NonNull Map<String, SponsorSegment[]> videoSegments) {
+            this.timeFetched = System.currentTimeMillis();
+            this.categories = categories;
+            this.videoSegments = videoSegments;
+        }
+
+        boolean isExpired(long now) {
+            return now - timeFetched > CACHE_TIMEOUT_MILLISECONDS;
+        }
+    }
+
+    private SBPrefixCache() {
+    }
+
+    /**
+     * @return The first {@link #HASH_PREFIX_LENGTH} hex characters of the SHA-256 hash of the video id.
+     */
+    @NonNull
+    static String getHashPrefix(@NonNull String videoId) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(videoId.getBytes(StandardCharsets.UTF_8));
+            char[] prefix = new char[HASH_PREFIX_LENGTH];
+            for (int i = 0; i < HASH_PREFIX_LENGTH; i++) {
+                final int value = hash[i / 2];
+                prefix[i] = HEX_CHARACTERS[(i % 2 == 0 ? value >> 4 : value) & 0x0F];
+            }
+            return new String(prefix);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex); // should never happen
+        }
+    }
+
+    /**
+     * @return Segments of the video, or NULL if the prefix bucket is not cached.
+     * If the bucket is cached but the video has no segments, an empty array is returned.
+     * Segments are not filtered by minimum duration, and must not be modified.
+     */
+    @Nullable
+    static SponsorSegment[] getSegments(@NonNull String hashPrefix, @NonNull String videoId, @NonNull String categories) {
+        Bucket bucket;
+        synchronized (buckets) {
+            final long now = System.currentTimeMillis();
+            buckets.values().removeIf(value -> value.isExpired(now));
+            bucket = buckets.get(hashPrefix);
+        }
+        if (bucket == null || !bucket.categories.equals(categories)) {
+            return null;
+        }
+
+        SponsorSegment[] segments = bucket.videoSegments.get(videoId);
+        return segments == null ? new SponsorSegment[0] : segments;
+    }
+
+    static void put(@NonNull String hashPrefix, @NonNull String categories,
+                    @NonNull Map<String, SponsorSegment[]> videoSegments) {
+        synchronized (buckets) {
+            if (buckets.size() >= MAX_BUCKETS) {
+                String oldestPrefix = null;
+                long oldestTime = Long.MAX_VALUE;
+                for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+                    if (entry.getValue().timeFetched < oldestTime) {
+                        oldestTime = entry.getValue().timeFetched;
+                        oldestPrefix = entry.getKey();
+                    }
+                }
+                buckets.remove(oldestPrefix);
+            }
+            buckets.put(hashPrefix, new Bucket(categories, videoSegments));
+        }
+        LogHelper.printDebug(() -> "Cached hash prefix: " + hashPrefix + " videos: " + videoSegments.size());
+    }
+}
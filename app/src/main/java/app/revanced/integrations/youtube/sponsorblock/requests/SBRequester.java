@@ -2,29 +2,39 @@ package app.revanced.integrations.youtube.sponsorblock.requests;
 
 import static app.revanced.integrations.youtube.utils.StringRef.str;
 
+import android.util.JsonReader;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import app.revanced.integrations.youtube.requests.CircuitBreaker;
 import app.revanced.integrations.youtube.requests.Requester;
 import app.revanced.integrations.youtube.requests.Route;
 import app.revanced.integrations.youtube.settings.SettingsEnum;
 import app.revanced.integrations.youtube.sponsorblock.SponsorBlockSettings;
+import app.revanced.integrations.youtube.sponsorblock.objects.CategoryBehaviour;
 import app.revanced.integrations.youtube.sponsorblock.objects.SegmentCategory;
 import app.revanced.integrations.youtube.sponsorblock.objects.SponsorSegment;
 import app.revanced.integrations.youtube.sponsorblock.objects.SponsorSegment.SegmentVote;
 import app.revanced.integrations.youtube.sponsorblock.objects.UserStats;
+import app.revanced.integrations.youtube.utils.BackgroundLane;
 import app.revanced.integrations.youtube.utils.LogHelper;
 import app.revanced.integrations.youtube.utils.ReVancedUtils;
 
@@ -61,34 +71,74 @@ public class SBRequester {
     @NonNull
     public static SponsorSegment[] getSegments(@NonNull String videoId) {
         ReVancedUtils.verifyOffMainThread();
-        List<SponsorSegment> segments = new ArrayList<>();
+        final String categories = SegmentCategory.sponsorBlockAPIFetchCategories;
+        final long minSegmentDuration = (long) (SettingsEnum.SB_SEGMENT_MIN_DURATION.getFloat() * 1000);
+
+        SBSegmentCache.CachedSegments cached = SBSegmentCache.get(videoId, categories);
+        if (cached != null) {
+            if (cached.isStale()) {
+                ReVancedUtils.runOnBackgroundThread(BackgroundLane.NETWORK, () -> revalidateCachedSegments(videoId, categories, cached.segments));
+            }
+            return filterSegments(cached.segments, minSegmentDuration);
+        }
+
+        SponsorSegment[] segments = fetchSegments(videoId, categories);
+        if (segments == null) {
+            return new SponsorSegment[0];
+        }
+        SBSegmentCache.put(videoId, categories, segments);
+        return filterSegments(segments, minSegmentDuration);
+    }
+
+    /**
+     * Refreshes a stale disk cache entry.  The current video continues to use the stale segments,
+     * and any changes are used the next time the video is opened.
+     */
+    private static void revalidateCachedSegments(@NonNull String videoId, @NonNull String categories,
+                                                 @NonNull SponsorSegment[] cachedSegments) {
+        try {
+            SponsorSegment[] segments = fetchSegments(videoId, categories);
+            if (segments != null) {
+                final boolean changed = !Arrays.equals(cachedSegments, segments);
+                LogHelper.printDebug(() -> "Revalidated cached segments for video: " + videoId + " changed: " + changed);
+                // Always put, even if unchanged, to reset the entry age.
+                SBSegmentCache.put(videoId, categories, segments);
+            }
+        } catch (Exception ex) {
+            LogHelper.printException(() -> "revalidateCachedSegments failure", ex); // should never happen
+        }
+    }
+
+    /**
+     * @return Segments not filtered by minimum duration,
+     * or NULL if the fetch failed and the result should not be cached.
+     */
+    @Nullable
+    private static SponsorSegment[] fetchSegments(@NonNull String videoId, @NonNull String categories) {
+        if (SettingsEnum.SB_HASH_PREFIX_LOOKUPS.getBoolean()) {
+            return fetchSegmentsUsingHashPrefix(videoId, categories);
+        }
+        CircuitBreaker circuitBreaker = null;
         try {
-            HttpURLConnection connection = getConnectionFromRoute(SBRoutes.GET_SEGMENTS, videoId, SegmentCategory.sponsorBlockAPIFetchCategories);
-            final int responseCode = connection.getResponseCode();
+            HttpURLConnection connection = getConnectionFromRoute(SBRoutes.GET_SEGMENTS, videoId, categories);
+            circuitBreaker = CircuitBreaker.forConnection(connection);
+            if (!circuitBreaker.allowRequest()) {
+                LogHelper.printDebug(() -> "Ignoring segment fetch as back off is in effect");
+                return null;
+            }
+            final int responseCode = Requester.getResponseCode(connection,
+                    SBRoutes.GET_SEGMENTS.getMetrics(), circuitBreaker, null);
+            circuitBreaker.recordResponse(connection, responseCode, 404);
 
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
-                JSONArray responseArray = Requester.parseJSONArray(connection);
-                final long minSegmentDuration = (long) (SettingsEnum.SB_SEGMENT_MIN_DURATION.getFloat() * 1000);
-                for (int i = 0, length = responseArray.length(); i < length; i++) {
-                    JSONObject obj = (JSONObject) responseArray.get(i);
-                    JSONArray segment = obj.getJSONArray("segment");
-                    final long start = (long) (segment.getDouble(0) * 1000);
-                    final long end = (long) (segment.getDouble(1) * 1000);
-
-                    String uuid = obj.getString("UUID");
-                    final boolean locked = obj.getInt("locked") == 1;
-                    String categoryKey = obj.getString("category");
-                    SegmentCategory category = SegmentCategory.byCategoryKey(categoryKey);
-                    if (category == null) {
-                        LogHelper.printException(() -> "Received unknown category: " + categoryKey); // should never happen
-                    } else if ((end - start) >= minSegmentDuration || category == SegmentCategory.HIGHLIGHT) {
-                        segments.add(new SponsorSegment(category, uuid, start, end, locked));
-                    }
-                }
+                List<SponsorSegment> segments = new ArrayList<>();
+                parseSegments(connection.getInputStream(), segments);
                 runVipCheckInBackgroundIfNeeded();
+                return segments.toArray(new SponsorSegment[0]);
             } else if (responseCode == 404) {
                 // no segments are found.  a normal response
                 LogHelper.printDebug(() -> "No segments found for video: " + videoId);
+                return new SponsorSegment[0];
             } else {
                 handleConnectionError(str("sb_sponsorblock_connection_failure_status", responseCode), null);
                 connection.disconnect(); // something went wrong, might as well disconnect
@@ -100,9 +150,190 @@ public class SBRequester {
         } catch (Exception ex) {
             // Should never happen
             LogHelper.printException(() -> "getSegments failure", ex);
+        } finally {
+            if (circuitBreaker != null) {
+                circuitBreaker.requestFinished();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fetches segments using the hash prefix of the video id, so the server never sees the exact video id.
+     * The response includes all videos sharing the same prefix, and is cached for later lookups.
+     */
+    @Nullable
+    private static SponsorSegment[] fetchSegmentsUsingHashPrefix(@NonNull String videoId, @NonNull String categories) {
+        final String hashPrefix = SBPrefixCache.getHashPrefix(videoId);
+
+        SponsorSegment[] cached = SBPrefixCache.getSegments(hashPrefix, videoId, categories);
+        if (cached != null) {
+            LogHelper.printDebug(() -> "Using cached hash prefix: " + hashPrefix + " for video: " + videoId);
+            return cached;
+        }
+
+        CircuitBreaker circuitBreaker = null;
+        try {
+            HttpURLConnection connection = getConnectionFromRoute(SBRoutes.GET_SEGMENTS_BY_HASH_PREFIX, hashPrefix, categories);
+            circuitBreaker = CircuitBreaker.forConnection(connection);
+            if (!circuitBreaker.allowRequest()) {
+                LogHelper.printDebug(() -> "Ignoring hash prefix fetch as back off is in effect");
+                return null;
+            }
+            final int responseCode = Requester.getResponseCode(connection,
+                    SBRoutes.GET_SEGMENTS_BY_HASH_PREFIX.getMetrics(), circuitBreaker, null);
+            circuitBreaker.recordResponse(connection, responseCode, 404);
+
+            if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
+                SBPrefixCache.put(hashPrefix, categories, parseHashPrefixSegments(connection.getInputStream()));
+                runVipCheckInBackgroundIfNeeded();
+            } else if (responseCode == 404) {
+                // No videos with this prefix have segments.  A normal response.
+                SBPrefixCache.put(hashPrefix, categories, new HashMap<>());
+            } else {
+                handleConnectionError(str("sb_sponsorblock_connection_failure_status", responseCode), null);
+                connection.disconnect(); // something went wrong, might as well disconnect
+            }
+        } catch (SocketTimeoutException ex) {
+            handleConnectionError(str("sb_sponsorblock_connection_failure_timeout"), ex);
+        } catch (IOException ex) {
+            handleConnectionError(str("sb_sponsorblock_connection_failure_generic"), ex);
+        } catch (Exception ex) {
+            // Should never happen
+            LogHelper.printException(() -> "getSegmentsUsingHashPrefix failure", ex);
+        } finally {
+            if (circuitBreaker != null) {
+                circuitBreaker.requestFinished();
+            }
         }
 
-        return segments.toArray(new SponsorSegment[0]);
+        return SBPrefixCache.getSegments(hashPrefix, videoId, categories);
+    }
+
+    /**
+     * Segments have mutable skip state, and cached segments can be used more than once.
+     * So the returned segments are always new instances.
+     *
+     * @return Copies of the segments that are not shorter than the minimum duration.
+     */
+    @NonNull
+    private static SponsorSegment[] filterSegments(@NonNull SponsorSegment[] segments, long minSegmentDuration) {
+        List<SponsorSegment> filtered = new ArrayList<>(segments.length);
+        for (SponsorSegment segment : segments) {
+            if (segment.length() >= minSegmentDuration || segment.category == SegmentCategory.HIGHLIGHT) {
+                filtered.add(new SponsorSegment(segment.category, segment.UUID,
+                        segment.start, segment.end, segment.isLocked));
+            }
+        }
+        return filtered.toArray(new SponsorSegment[0]);
+    }
+
+    /**
+     * Parses a hash prefix response, and closes the stream.
+     * Segments are not filtered by minimum duration, as the result is cached.
+     *
+     * @return Map of video id to segments.
+     */
+    @NonNull
+    private static Map<String, SponsorSegment[]> parseHashPrefixSegments(@NonNull InputStream inputStream) throws IOException {
+        Map<String, SponsorSegment[]> videoSegments = new HashMap<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String videoId = null;
+                List<SponsorSegment> segments = new ArrayList<>();
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "videoID" -> videoId = reader.nextString();
+                        case "segments" -> {
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                SponsorSegment segment = parseSegment(reader);
+                                if (segment != null) {
+                                    segments.add(segment);
+                                }
+                            }
+                            reader.endArray();
+                        }
+                        default -> reader.skipValue(); // hash
+                    }
+                }
+                reader.endObject();
+
+                if (videoId != null && !segments.isEmpty()) {
+                    videoSegments.put(videoId, segments.toArray(new SponsorSegment[0]));
+                }
+            }
+            reader.endArray();
+        }
+        return videoSegments;
+    }
+
+    /**
+     * Parses the segments response directly from the connection stream, and closes the stream.
+     * Segments of an unknown or ignored category are discarded during the parse.
+     * Segments are not filtered by minimum duration, as the result is cached.
+     */
+    static void parseSegments(@NonNull InputStream inputStream, @NonNull List<SponsorSegment> segments) throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                SponsorSegment segment = parseSegment(reader);
+                if (segment != null) {
+                    segments.add(segment);
+                }
+            }
+            reader.endArray();
+        }
+    }
+
+    /**
+     * @return NULL if the segment should not be used
+     */
+    @Nullable
+    private static SponsorSegment parseSegment(@NonNull JsonReader reader) throws IOException {
+        long start = 0;
+        long end = 0;
+        String uuid = null;
+        boolean locked = false;
+        String categoryKey = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "segment" -> {
+                    reader.beginArray();
+                    start = (long) (reader.nextDouble() * 1000);
+                    end = (long) (reader.nextDouble() * 1000);
+                    while (reader.hasNext()) {
+                        reader.skipValue();
+                    }
+                    reader.endArray();
+                }
+                case "UUID" -> uuid = reader.nextString();
+                case "locked" -> locked = reader.nextInt() == 1;
+                case "category" -> categoryKey = reader.nextString();
+                default -> reader.skipValue(); // videoDuration, actionType, votes, description, etc.
+            }
+        }
+        reader.endObject();
+
+        if (categoryKey == null || uuid == null) {
+            LogHelper.printException(() -> "Received incomplete segment"); // should never happen
+            return null;
+        }
+        SegmentCategory category = SegmentCategory.byCategoryKey(categoryKey);
+        if (category == null) {
+            final String key = categoryKey;
+            LogHelper.printException(() -> "Received unknown category: " + key); // should never happen
+            return null;
+        }
+        if (category.behaviour == CategoryBehaviour.IGNORE) {
+            return null; // category was disabled after the request was made
+        }
+        return new SponsorSegment(category, uuid, start, end, locked);
     }
 
     public static void submitSegments(@NonNull String videoId, @NonNull String category,
@@ -115,7 +346,7 @@ public class SBRequester {
             String duration = String.format(Locale.US, TIME_TEMPLATE, videoLength / 1000f);
 
             HttpURLConnection connection = getConnectionFromRoute(SBRoutes.SUBMIT_SEGMENTS, privateUserId, videoId, category, start, end, duration);
-            final int responseCode = connection.getResponseCode();
+            final int responseCode = Requester.getResponseCode(connection, SBRoutes.SUBMIT_SEGMENTS.getMetrics(), null, null);
 
             final String messageToToast = switch (responseCode) {
                 case HTTP_STATUS_CODE_SUCCESS -> str("sb_submit_succeeded");
@@ -143,7 +374,7 @@ public class SBRequester {
         ReVancedUtils.verifyOffMainThread();
         try {
             HttpURLConnection connection = getConnectionFromRoute(SBRoutes.VIEWED_SEGMENT, segment.UUID);
-            final int responseCode = connection.getResponseCode();
+            final int responseCode = Requester.getResponseCode(connection, SBRoutes.VIEWED_SEGMENT.getMetrics(), null, null);
 
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
                 LogHelper.printDebug(() -> "Successfully sent view count for segment: " + segment);
@@ -171,10 +402,13 @@ public class SBRequester {
             try {
                 String segmentUuid = segment.UUID;
                 String uuid = SponsorBlockSettings.getSBPrivateUserID();
-                HttpURLConnection connection = (voteOption == SegmentVote.CATEGORY_CHANGE)
-                        ? getConnectionFromRoute(SBRoutes.VOTE_ON_SEGMENT_CATEGORY, uuid, segmentUuid, categoryToVoteFor.key)
-                        : getConnectionFromRoute(SBRoutes.VOTE_ON_SEGMENT_QUALITY, uuid, segmentUuid, String.valueOf(voteOption.apiVoteType));
-                final int responseCode = connection.getResponseCode();
+                final boolean isCategoryChange = (voteOption == SegmentVote.CATEGORY_CHANGE);
+                Route route = isCategoryChange
+                        ? SBRoutes.VOTE_ON_SEGMENT_CATEGORY
+                        : SBRoutes.VOTE_ON_SEGMENT_QUALITY;
+                HttpURLConnection connection = getConnectionFromRoute(route, uuid, segmentUuid,
+                        isCategoryChange ? categoryToVoteFor.key : String.valueOf(voteOption.apiVoteType));
+                final int responseCode = Requester.getResponseCode(connection, route.getMetrics(), null, null);
 
                 switch (responseCode) {
                     case HTTP_STATUS_CODE_SUCCESS ->
@@ -220,7 +454,7 @@ public class SBRequester {
         ReVancedUtils.verifyOffMainThread();
         try {
             HttpURLConnection connection = getConnectionFromRoute(SBRoutes.CHANGE_USERNAME, SponsorBlockSettings.getSBPrivateUserID(), username);
-            final int responseCode = connection.getResponseCode();
+            final int responseCode = Requester.getResponseCode(connection, SBRoutes.CHANGE_USERNAME.getMetrics(), null, null);
             String responseMessage = connection.getResponseMessage();
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
                 return null;
@@ -240,7 +474,7 @@ public class SBRequester {
         if (now < (SettingsEnum.SB_LAST_VIP_CHECK.getLong() + TimeUnit.DAYS.toMillis(3))) {
             return;
         }
-        ReVancedUtils.runOnBackgroundThread(() -> {
+        ReVancedUtils.runOnBackgroundThread(BackgroundLane.NETWORK, () -> {
             try {
                 JSONObject json = getJSONObject(SBRoutes.IS_USER_VIP, SponsorBlockSettings.getSBPrivateUserID());
                 boolean vip = json.getBoolean("vip");
@@ -264,6 +498,8 @@ public class SBRequester {
     }
 
     private static JSONObject getJSONObject(@NonNull Route route, String... params) throws IOException, JSONException {
-        return Requester.parseJSONObject(getConnectionFromRoute(route, params));
+        HttpURLConnection connection = getConnectionFromRoute(route, params);
+        Requester.getResponseCode(connection, route.getMetrics(), null, null);
+        return Requester.parseJSONObject(connection);
     }
 }
@@ -0,0 +1,331 @@
+package app.revanced.integrations.youtube.sponsorblock.requests;
+
+import android.content.Context;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import app.revanced.integrations.youtube.settings.SettingsEnum;
+import app.revanced.integrations.youtube.sponsorblock.objects.SegmentCategory;
+import app.revanced.integrations.youtube.sponsorblock.objects.SponsorSegment;
+import app.revanced.integrations.youtube.utils.BackgroundLane;
+import app.revanced.integrations.youtube.utils.LogHelper;
+import app.revanced.integrations.youtube.utils.ReVancedUtils;
+
+/**
+ * Persistent cache of segments per video id, so rewatched videos do not wait for the network.
+ * <p>
+ * Entries are kept in least recently used order and evicted when the total size exceeds
+ * {@link SettingsEnum#SB_SEGMENT_CACHE_SIZE}.  The cache is stored as a single compact binary file
+ * in the app cache directory, and is rewritten on a background thread after each change.
+ * Reading an entry updates the order only in memory, and does not rewrite the file.
+ * The file has the order of the last change, so after a restart entries only read since then
+ * are evicted earlier than they would have been.
+ * <p>
+ * All methods must be called off the main thread.
+ */
+class SBSegmentCache {
+    /**
+     * How long a cached entry is used without revalidating it.
+     * After this, the entry is still used but it is refreshed in the background.
+     */
+    private static final long FRESH_DURATION_MILLISECONDS = 6 * 60 * 60 * 1000; // 6 Hours
+
+    /**
+     * How long an entry without segments is used.  Segments are often submitted soon after a video
+     * is uploaded, so after this the entry is not used and the segments are fetched again.
+     */
+    private static final long EMPTY_FRESH_DURATION_MILLISECONDS = 5 * 60 * 1000; // 5 Minutes
+
+    private static final String CACHE_FILE_NAME = "revanced_sponsorblock_segments.bin";
+    private static final int FILE_MAGIC = 0x53425343; // "SBSC"
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Serialized size of an entry, excluding the variable length video id and segments.
+     * Categories hash, time fetched and segment count.
+     */
+    private static final int ENTRY_FIXED_SIZE = 4 + 8 + 2;
+    /**
+     * Serialized size of a segment, excluding the variable length category key and UUID.
+     * Start, end, and locked.
+     */
+    private static final int SEGMENT_FIXED_SIZE = 8 + 8 + 1;
+
+    static class CachedSegments {
+        /**
+         * Segments not filtered by minimum duration.  Must not be modified.
+         */
+        @NonNull
+        final SponsorSegment[] segments;
+        final long timeFetched;
+
+        CachedSegments(@NonNull SponsorSegment[] segments, long timeFetched) {
+            this.segments = segments;
+            this.timeFetched = timeFetched;
+        }
+
+        boolean isStale() {
+            return isEntryStale(timeFetched, segments);
+        }
+    }
+
+    private static boolean isEntryStale(long timeFetched, @NonNull SponsorSegment[] segments) {
+        return System.currentTimeMillis() - timeFetched > (segments.length == 0
+                ? EMPTY_FRESH_DURATION_MILLISECONDS
+                : FRESH_DURATION_MILLISECONDS);
+    }
+
+    private static class Entry {
+        /**
+         * Hash of the categories used for the fetch.
+         * If the user changes the enabled categories, the entry is not used.
+         */
+        final int categoriesHash;
+        final long timeFetched;
+        @NonNull
+        final SponsorSegment[] segments;
+        /**
+         * Serialized size of this entry, including the video id key.
+         */
+        final int sizeBytes;
+
+        Entry(@NonNull String videoId, int categoriesHash, long timeFetched, @NonNull SponsorSegment[] segments) {
+            this.categoriesHash = categoriesHash;
+            this.timeFetched = timeFetched;
+            this.segments = segments;
+
+            int size = utfLength(videoId) + ENTRY_FIXED_SIZE;
+            for (SponsorSegment segment : segments) {
+                size += utfLength(segment.category.key) + utfLength(segment.UUID) + SEGMENT_FIXED_SIZE;
+            }
+            this.sizeBytes = size;
+        }
+    }
+
+    /**
+     * Key is the video id.  Iteration order is least recently used first.
+     * Value is NULL until the cache file is loaded.
+     */
+    @GuardedBy("SBSegmentCache.class")
+    @Nullable
+    private static LinkedHashMap<String, Entry> entries;
+
+    @GuardedBy("SBSegmentCache.class")
+    private static long totalSizeBytes;
+
+    @GuardedBy("SBSegmentCache.class")
+    private static boolean writeScheduled;
+
+    /**
+     * Held while the cache file is written, so only one thread writes the temp file at a time
+     * and a newer snapshot is never overwritten by an older one.
+     */
+    private static final Object fileWriteLock = new Object();
+
+    private SBSegmentCache() {
+    }
+
+    /**
+     * Serialized size of a modified UTF-8 string.  Video ids, category keys and UUIDs are always ASCII.
+     */
+    private static int utfLength(@Nullable String value) {
+        return 2 + (value == null ? 0 : value.length());
+    }
+
+    private static long getMaxSizeBytes() {
+        return Math.max(0, SettingsEnum.SB_SEGMENT_CACHE_SIZE.getInt()) * 1024L;
+    }
+
+    @Nullable
+    static synchronized CachedSegments get(@NonNull String videoId, @NonNull String categories) {
+        if (getMaxSizeBytes() == 0) {
+            return null;
+        }
+        Map<String, Entry> map = getEntries();
+        Entry entry = map.get(videoId); // Moves the entry to most recently used.
+        if (entry == null || entry.categoriesHash != categories.hashCode()) {
+            return null;
+        }
+        if (entry.segments.length == 0 && isEntryStale(entry.timeFetched, entry.segments)) {
+            // Not worth showing a stale empty result while revalidating.  Fetch again instead.
+            map.remove(videoId);
+            totalSizeBytes -= entry.sizeBytes;
+            scheduleWrite();
+            return null;
+        }
+        LogHelper.printDebug(() -> "Using cached segments for video: " + videoId);
+        return new CachedSegments(entry.segments, entry.timeFetched);
+    }
+
+    /**
+     * @param segments Segments not filtered by minimum duration.  Must not be modified after calling this method.
+     */
+    static synchronized void put(@NonNull String videoId, @NonNull String categories, @NonNull SponsorSegment[] segments) {
+        final long maxSizeBytes = getMaxSizeBytes();
+        if (maxSizeBytes == 0) {
+            return;
+        }
+        Map<String, Entry> map = getEntries();
+        Entry entry = new Entry(videoId, categories.hashCode(), System.currentTimeMillis(), segments);
+        Entry previous = map.remove(videoId);
+        if (previous != null) {
+            totalSizeBytes -= previous.sizeBytes;
+        }
+        map.put(videoId, entry);
+        totalSizeBytes += entry.sizeBytes;
+        trimToSize(maxSizeBytes);
+        scheduleWrite();
+    }
+
+    @GuardedBy("SBSegmentCache.class")
+    private static void trimToSize(long maxSizeBytes) {
+        Iterator<Entry> iterator = getEntries().values().iterator();
+        while (totalSizeBytes > maxSizeBytes && iterator.hasNext()) {
+            totalSizeBytes -= iterator.next().sizeBytes;
+            iterator.remove();
+        }
+    }
+
+    @Nullable
+    private static File getCacheFile() {
+        Context context = ReVancedUtils.getContext();
+        if (context == null) {
+            return null;
+        }
+        return new File(context.getCacheDir(), CACHE_FILE_NAME);
+    }
+
+    @GuardedBy("SBSegmentCache.class")
+    @NonNull
+    private static LinkedHashMap<String, Entry> getEntries() {
+        if (entries == null) {
+            entries = new LinkedHashMap<>(16, 0.75f, true);
+            totalSizeBytes = 0;
+            File file = getCacheFile();
+            if (file != null && file.exists()) {
+                try {
+                    readFile(file, entries);
+                    for (Entry entry : entries.values()) {
+                        totalSizeBytes += entry.sizeBytes;
+                    }
+                    trimToSize(getMaxSizeBytes()); // Max size may have been reduced.
+                    LogHelper.printDebug(() -> "Loaded segment cache entries: " + entries.size()
+                            + " size: " + totalSizeBytes);
+                } catch (IOException ex) {
+                    LogHelper.printInfo(() -> "Could not read segment cache", ex);
+                    entries.clear();
+                    totalSizeBytes = 0;
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static void readFile(@NonNull File file, @NonNull Map<String, Entry> map) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Unknown segment cache format");
+            }
+            final int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String videoId = in.readUTF();
+                final int categoriesHash = in.readInt();
+                final long timeFetched = in.readLong();
+                final int segmentCount = in.readUnsignedShort();
+                List<SponsorSegment> segments = new ArrayList<>(segmentCount);
+                for (int j = 0; j < segmentCount; j++) {
+                    String categoryKey = in.readUTF();
+                    String uuid = in.readUTF();
+                    final long start = in.readLong();
+                    final long end = in.readLong();
+                    final boolean locked = in.readBoolean();
+                    SegmentCategory category = SegmentCategory.byCategoryKey(categoryKey);
+                    if (category != null) {
+                        segments.add(new SponsorSegment(category, uuid, start, end, locked));
+                    }
+                }
+                map.put(videoId, new Entry(videoId, categoriesHash, timeFetched,
+                        segments.toArray(new SponsorSegment[0])));
+            }
+        }
+    }
+
+    @GuardedBy("SBSegmentCache.class")
+    private static void scheduleWrite() {
+        if (writeScheduled) {
+            return;
+        }
+        writeScheduled = true;
+        ReVancedUtils.runOnBackgroundThread(BackgroundLane.NETWORK, SBSegmentCache::writeFile);
+    }
+
+    private static void writeFile() {
+        synchronized (fileWriteLock) {
+            // Entries and segment arrays are never modified, so a shallow copy is a consistent snapshot.
+            // The snapshot is taken while holding the write lock, so each write is newer than the last.
+            // A change made during this write schedules another write, that waits for this one to finish.
+            List<Map.Entry<String, Entry>> snapshot;
+            synchronized (SBSegmentCache.class) {
+                writeScheduled = false;
+                snapshot = new ArrayList<>(getEntries().entrySet());
+            }
+            writeFile(snapshot);
+        }
+    }
+
+    @GuardedBy("fileWriteLock")
+    private static void writeFile(@NonNull List<Map.Entry<String, Entry>> snapshot) {
+        File file = getCacheFile();
+        if (file == null) {
+            return;
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> mapEntry : snapshot) {
+                    Entry entry = mapEntry.getValue();
+                    out.writeUTF(mapEntry.getKey());
+                    out.writeInt(entry.categoriesHash);
+                    out.writeLong(entry.timeFetched);
+                    out.writeShort(entry.segments.length);
+                    for (SponsorSegment segment : entry.segments) {
+                        out.writeUTF(segment.category.key);
+                        out.writeUTF(segment.UUID == null ? "" : segment.UUID);
+                        out.writeLong(segment.start);
+                        out.writeLong(segment.end);
+                        out.writeBoolean(segment.isLocked);
+                    }
+                }
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Could not rename: " + tempFile);
+            }
+        } catch (IOException ex) {
+            LogHelper.printInfo(() -> "Could not write segment cache", ex);
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+    }
+}
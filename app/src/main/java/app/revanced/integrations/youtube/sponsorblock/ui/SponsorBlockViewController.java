@@ -15,8 +15,10 @@ import androidx.annotation.Nullable;
 import java.lang.ref.WeakReference;
 import java.util.Objects;
 
+import app.revanced.integrations.youtube.settings.SettingsEnum;
 import app.revanced.integrations.youtube.shared.PlayerType;
 import app.revanced.integrations.youtube.sponsorblock.objects.SponsorSegment;
+import app.revanced.integrations.youtube.utils.EventBus;
 import app.revanced.integrations.youtube.utils.LogHelper;
 import app.revanced.integrations.youtube.utils.ReVancedUtils;
 import app.revanced.integrations.youtube.utils.ResourceType;
@@ -34,11 +36,15 @@ public class SponsorBlockViewController {
     @Nullable
     private static SponsorSegment skipSegment;
 
-    static {
-        PlayerType.getOnChange().addObserver((PlayerType type) -> {
-            playerTypeChanged(type);
-            return null;
-        });
+    /**
+     * Subscribes to player type and setting changes.  Called once during initialization.
+     */
+    public static void subscribeToEvents() {
+        EventBus.PLAYER_TYPE_CHANGED.subscribe("SponsorBlock views", EventBus.MAIN_THREAD,
+                SponsorBlockViewController::playerTypeChanged);
+        EventBus.SETTING_CHANGED.subscribe("SponsorBlock views", EventBus.MAIN_THREAD,
+                SponsorBlockViewController::settingChanged);
+        ReVancedUtils.runOnMainThreadNowOrLater(() -> playerTypeChanged(PlayerType.getCurrent()));
     }
 
     public static Context getOverLaysViewGroupContext() {
@@ -166,6 +172,32 @@ public class SponsorBlockViewController {
         }
     }
 
+    /**
+     * Hides views of features that were turned off, instead of waiting for the next video.
+     */
+    private static void settingChanged(@NonNull SettingsEnum setting) {
+        try {
+            if (setting == SettingsEnum.SB_ENABLED) {
+                if (!SettingsEnum.SB_ENABLED.getBoolean()) {
+                    hideAll();
+                    CreateSegmentButtonController.changeVisibilityImmediate(false);
+                    VotingButtonController.changeVisibilityImmediate(false);
+                }
+            } else if (setting == SettingsEnum.SB_CREATE_NEW_SEGMENT) {
+                if (!SettingsEnum.SB_CREATE_NEW_SEGMENT.getBoolean()) {
+                    hideNewSegmentLayout();
+                    CreateSegmentButtonController.changeVisibilityImmediate(false);
+                }
+            } else if (setting == SettingsEnum.SB_VOTING_BUTTON) {
+                if (!SettingsEnum.SB_VOTING_BUTTON.getBoolean()) {
+                    VotingButtonController.changeVisibilityImmediate(false);
+                }
+            }
+        } catch (Exception ex) {
+            LogHelper.printException(() -> "Setting change failure", ex);
+        }
+    }
+
     private static void playerTypeChanged(@NonNull PlayerType playerType) {
         try {
             final boolean isWatchFullScreen = playerType == PlayerType.WATCH_WHILE_FULLSCREEN;
@@ -0,0 +1,185 @@
+package app.revanced.integrations.youtube.utils;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import app.revanced.integrations.youtube.settings.SettingsEnum;
+import app.revanced.integrations.youtube.shared.PlayerType;
+
+/**
+ * Typed events of player, video and settings state changes.
+ * <p>
+ * Listeners are stored in an immutable array that is replaced when a listener subscribes or unsubscribes,
+ * so posting an event never locks and listeners can subscribe from any thread at any time.
+ * A listener subscribed while an event is being posted may or may not receive that event.
+ * <p>
+ * Listeners subscribe explicitly during initialization (see {@code InitializationPatch}), and not from
+ * static initializers, because an event posted before the listener class is loaded would be lost.
+ * <p>
+ * Each listener declares the executor it runs on.  Use {@link #POSTING_THREAD} for listeners that are fast
+ * and thread safe, {@link #MAIN_THREAD} for listeners that update the UI,
+ * and a {@link BackgroundLane} for listeners that do network or disk calls.
+ * <p>
+ * The time from posting an event to each listener finishing is recorded, and is shown in the API statistics.
+ *
+ * @param <T> Event value type.
+ */
+public final class EventBus<T> {
+
+    /**
+     * Opened video id.  Posted from the thread that set the video id, only when the id changes.
+     */
+    public static final EventBus<String> VIDEO_CHANGED = new EventBus<>("Video changed");
+
+    /**
+     * New player type.  Posted on the main thread, only when the type changes.
+     */
+    public static final EventBus<PlayerType> PLAYER_TYPE_CHANGED = new EventBus<>("Player type changed");
+
+    /**
+     * Playback time of the current video in milliseconds.  Posted on the main thread about every second.
+     */
+    public static final EventBus<Long> VIDEO_TIME_TICK = new EventBus<>("Video time tick");
+
+    /**
+     * Setting whose value was saved.  Posted from the thread that saved the setting.
+     */
+    public static final EventBus<SettingsEnum> SETTING_CHANGED = new EventBus<>("Setting changed");
+
+    /**
+     * Runs listeners immediately on the thread posting the event.
+     */
+    public static final Executor POSTING_THREAD = Runnable::run;
+
+    /**
+     * Runs listeners on the main thread.  If the event is posted on the main thread,
+     * the listener runs immediately, otherwise it runs as soon as the main thread is free.
+     */
+    public static final Executor MAIN_THREAD = ReVancedUtils::runOnMainThreadNowOrLater;
+
+    public interface Listener<T> {
+        void onEvent(@NonNull T value);
+    }
+
+    public static final class Subscription<T> {
+        @NonNull
+        private final String name;
+        @NonNull
+        private final Executor executor;
+        @NonNull
+        private final Listener<T> listener;
+
+        private final AtomicLong dispatchCount = new AtomicLong();
+        private final AtomicLong totalDispatchNanos = new AtomicLong();
+        private final AtomicLong maxDispatchNanos = new AtomicLong();
+
+        private Subscription(@NonNull String name, @NonNull Executor executor, @NonNull Listener<T> listener) {
+            this.name = name;
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        private void dispatch(@NonNull T value, long postTime) {
+            try {
+                listener.onEvent(value);
+            } catch (Exception ex) {
+                LogHelper.printException(() -> name + " failed to handle event: " + value, ex);
+            }
+            final long dispatchNanos = System.nanoTime() - postTime;
+            dispatchCount.incrementAndGet();
+            totalDispatchNanos.addAndGet(dispatchNanos);
+            maxDispatchNanos.accumulateAndGet(dispatchNanos, Math::max);
+        }
+    }
+
+    @NonNull
+    private final String eventName;
+
+    @SuppressWarnings("unchecked")
+    private final AtomicReference<Subscription<T>[]> subscriptions = new AtomicReference<>(new Subscription[0]);
+
+    private final AtomicLong eventsPosted = new AtomicLong();
+
+    private EventBus(@NonNull String eventName) {
+        this.eventName = eventName;
+    }
+
+    /**
+     * @param name     Name shown in the dispatch statistics.
+     * @param executor Executor the listener runs on.
+     * @return The subscription, for use with {@link #unsubscribe(Subscription)}.
+     */
+    @NonNull
+    public Subscription<T> subscribe(@NonNull String name, @NonNull Executor executor, @NonNull Listener<T> listener) {
+        Subscription<T> subscription = new Subscription<>(name, executor, listener);
+        while (true) {
+            Subscription<T>[] current = subscriptions.get();
+            Subscription<T>[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscription;
+            if (subscriptions.compareAndSet(current, updated)) {
+                return subscription;
+            }
+        }
+    }
+
+    public void unsubscribe(@NonNull Subscription<T> subscription) {
+        while (true) {
+            Subscription<T>[] current = subscriptions.get();
+            final int index = Arrays.asList(current).indexOf(subscription);
+            if (index < 0) {
+                return;
+            }
+            Subscription<T>[] updated = Arrays.copyOf(current, current.length - 1);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            if (subscriptions.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends an event to all listeners.  Listeners using {@link #POSTING_THREAD} run before this method returns.
+     */
+    public void post(@NonNull T value) {
+        eventsPosted.incrementAndGet();
+        final long postTime = System.nanoTime();
+        for (Subscription<T> subscription : subscriptions.get()) {
+            try {
+                subscription.executor.execute(() -> subscription.dispatch(value, postTime));
+            } catch (RejectedExecutionException ex) {
+                LogHelper.printException(() -> "Could not send event: " + eventName + " to: " + subscription.name, ex);
+            }
+        }
+    }
+
+    @NonNull
+    public String getSummary() {
+        StringBuilder builder = new StringBuilder(String.format(Locale.US,
+                "%s event\nposted: %d", eventName, eventsPosted.get()));
+        for (Subscription<T> subscription : subscriptions.get()) {
+            final long count = subscription.dispatchCount.get();
+            builder.append(String.format(Locale.US, "\n%s  dispatched: %d  average: %dms  max: %dms",
+                    subscription.name, count,
+                    count == 0 ? 0 : subscription.totalDispatchNanos.get() / count / 1_000_000,
+                    subscription.maxDispatchNanos.get() / 1_000_000));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return Summary of all events.
+     */
+    @NonNull
+    public static String getSummaryOfAllEvents() {
+        return VIDEO_CHANGED.getSummary()
+                + "\n\n" + PLAYER_TYPE_CHANGED.getSummary()
+                + "\n\n" + VIDEO_TIME_TICK.getSummary()
+                + "\n\n" + SETTING_CHANGED.getSummary();
+    }
+}
@@ -0,0 +1,187 @@
+package app.revanced.integrations.youtube.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Main thread tasks identified by a key.
+ * <p>
+ * Scheduling a task with the key of a task that has not yet run replaces the pending task,
+ * so an outdated task never runs.
+ * <p>
+ * When the earliest task is due, a {@link Handler} message requests one {@link Choreographer} frame callback,
+ * and that frame callback runs all tasks that are due by then, in the order they were scheduled.
+ * Tasks due within the same frame therefore run together, before the frame is drawn.
+ * Frame callbacks do not fire while the screen is off or the activity is stopped,
+ * so if no frame arrives within {@link #FRAME_WAIT_MILLISECONDS} the handler runs the due tasks itself.
+ * <p>
+ * Use {@link ReVancedUtils#runOnMainThreadKeyed(String, Runnable)} and related methods.
+ */
+final class MainThreadScheduler {
+
+    /**
+     * How long to wait for a frame callback, before running due tasks without one.
+     * A few frames at 60Hz.
+     */
+    private static final long FRAME_WAIT_MILLISECONDS = 50;
+
+    private static final class Task {
+        @NonNull
+        final Runnable runnable;
+        /**
+         * {@link SystemClock#uptimeMillis()} when the task can run.
+         */
+        final long runAtUptime;
+
+        Task(@NonNull Runnable runnable, long runAtUptime) {
+            this.runnable = runnable;
+            this.runAtUptime = runAtUptime;
+        }
+    }
+
+    /**
+     * Key is the task key.  Iteration order is the order tasks were scheduled.
+     */
+    @GuardedBy("MainThreadScheduler.class")
+    private static final Map<String, Task> pendingTasks = new LinkedHashMap<>();
+
+    /**
+     * Uptime the drain is scheduled for, or {@link Long#MAX_VALUE} if none is scheduled.
+     */
+    @GuardedBy("MainThreadScheduler.class")
+    private static long drainScheduledUptime = Long.MAX_VALUE;
+
+    /**
+     * If a frame callback and the frame wait fallback are posted.  Only used on the main thread.
+     */
+    private static boolean frameDrainRequested;
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private static final AtomicLong tasksScheduled = new AtomicLong();
+    private static final AtomicLong tasksCoalesced = new AtomicLong();
+    private static final AtomicLong tasksCancelled = new AtomicLong();
+    private static final AtomicLong tasksExecuted = new AtomicLong();
+    private static final AtomicLong frameDrainsRun = new AtomicLong();
+    private static final AtomicLong fallbackDrainsRun = new AtomicLong();
+
+    private static final Runnable drainRequest = MainThreadScheduler::requestFrameDrain;
+
+    private static final Choreographer.FrameCallback frameDrain = frameTimeNanos -> {
+        frameDrainRequested = false;
+        handler.removeCallbacks(MainThreadScheduler.fallbackDrain);
+        frameDrainsRun.incrementAndGet();
+        runDueTasks();
+    };
+
+    private static final Runnable fallbackDrain = () -> {
+        frameDrainRequested = false;
+        Choreographer.getInstance().removeFrameCallback(MainThreadScheduler.frameDrain);
+        fallbackDrainsRun.incrementAndGet();
+        runDueTasks();
+    };
+
+    private MainThreadScheduler() {
+    }
+
+    static void schedule(@NonNull String key, @NonNull Runnable runnable, long delayMillis) {
+        final long runAtUptime = SystemClock.uptimeMillis() + Math.max(0, delayMillis);
+        tasksScheduled.incrementAndGet();
+        synchronized (MainThreadScheduler.class) {
+            // Remove first, so the replacement task is ordered after all other pending tasks.
+            if (pendingTasks.remove(key) != null) {
+                tasksCoalesced.incrementAndGet();
+            }
+            pendingTasks.put(key, new Task(runnable, runAtUptime));
+            scheduleDrain(runAtUptime);
+        }
+    }
+
+    static void cancel(@NonNull String key) {
+        synchronized (MainThreadScheduler.class) {
+            if (pendingTasks.remove(key) != null) {
+                tasksCancelled.incrementAndGet();
+            }
+        }
+    }
+
+    @GuardedBy("MainThreadScheduler.class")
+    private static void scheduleDrain(long runAtUptime) {
+        if (runAtUptime >= drainScheduledUptime) {
+            return; // An earlier drain is already scheduled.
+        }
+        drainScheduledUptime = runAtUptime;
+        handler.removeCallbacks(drainRequest);
+        handler.postAtTime(drainRequest, runAtUptime);
+    }
+
+    /**
+     * Runs on the main thread when the earliest pending task is due.
+     */
+    private static void requestFrameDrain() {
+        synchronized (MainThreadScheduler.class) {
+            drainScheduledUptime = Long.MAX_VALUE;
+        }
+        if (frameDrainRequested) {
+            return;
+        }
+        frameDrainRequested = true;
+        Choreographer.getInstance().postFrameCallback(frameDrain);
+        handler.postDelayed(fallbackDrain, FRAME_WAIT_MILLISECONDS);
+    }
+
+    private static void runDueTasks() {
+        final long now = SystemClock.uptimeMillis();
+        List<Task> dueTasks = new ArrayList<>();
+        synchronized (MainThreadScheduler.class) {
+            drainScheduledUptime = Long.MAX_VALUE;
+            long nextRunAtUptime = Long.MAX_VALUE;
+            Iterator<Task> iterator = pendingTasks.values().iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.runAtUptime <= now) {
+                    dueTasks.add(task);
+                    iterator.remove();
+                } else {
+                    nextRunAtUptime = Math.min(nextRunAtUptime, task.runAtUptime);
+                }
+            }
+            if (nextRunAtUptime == Long.MAX_VALUE) {
+                // A drain scheduled after the frame was requested may be left over.
+                handler.removeCallbacks(drainRequest);
+            } else {
+                scheduleDrain(nextRunAtUptime);
+            }
+        }
+
+        for (Task task : dueTasks) {
+            tasksExecuted.incrementAndGet();
+            try {
+                task.runnable.run();
+            } catch (Exception ex) {
+                LogHelper.printException(() -> task.runnable.getClass() + ": " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    @NonNull
+    static String getSummary() {
+        return String.format(Locale.US,
+                "Main thread tasks\nscheduled: %d  coalesced: %d  cancelled: %d\nexecuted: %d  frames: %d  without frame: %d",
+                tasksScheduled.get(), tasksCoalesced.get(), tasksCancelled.get(),
+                tasksExecuted.get(), frameDrainsRun.get(), fallbackDrainsRun.get());
+    }
+}
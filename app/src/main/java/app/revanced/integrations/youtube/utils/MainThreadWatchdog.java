@@ -0,0 +1,189 @@
+package app.revanced.integrations.youtube.utils;
+
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import app.revanced.integrations.youtube.settings.SettingsEnum;
+
+/**
+ * Debug tool that finds main thread messages that take too long, and attributes them to integration code.
+ * <p>
+ * The main looper message logging is used to time each message.  A watchdog thread samples
+ * the main thread stack while a message is running longer than {@link #STALL_THRESHOLD_MILLISECONDS},
+ * and the stall is attributed to the top most stack frame of integration code.
+ * Stalls without integration code on the stack are attributed to YouTube or the system.
+ * <p>
+ * Only runs if debug logging and {@link SettingsEnum#ENABLE_DEBUG_STALL_WATCHDOG} are enabled,
+ * as message logging and stack sampling are not free.
+ */
+public final class MainThreadWatchdog {
+    /**
+     * Messages running longer than this are considered a stall.
+     */
+    private static final long STALL_THRESHOLD_MILLISECONDS = 200;
+
+    private static final long POLL_INTERVAL_MILLISECONDS = 50;
+
+    /**
+     * Maximum number of offenders shown in the report.
+     */
+    private static final int REPORT_LIMIT = 10;
+
+    private static final String INTEGRATIONS_PACKAGE = "app.revanced.integrations.";
+    private static final String NOT_INTEGRATIONS_CODE = "YouTube or system code";
+    private static final String NOT_SAMPLED = "Not sampled";
+
+    private static final class Offender {
+        int stallCount;
+        long totalMilliseconds;
+        long maxMilliseconds;
+    }
+
+    /**
+     * Uptime the current message started, or zero if no message is running.
+     * Written by the main thread.
+     */
+    private static volatile long messageStartUptime;
+
+    /**
+     * Incremented when each message starts.  Written by the main thread.
+     */
+    private static volatile long messageNumber;
+
+    /**
+     * Message number and attribution of the last stall sample.  Written by the watchdog thread.
+     */
+    private static volatile long sampledMessageNumber = -1;
+    @NonNull
+    private static volatile String sampledAttribution = NOT_SAMPLED;
+
+    /**
+     * Key is the attributed stack frame.
+     */
+    @GuardedBy("offenders")
+    private static final Map<String, Offender> offenders = new HashMap<>();
+
+    private static boolean started;
+
+    private MainThreadWatchdog() {
+    }
+
+    /**
+     * Must be called on the main thread.
+     */
+    public static void startIfEnabled() {
+        if (started || !SettingsEnum.ENABLE_DEBUG_LOGGING.getBoolean()
+                || !SettingsEnum.ENABLE_DEBUG_STALL_WATCHDOG.getBoolean()) {
+            return;
+        }
+        started = true;
+
+        Looper mainLooper = Looper.getMainLooper();
+        mainLooper.setMessageLogging(line -> {
+            if (line.startsWith(">>>>>")) {
+                messageNumber++;
+                messageStartUptime = SystemClock.uptimeMillis();
+            } else if (line.startsWith("<<<<<")) {
+                final long startUptime = messageStartUptime;
+                messageStartUptime = 0;
+                if (startUptime != 0) {
+                    final long duration = SystemClock.uptimeMillis() - startUptime;
+                    if (duration >= STALL_THRESHOLD_MILLISECONDS) {
+                        recordStall(messageNumber, duration);
+                    }
+                }
+            }
+        });
+
+        Thread mainThread = mainLooper.getThread();
+        Thread watchdog = new Thread(() -> watch(mainThread), "revanced-stall-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.setPriority(Thread.NORM_PRIORITY - 1);
+        watchdog.start();
+        LogHelper.printDebug(() -> "Main thread stall watchdog started");
+    }
+
+    private static void watch(@NonNull Thread mainThread) {
+        while (true) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLISECONDS);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            final long startUptime = messageStartUptime;
+            final long number = messageNumber;
+            if (startUptime == 0 || number == sampledMessageNumber
+                    || SystemClock.uptimeMillis() - startUptime < STALL_THRESHOLD_MILLISECONDS) {
+                continue;
+            }
+            // Sample only once per message, as the first sample is closest to the start of the stall.
+            sampledAttribution = attribute(mainThread.getStackTrace());
+            sampledMessageNumber = number;
+        }
+    }
+
+    @NonNull
+    private static String attribute(@NonNull StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            if (element.getClassName().startsWith(INTEGRATIONS_PACKAGE)) {
+                return element.toString();
+            }
+        }
+        return NOT_INTEGRATIONS_CODE;
+    }
+
+    private static void recordStall(long number, long durationMilliseconds) {
+        final String attribution = (sampledMessageNumber == number)
+                ? sampledAttribution
+                : NOT_SAMPLED;
+        synchronized (offenders) {
+            Offender offender = offenders.get(attribution);
+            if (offender == null) {
+                offender = new Offender();
+                offenders.put(attribution, offender);
+            }
+            offender.stallCount++;
+            offender.totalMilliseconds += durationMilliseconds;
+            offender.maxMilliseconds = Math.max(offender.maxMilliseconds, durationMilliseconds);
+        }
+        if (!attribution.equals(NOT_INTEGRATIONS_CODE)) {
+            LogHelper.printDebug(() -> "Main thread stalled for: " + durationMilliseconds + "ms at: " + attribution);
+        }
+    }
+
+    /**
+     * @return The worst offenders by total stall time, or an empty string if the watchdog is not running.
+     */
+    @NonNull
+    public static String getReport() {
+        if (!started) {
+            return "";
+        }
+        synchronized (offenders) {
+            List<Map.Entry<String, Offender>> entries = new ArrayList<>(offenders.entrySet());
+            StringBuilder builder = new StringBuilder("Main thread stalls over ")
+                    .append(STALL_THRESHOLD_MILLISECONDS).append("ms");
+            if (entries.isEmpty()) {
+                return builder.append("\nnone").toString();
+            }
+            entries.sort((first, second) ->
+                    Long.compare(second.getValue().totalMilliseconds, first.getValue().totalMilliseconds));
+            for (int i = 0, size = Math.min(REPORT_LIMIT, entries.size()); i < size; i++) {
+                Map.Entry<String, Offender> entry = entries.get(i);
+                Offender offender = entry.getValue();
+                builder.append(String.format(Locale.US, "\n%s\nstalls: %d  total: %dms  max: %dms",
+                        entry.getKey(), offender.stallCount, offender.totalMilliseconds, offender.maxMilliseconds));
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -24,29 +24,11 @@ import java.text.Bidi;
 import java.util.Locale;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @noinspection ALL
  */
 public class ReVancedUtils {
-    /**
-     * General purpose pool for network calls and other background tasks.
-     * All tasks run at max thread priority.
-     */
-    private static final ThreadPoolExecutor backgroundThreadPool = new ThreadPoolExecutor(
-            2, // 2 threads always ready to go
-            Integer.MAX_VALUE,
-            10, // For any threads over the minimum, keep them alive 10 seconds after they go idle
-            TimeUnit.SECONDS,
-            new SynchronousQueue<>(),
-            r -> { // ThreadFactory
-                Thread t = new Thread(r);
-                t.setPriority(Thread.MAX_PRIORITY); // run at max priority
-                return t;
-            });
     @SuppressLint("StaticFieldLeak")
     public static Context context;
     @Nullable
@@ -123,13 +105,29 @@ public class ReVancedUtils {
         return -1;
     }
 
+    /**
+     * Runs the task using {@link BackgroundLane#BLOCKING}.
+     * Short tasks that nothing waits on should instead use {@link BackgroundLane#NETWORK}.
+     */
     public static void runOnBackgroundThread(@NonNull Runnable task) {
-        backgroundThreadPool.execute(task);
+        BackgroundLane.BLOCKING.execute(task);
+    }
+
+    public static void runOnBackgroundThread(@NonNull BackgroundLane lane, @NonNull Runnable task) {
+        lane.execute(task);
     }
 
+    /**
+     * Runs the call using {@link BackgroundLane#BLOCKING}.
+     */
     @NonNull
     public static <T> Future<T> submitOnBackgroundThread(@NonNull Callable<T> call) {
-        return backgroundThreadPool.submit(call);
+        return BackgroundLane.BLOCKING.submit(call);
+    }
+
+    @NonNull
+    public static <T> Future<T> submitOnBackgroundThread(@NonNull BackgroundLane lane, @NonNull Callable<T> call) {
+        return lane.submit(call);
     }
 
     /**
@@ -213,6 +211,38 @@ public class ReVancedUtils {
         new Handler(Looper.getMainLooper()).postDelayed(loggingRunnable, delayMillis);
     }
 
+    /**
+     * Runs on the main thread as soon as it is free, and replaces any pending task scheduled with the same key.
+     * Automatically logs any exceptions the runnable throws.
+     *
+     * @param key Unique key of the task, such as the class name and what the task updates.
+     */
+    public static void runOnMainThreadKeyed(@NonNull String key, @NonNull Runnable runnable) {
+        MainThreadScheduler.schedule(key, runnable, 0);
+    }
+
+    /**
+     * Same as {@link #runOnMainThreadKeyed(String, Runnable)}, but waits until the delay has passed.
+     */
+    public static void runOnMainThreadKeyedDelayed(@NonNull String key, @NonNull Runnable runnable, long delayMillis) {
+        MainThreadScheduler.schedule(key, runnable, delayMillis);
+    }
+
+    /**
+     * Removes the pending task of a key, if it has not yet run.
+     */
+    public static void cancelOnMainThreadKeyed(@NonNull String key) {
+        MainThreadScheduler.cancel(key);
+    }
+
+    /**
+     * @return Statistics of keyed main thread tasks.
+     */
+    @NonNull
+    public static String getMainThreadKeyedSummary() {
+        return MainThreadScheduler.getSummary();
+    }
+
     /**
      * If called from the main thread, the code is run immediately.<p>
      * If called off the main thread, this is the same as {@link #runOnMainThread(Runnable)}.
@@ -274,6 +304,17 @@ public class ReVancedUtils {
         return meaninglessValue;
     }
 
+    /**
+     * @return If the active network is metered, or if no network is connected.
+     */
+    @SuppressLint("MissingPermission") // permission already included in YouTube
+    public static boolean isNetworkMetered() {
+        if (context == null || !(context.getSystemService(Context.CONNECTIVITY_SERVICE) instanceof ConnectivityManager cm))
+            return true;
+
+        return cm.isActiveNetworkMetered();
+    }
+
     @SuppressLint("MissingPermission") // permission already included in YouTube
     public static NetworkType getNetworkType() {
         if (context == null || !(context.getSystemService(Context.CONNECTIVITY_SERVICE) instanceof ConnectivityManager cm))
@@ -0,0 +1,116 @@
+package app.revanced.integrations.youtube.utils;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import app.revanced.integrations.youtube.patches.video.VideoInformation;
+
+/**
+ * Background work done for a specific video, that is no longer needed once a different video is opened.
+ * <p>
+ * When the current video changes, tasks of all other videos that have not finished are cancelled
+ * and their threads are interrupted.  Cancelled tasks must not update any UI or shared state.
+ * <p>
+ * Speculative fetches for videos the user may open or return to must not use this class,
+ * otherwise they are cancelled before they are used.
+ * <p>
+ * The current video is tracked using {@link EventBus#VIDEO_CHANGED}.
+ */
+public final class VideoTaskScope {
+    /**
+     * Key is the video id.
+     */
+    @GuardedBy("VideoTaskScope.class")
+    private static final Map<String, List<Future<?>>> tasks = new HashMap<>();
+
+    @GuardedBy("VideoTaskScope.class")
+    @NonNull
+    private static String currentVideoId = "";
+
+    private static final AtomicLong tasksSubmitted = new AtomicLong();
+    private static final AtomicLong tasksCancelled = new AtomicLong();
+
+    private VideoTaskScope() {
+    }
+
+    /**
+     * Subscribes to video changes.  Called once during initialization, before any video is opened.
+     */
+    public static void subscribeToEvents() {
+        EventBus.VIDEO_CHANGED.subscribe("Video tasks", EventBus.POSTING_THREAD, VideoTaskScope::setCurrentVideoId);
+        setCurrentVideoId(VideoInformation.getVideoId());
+    }
+
+    /**
+     * Runs a task for a video.
+     */
+    public static void execute(@NonNull BackgroundLane lane, @NonNull String videoId, @NonNull Runnable task) {
+        FutureTask<Void> future = new FutureTask<>(task, null);
+        lane.execute(future);
+        add(videoId, future);
+    }
+
+    /**
+     * Adds an already submitted task for a video.
+     */
+    public static synchronized void add(@NonNull String videoId, @NonNull Future<?> future) {
+        tasksSubmitted.incrementAndGet();
+        List<Future<?>> videoTasks = tasks.get(videoId);
+        if (videoTasks == null) {
+            videoTasks = new ArrayList<>();
+            tasks.put(videoId, videoTasks);
+        } else {
+            videoTasks.removeIf(Future::isDone);
+        }
+        videoTasks.add(future);
+    }
+
+    /**
+     * Called when a video is opened.  Cancels all unfinished tasks of other videos.
+     */
+    private static void setCurrentVideoId(@NonNull String videoId) {
+        List<Future<?>> staleTasks = new ArrayList<>();
+        synchronized (VideoTaskScope.class) {
+            if (currentVideoId.equals(videoId)) {
+                return;
+            }
+            currentVideoId = videoId;
+            Iterator<Map.Entry<String, List<Future<?>>>> iterator = tasks.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, List<Future<?>>> entry = iterator.next();
+                if (!entry.getKey().equals(videoId)) {
+                    staleTasks.addAll(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+
+        int cancelled = 0;
+        for (Future<?> future : staleTasks) {
+            if (future.cancel(true)) {
+                cancelled++;
+            }
+        }
+        if (cancelled > 0) {
+            tasksCancelled.addAndGet(cancelled);
+            final int cancelledCount = cancelled;
+            LogHelper.printDebug(() -> "Cancelled " + cancelledCount + " tasks of previous videos");
+        }
+    }
+
+    @NonNull
+    public static String getSummary() {
+        return String.format(Locale.US, "Video tasks\nsubmitted: %d  cancelled: %d",
+                tasksSubmitted.get(), tasksCancelled.get());
+    }
+}
@@ -0,0 +1,126 @@
+package app.revanced.integrations.youtube.patches.alternativethumbnails;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import app.revanced.integrations.youtube.requests.StandInApiServer;
+import app.revanced.integrations.youtube.requests.StandInApiServer.Response;
+import app.revanced.integrations.youtube.utils.TestContext;
+
+/**
+ * DeArrow and still image thumbnail verification against a stand-in server.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ThumbnailVerifierTest {
+    private static final String THUMBNAIL_PATH = "/api/v1/getThumbnail?videoID=";
+
+    private StandInApiServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        TestContext.install();
+        server = new StandInApiServer();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    private String thumbnailUrl(String videoId) {
+        return server.getUrl() + THUMBNAIL_PATH + videoId;
+    }
+
+    @Test
+    public void existingImageIsVerified() throws ExecutionException, InterruptedException {
+        server.setResponse(THUMBNAIL_PATH + "exists", Response.status(206).withHeader("Content-Type", "image/webp"));
+
+        assertTrue(ThumbnailVerifier.verify(thumbnailUrl("exists")).get());
+
+        StandInApiServer.RecordedRequest request = server.getRequests().get(0);
+        assertEquals("HEAD", request.method);
+        assertEquals("bytes=0-0", request.headers.get("range"));
+    }
+
+    @Test
+    public void missingImageIsNotVerified() throws ExecutionException, InterruptedException {
+        assertFalse(ThumbnailVerifier.verify(thumbnailUrl("missing")).get());
+    }
+
+    @Test
+    public void nonImageResponseIsNotVerified() throws ExecutionException, InterruptedException {
+        server.setResponse(THUMBNAIL_PATH + "html", Response.status(206).withHeader("Content-Type", "text/html"));
+
+        assertFalse(ThumbnailVerifier.verify(thumbnailUrl("html")).get());
+    }
+
+    @Test
+    public void concurrentVerificationsShareOneRequest() throws ExecutionException, InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        server.setResponse(THUMBNAIL_PATH + "shared",
+                Response.status(206).withHeader("Content-Type", "image/jpeg").heldUntil(release));
+
+        Future<Boolean> first = ThumbnailVerifier.verify(thumbnailUrl("shared"));
+        Future<Boolean> second = ThumbnailVerifier.verify(thumbnailUrl("shared"));
+        release.countDown();
+        assertSame(first, second);
+        assertTrue(first.get());
+        assertEquals(1, server.getRequestCount(THUMBNAIL_PATH + "shared"));
+    }
+
+    @Test
+    public void queuedVerificationsAllComplete() throws ExecutionException, InterruptedException {
+        // More verifications than concurrent requests, and all are held until queued, so some wait in the queue.
+        CountDownLatch release = new CountDownLatch(1);
+        final int count = 10;
+        Future<?>[] futures = new Future<?>[count];
+        for (int i = 0; i < count; i++) {
+            server.setResponse(THUMBNAIL_PATH + "queued" + i,
+                    Response.status(206).withHeader("Content-Type", "image/jpeg").heldUntil(release));
+            futures[i] = ThumbnailVerifier.verify(thumbnailUrl("queued" + i));
+        }
+        release.countDown();
+        for (Future<?> future : futures) {
+            assertEquals(Boolean.TRUE, future.get());
+        }
+        assertEquals(count, server.getRequestCount(THUMBNAIL_PATH + "queued"));
+    }
+
+    @Test
+    public void backgroundVerificationCallsBack() throws InterruptedException {
+        server.setResponse(THUMBNAIL_PATH + "callback", Response.status(206).withHeader("Content-Type", "image/jpeg"));
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean exists = new AtomicBoolean();
+
+        ThumbnailVerifier.verifyInBackground(thumbnailUrl("callback"), result -> {
+            exists.set(result);
+            latch.countDown();
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(exists.get());
+    }
+
+    @Test
+    public void unresponsiveServerIsNotVerified() throws ExecutionException, InterruptedException, IOException {
+        // Closing the server refuses the connection.
+        String url = thumbnailUrl("closed");
+        server.close();
+
+        assertFalse(ThumbnailVerifier.verify(url).get());
+    }
+}
@@ -0,0 +1,184 @@
+package app.revanced.integrations.youtube.patches.misc.requests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import app.revanced.integrations.youtube.patches.misc.StoryboardRenderer;
+import app.revanced.integrations.youtube.requests.CircuitBreaker;
+import app.revanced.integrations.youtube.requests.RequestHarness;
+import app.revanced.integrations.youtube.requests.StandInApiServer;
+import app.revanced.integrations.youtube.requests.StandInApiServer.Response;
+import app.revanced.integrations.youtube.utils.TestContext;
+
+/**
+ * {@link PlayerResponseRequester} and {@link StoryboardRendererRequester} requests against a stand-in InnerTube server.
+ * <p>
+ * The whitelist fetches the channel of a video using {@link PlayerResponseRequester#getPlayerResponse(String)}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PlayerResponseRequesterTest {
+    private static final String PLAYER_PATH = "/youtubei/v1/player";
+    private static final String ANDROID_CLIENT = "\"clientName\":\"ANDROID\"";
+    private static final String TV_EMBED_CLIENT = "\"clientName\":\"TVHTML5_SIMPLY_EMBEDDED_PLAYER\"";
+
+    /**
+     * Player responses are cached for the life of the test process, so each test uses new video ids.
+     */
+    private static final AtomicInteger videoNumber = new AtomicInteger();
+
+    private StandInApiServer server;
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() throws IOException {
+        TestContext.install();
+        server = new StandInApiServer();
+        PlayerRoutes.setApiUrl(server.getUrl() + "/youtubei/v1/");
+        circuitBreaker = CircuitBreaker.forHost(server.getHost());
+        circuitBreaker.reset();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        circuitBreaker.reset();
+        PlayerRoutes.setApiUrl(PlayerRoutes.YT_API_URL);
+    }
+
+    private static String newVideoId() {
+        return String.format(Locale.US, "player%05d", videoNumber.incrementAndGet());
+    }
+
+    private static String playableResponse(String spec) {
+        return "{\"playabilityStatus\":{\"status\":\"OK\"},\"videoDetails\":{\"channelId\":\"channel\"},"
+                + "\"storyboards\":{\"playerStoryboardSpecRenderer\":{\"spec\":\"" + spec + "\"}}}";
+    }
+
+    private static final String UNPLAYABLE_RESPONSE = "{\"playabilityStatus\":{\"status\":\"LOGIN_REQUIRED\"}}";
+
+    private int getClientRequestCount(String client) {
+        int count = 0;
+        for (StandInApiServer.RecordedRequest request : server.getRequests()) {
+            if (request.target.startsWith(PLAYER_PATH) && request.getBodyString().contains(client)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void playerResponseIsFetchedUsingTvEmbedClient() throws Exception {
+        final String videoId = newVideoId();
+        server.setResponse(PLAYER_PATH, Response.json(playableResponse("spec")));
+
+        JSONObject playerResponse = RequestHarness.call(() -> PlayerResponseRequester.getPlayerResponse(videoId));
+        assertNotNull(playerResponse);
+        assertEquals("channel", playerResponse.getJSONObject("videoDetails").getString("channelId"));
+
+        StandInApiServer.RecordedRequest request = server.getRequests().get(0);
+        assertEquals("POST", request.method);
+        assertTrue(request.getBodyString().contains(TV_EMBED_CLIENT));
+        assertEquals(videoId, new JSONObject(request.getBodyString()).getString("videoId"));
+    }
+
+    @Test
+    public void playableResponseIsReused() throws Exception {
+        final String videoId = newVideoId();
+        server.setResponse(PLAYER_PATH, Response.json(playableResponse("spec")));
+
+        JSONObject first = RequestHarness.call(() -> PlayerResponseRequester.getPlayerResponse(videoId));
+        JSONObject second = RequestHarness.call(() -> PlayerResponseRequester.getPlayerResponse(videoId));
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(1, server.getRequestCount(PLAYER_PATH));
+    }
+
+    @Test
+    public void unplayableResponseIsNotReused() throws Exception {
+        final String videoId = newVideoId();
+        server.setResponse(PLAYER_PATH, Response.json(UNPLAYABLE_RESPONSE));
+
+        RequestHarness.call(() -> PlayerResponseRequester.getPlayerResponse(videoId));
+        RequestHarness.call(() -> PlayerResponseRequester.getPlayerResponse(videoId));
+        assertNull(PlayerResponseRequester.getCachedPlayerResponse(videoId));
+        assertEquals(2, server.getRequestCount(PLAYER_PATH));
+    }
+
+    @Test
+    public void rateLimitedFetchesAreNotSent() throws Exception {
+        server.setResponse(PLAYER_PATH, Response.status(429).withHeader("Retry-After", "60"));
+
+        for (int i = 0; i < 3; i++) {
+            final String videoId = newVideoId();
+            assertNull(RequestHarness.call(() -> PlayerResponseRequester.getPlayerResponse(videoId)));
+        }
+        assertEquals(1, server.getRequestCount(PLAYER_PATH));
+        assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void storyboardIsFetchedUsingAndroidClient() throws Exception {
+        final String videoId = newVideoId();
+        server.setResponse(PLAYER_PATH, Response.json(playableResponse("androidSpec")));
+
+        StoryboardRenderer renderer = RequestHarness.call(() -> StoryboardRendererRequester.getStoryboardRenderer(videoId));
+        assertNotNull(renderer);
+        assertEquals("androidSpec", renderer.getSpec());
+        assertEquals(1, getClientRequestCount(ANDROID_CLIENT));
+        assertEquals(0, getClientRequestCount(TV_EMBED_CLIENT));
+
+        // The whitelist uses the same response.
+        assertNotNull(RequestHarness.call(() -> PlayerResponseRequester.getPlayerResponse(videoId)));
+        assertEquals(1, server.getRequestCount(PLAYER_PATH));
+    }
+
+    @Test
+    public void unplayableAndroidResponseFallsBackToTvEmbedClient() throws Exception {
+        final String videoId = newVideoId();
+        server.setResponder(PLAYER_PATH, request -> request.getBodyString().contains(ANDROID_CLIENT)
+                ? Response.json(UNPLAYABLE_RESPONSE)
+                : Response.json(playableResponse("tvSpec")));
+
+        StoryboardRenderer renderer = RequestHarness.call(() -> StoryboardRendererRequester.getStoryboardRenderer(videoId));
+        assertNotNull(renderer);
+        assertEquals("tvSpec", renderer.getSpec());
+        assertEquals(1, getClientRequestCount(ANDROID_CLIENT));
+        assertEquals(1, getClientRequestCount(TV_EMBED_CLIENT));
+    }
+
+    @Test
+    public void slowAndroidClientIsHedgedWithTvEmbedClient() throws Exception {
+        final String videoId = newVideoId();
+        CountDownLatch releaseAndroid = new CountDownLatch(1);
+        server.setResponder(PLAYER_PATH, request -> request.getBodyString().contains(ANDROID_CLIENT)
+                ? Response.json(playableResponse("androidSpec")).heldUntil(releaseAndroid)
+                : Response.json(playableResponse("tvSpec")));
+
+        try {
+            StoryboardRenderer renderer = RequestHarness.call(() -> StoryboardRendererRequester.getStoryboardRenderer(videoId));
+            assertNotNull(renderer);
+            assertEquals("tvSpec", renderer.getSpec());
+            assertEquals(1, getClientRequestCount(TV_EMBED_CLIENT));
+            // The cancelled Android request is not a failure.
+            assertFalse(circuitBreaker.isOpen());
+        } finally {
+            releaseAndroid.countDown();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package app.revanced.integrations.youtube.patches.misc.requests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pre-encoded InnerTube request bodies.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PlayerRoutesTest {
+    private static final String VIDEO_ID = "dQw4w9WgXcQ";
+
+    private static final PlayerRoutes.InnerTubeBody[] BODIES = {
+            PlayerRoutes.ANDROID_INNER_TUBE_BODY,
+            PlayerRoutes.TV_EMBED_INNER_TUBE_BODY,
+            PlayerRoutes.WEB_INNER_TUBE_BODY
+    };
+
+    private static JSONObject decode(byte[] body) throws JSONException {
+        return new JSONObject(new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void requestBodiesContainTheVideoId() throws JSONException {
+        for (PlayerRoutes.InnerTubeBody body : BODIES) {
+            JSONObject json = decode(body.getBytes(VIDEO_ID));
+            assertEquals(VIDEO_ID, json.getString("videoId"));
+            assertTrue(json.getJSONObject("context").has("client"));
+        }
+    }
+
+    @Test
+    public void tvEmbedBodyContainsTheVideoIdTwice() throws JSONException {
+        JSONObject json = decode(PlayerRoutes.TV_EMBED_INNER_TUBE_BODY.getBytes(VIDEO_ID));
+        assertEquals("https://www.youtube.com/watch?v=" + VIDEO_ID,
+                json.getJSONObject("context").getJSONObject("thirdParty").getString("embedUrl"));
+    }
+
+    @Test
+    public void eachRequestGetsItsOwnBody() throws JSONException {
+        for (PlayerRoutes.InnerTubeBody body : BODIES) {
+            byte[] first = body.getBytes(VIDEO_ID);
+            byte[] second = body.getBytes("otherVideo1");
+            assertNotSame(first, second);
+            assertArrayEquals(first, body.getBytes(VIDEO_ID));
+            assertEquals("otherVideo1", decode(second).getString("videoId"));
+        }
+    }
+}
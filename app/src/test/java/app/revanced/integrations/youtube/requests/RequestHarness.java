@@ -0,0 +1,56 @@
+package app.revanced.integrations.youtube.requests;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Calls an API requester and measures the end to end latency.
+ * <p>
+ * Robolectric runs tests on the main thread, and the requesters must be called off the main thread,
+ * so each call runs on a separate thread and the test waits for the result.
+ * <p>
+ * The latency is printed to the test report.  It is not asserted on, as it depends on the machine running
+ * the tests.  Tests instead assert on the result, the requests the server received, and the back off state.
+ */
+public final class RequestHarness {
+    /**
+     * Longer than any requester timeout, so a requester that never returns fails the test.
+     */
+    private static final long CALL_TIMEOUT_SECONDS = 90;
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "request-harness");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private RequestHarness() {
+    }
+
+    /**
+     * @param call Requester call.  Exceptions thrown by the call fail the test.
+     * @return The value returned by the requester.
+     */
+    @Nullable
+    public static <T> T call(@NonNull Callable<T> call)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Future<T> future = executor.submit(() -> {
+            final long startTime = System.nanoTime();
+            try {
+                return call.call();
+            } finally {
+                final long latencyMilliseconds = (System.nanoTime() - startTime) / 1_000_000;
+                System.out.println("Requester call took: " + latencyMilliseconds + "ms");
+            }
+        });
+        return future.get(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
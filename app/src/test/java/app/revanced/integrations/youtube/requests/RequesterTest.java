@@ -0,0 +1,230 @@
+package app.revanced.integrations.youtube.requests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import app.revanced.integrations.youtube.requests.StandInApiServer.Response;
+import app.revanced.integrations.youtube.utils.TestContext;
+
+/**
+ * Response reading, route metrics and circuit breaker state, using connections to a stand-in server.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RequesterTest {
+    private static final int TIMEOUT_MILLISECONDS = 5000;
+
+    /**
+     * Larger than the maximum presized read array.
+     */
+    private static final int LARGE_PAYLOAD_LENGTH = 3 * 1024 * 1024;
+
+    private StandInApiServer server;
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() throws IOException {
+        TestContext.install();
+        server = new StandInApiServer();
+        circuitBreaker = CircuitBreaker.forHost(server.getHost());
+        circuitBreaker.reset();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        circuitBreaker.reset();
+    }
+
+    private HttpURLConnection connect(Route route, String... params) throws IOException {
+        HttpURLConnection connection = Requester.getConnectionFromRoute(server.getUrl(), route, params);
+        connection.setConnectTimeout(TIMEOUT_MILLISECONDS);
+        connection.setReadTimeout(TIMEOUT_MILLISECONDS);
+        return connection;
+    }
+
+    /**
+     * @return Response code, after recording it to the circuit breaker.
+     */
+    private int getResponseCode(Route route, int... expectedResponseCodes) throws IOException {
+        HttpURLConnection connection = connect(route);
+        final int responseCode = Requester.getResponseCode(connection, route.getMetrics(), circuitBreaker, null);
+        circuitBreaker.recordResponse(connection, responseCode, expectedResponseCodes);
+        connection.disconnect();
+        return responseCode;
+    }
+
+    @Test
+    public void requestsAreRecordedToRouteMetrics() throws IOException {
+        server.setResponse("/test/metrics", Response.json("{}"));
+        Route route = new Route(Route.Method.GET, "/test/metrics?id={id}");
+
+        final int requestCount = 5;
+        for (int i = 0; i < requestCount; i++) {
+            HttpURLConnection connection = connect(route, "video" + i);
+            assertEquals(200, Requester.getResponseCode(connection, route.getMetrics(), circuitBreaker, null));
+            assertEquals("{}", Requester.parseJson(connection));
+        }
+
+        String summary = route.getMetrics().getSummary();
+        assertTrue(summary, summary.contains("requests: " + requestCount));
+        assertTrue(summary, summary.contains("2xx: " + requestCount));
+        assertTrue(summary, summary.contains("received: " + (2 * requestCount) + " bytes"));
+        assertEquals(requestCount, server.getRequestCount("/test/metrics"));
+    }
+
+    @Test
+    public void largeResponseWithContentLengthIsReadCompletely() throws IOException {
+        server.setResponse("/test/large", Response.payload(LARGE_PAYLOAD_LENGTH));
+        Route route = new Route(Route.Method.GET, "/test/large");
+
+        HttpURLConnection connection = connect(route);
+        assertEquals(200, Requester.getResponseCode(connection, route.getMetrics(), circuitBreaker, null));
+        assertArrayEquals(StandInApiServer.payloadBytes(LARGE_PAYLOAD_LENGTH), Requester.parseBytes(connection));
+        assertTrue(route.getMetrics().getSummary().contains("received: " + LARGE_PAYLOAD_LENGTH + " bytes"));
+    }
+
+    @Test
+    public void largeResponseWithoutContentLengthIsReadCompletely() throws IOException {
+        server.setResponse("/test/unknown-length", Response.payload(LARGE_PAYLOAD_LENGTH).withoutContentLength());
+        Route route = new Route(Route.Method.GET, "/test/unknown-length");
+
+        HttpURLConnection connection = connect(route);
+        assertEquals(200, Requester.getResponseCode(connection, route.getMetrics(), circuitBreaker, null));
+        assertArrayEquals(StandInApiServer.payloadBytes(LARGE_PAYLOAD_LENGTH), Requester.parseBytes(connection));
+    }
+
+    @Test
+    public void jsonResponseIsDecoded() throws IOException {
+        final String json = "{\n\"title\": \"été ☃\"\n}";
+        server.setResponse("/test/json", Response.json(json));
+        Route route = new Route(Route.Method.GET, "/test/json");
+
+        HttpURLConnection connection = connect(route);
+        assertEquals(200, Requester.getResponseCode(connection, route.getMetrics(), circuitBreaker, null));
+        assertEquals(json.replace("\n", ""), Requester.parseJson(connection));
+    }
+
+    @Test
+    public void requestBodyIsSent() throws IOException {
+        server.setResponse("/test/post", Response.json("{}"));
+        Route route = new Route(Route.Method.POST, "/test/post");
+        byte[] body = "{\"videoId\":\"abc\"}".getBytes(StandardCharsets.UTF_8);
+
+        HttpURLConnection connection = connect(route);
+        connection.setDoOutput(true);
+        assertEquals(200, Requester.getResponseCode(connection, route.getMetrics(), circuitBreaker, body));
+        StandInApiServer.RecordedRequest request = server.getRequests().get(0);
+        assertEquals("POST", request.method);
+        assertArrayEquals(body, request.body);
+        assertTrue(route.getMetrics().getSummary().contains("sent: " + body.length + " bytes"));
+    }
+
+    @Test
+    public void rateLimitResponseOpensCircuitBreaker() throws IOException {
+        server.setResponse("/test/rate-limit", Response.status(429).withHeader("Retry-After", "120"));
+        Route route = new Route(Route.Method.GET, "/test/rate-limit");
+
+        assertEquals(429, getResponseCode(route));
+        assertTrue(circuitBreaker.isOpen());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void serverUnavailableOpensCircuitBreaker() throws IOException {
+        server.setResponse("/test/unavailable", Response.status(503));
+        Route route = new Route(Route.Method.GET, "/test/unavailable");
+
+        assertEquals(503, getResponseCode(route));
+        assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void droppedConnectionsOpenCircuitBreakerAfterThreeFailures() throws IOException {
+        server.setResponse("/test/disconnect", Response.disconnect());
+        Route route = new Route(Route.Method.GET, "/test/disconnect");
+
+        for (int i = 1; i <= 3; i++) {
+            try {
+                getResponseCode(route);
+                fail();
+            } catch (IOException expected) {
+                assertEquals(i == 3, circuitBreaker.isOpen());
+            }
+        }
+        assertTrue(route.getMetrics().getSummary().contains("errors: 3"));
+    }
+
+    @Test
+    public void timeoutIsRecordedToRouteMetrics() throws IOException {
+        server.setResponse("/test/hang", Response.hang());
+        Route route = new Route(Route.Method.GET, "/test/hang");
+
+        HttpURLConnection connection = connect(route);
+        connection.setReadTimeout(250);
+        try {
+            Requester.getResponseCode(connection, route.getMetrics(), circuitBreaker, null);
+            fail();
+        } catch (SocketTimeoutException expected) {
+            assertTrue(route.getMetrics().getSummary().contains("timeouts: 1"));
+            assertFalse(circuitBreaker.isOpen());
+        }
+    }
+
+    @Test
+    public void expectedErrorResponsesDoNotOpenCircuitBreaker() throws IOException {
+        Route route = new Route(Route.Method.GET, "/test/not-found");
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(404, getResponseCode(route, 404));
+        }
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void unexpectedErrorResponsesOpenCircuitBreaker() throws IOException {
+        server.setResponse("/test/error", Response.status(500));
+        Route route = new Route(Route.Method.GET, "/test/error");
+
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(500, getResponseCode(route));
+            assertEquals(i == 3, circuitBreaker.isOpen());
+        }
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() throws IOException {
+        server.setResponse("/test/error", Response.status(500));
+        server.setResponse("/test/ok", Response.json("{}"));
+        Route error = new Route(Route.Method.GET, "/test/error");
+        Route ok = new Route(Route.Method.GET, "/test/ok");
+
+        for (int i = 0; i < 3; i++) {
+            getResponseCode(error);
+            getResponseCode(error);
+            assertEquals(200, getResponseCode(ok));
+        }
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void retryAfterIsParsed() {
+        assertEquals(120_000, CircuitBreaker.parseRetryAfter("120"));
+        assertEquals(0, CircuitBreaker.parseRetryAfter(null));
+        assertEquals(0, CircuitBreaker.parseRetryAfter("not a value"));
+        assertEquals(0, CircuitBreaker.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+}
@@ -0,0 +1,375 @@
+package app.revanced.integrations.youtube.requests;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server that stands in for the SponsorBlock, Return YouTube Dislike, DeArrow and InnerTube APIs.
+ * <p>
+ * Each path prefix has a scripted response, that can add latency, request a back off,
+ * never respond so the client times out, drop the connection, or return a large body.
+ * A {@link Responder} can instead choose the response using the request, such as the InnerTube client name.
+ * Requests to paths without a response get a 404.  Every request is recorded.
+ * <p>
+ * The JDK http server is not part of the Android class library the unit tests compile against,
+ * so this is a minimal HTTP/1.1 server that closes the connection after each response.
+ */
+public final class StandInApiServer implements Closeable {
+
+    public static final class Response {
+        private final int statusCode;
+        @NonNull
+        private final byte[] body;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private long latencyMilliseconds;
+        private boolean includeContentLength = true;
+        private boolean neverRespond;
+        private boolean disconnect;
+        @Nullable
+        private CountDownLatch release;
+
+        private Response(int statusCode, @NonNull byte[] body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        @NonNull
+        public static Response status(int statusCode) {
+            return new Response(statusCode, new byte[0]);
+        }
+
+        @NonNull
+        public static Response json(@NonNull String json) {
+            return new Response(200, json.getBytes(StandardCharsets.UTF_8))
+                    .withHeader("Content-Type", "application/json");
+        }
+
+        /**
+         * @return A response with a body of the given length, where each byte is the index modulo 256.
+         */
+        @NonNull
+        public static Response payload(int length) {
+            return new Response(200, payloadBytes(length))
+                    .withHeader("Content-Type", "application/octet-stream");
+        }
+
+        /**
+         * @return A response that is never sent.  The connection stays open until the server is closed.
+         */
+        @NonNull
+        public static Response hang() {
+            Response response = status(200);
+            response.neverRespond = true;
+            return response;
+        }
+
+        /**
+         * @return A response that closes the connection without sending anything.
+         */
+        @NonNull
+        public static Response disconnect() {
+            Response response = status(200);
+            response.disconnect = true;
+            return response;
+        }
+
+        @NonNull
+        public Response withHeader(@NonNull String name, @NonNull String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        /**
+         * @param latencyMilliseconds Time between receiving the request and sending the response headers.
+         */
+        @NonNull
+        public Response withLatency(long latencyMilliseconds) {
+            this.latencyMilliseconds = latencyMilliseconds;
+            return this;
+        }
+
+        /**
+         * Sends the response only after the latch is released, so tests can control
+         * which requests are in progress at the same time without relying on timing.
+         */
+        @NonNull
+        public Response heldUntil(@NonNull CountDownLatch release) {
+            this.release = release;
+            return this;
+        }
+
+        /**
+         * Sends the body without a Content-Length header.  The body ends when the connection closes.
+         */
+        @NonNull
+        public Response withoutContentLength() {
+            includeContentLength = false;
+            return this;
+        }
+    }
+
+    public interface Responder {
+        @NonNull
+        Response respond(@NonNull RecordedRequest request);
+    }
+
+    public static final class RecordedRequest {
+        @NonNull
+        public final String method;
+        /**
+         * Path and query.
+         */
+        @NonNull
+        public final String target;
+        /**
+         * Key is the lower case header name.
+         */
+        @NonNull
+        public final Map<String, String> headers;
+        @NonNull
+        public final byte[] body;
+
+        @NonNull
+        public String getBodyString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        private RecordedRequest(@NonNull String method, @NonNull String target,
+                                @NonNull Map<String, String> headers, @NonNull byte[] body) {
+            this.method = method;
+            this.target = target;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    /**
+     * @return Bytes where each byte is the index modulo 256.
+     */
+    @NonNull
+    public static byte[] payloadBytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    @NonNull
+    private final ServerSocket serverSocket;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "stand-in-api-server");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Key is the path prefix.
+     */
+    private final Map<String, Responder> responses = new ConcurrentHashMap<>();
+
+    private final List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    public StandInApiServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptConnections);
+    }
+
+    /**
+     * @return Url of the server, without a trailing slash.
+     */
+    @NonNull
+    public String getUrl() {
+        return "http://" + getHost() + ":" + serverSocket.getLocalPort();
+    }
+
+    @NonNull
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    /**
+     * @param pathPrefix Start of the request path and query.  The longest matching prefix is used.
+     */
+    public void setResponse(@NonNull String pathPrefix, @NonNull Response response) {
+        responses.put(pathPrefix, request -> response);
+    }
+
+    /**
+     * @param pathPrefix Start of the request path and query.  The longest matching prefix is used.
+     */
+    public void setResponder(@NonNull String pathPrefix, @NonNull Responder responder) {
+        responses.put(pathPrefix, responder);
+    }
+
+    @NonNull
+    public List<RecordedRequest> getRequests() {
+        return Collections.unmodifiableList(new ArrayList<>(requests));
+    }
+
+    /**
+     * @return Number of requests received with a path that starts with the prefix.
+     */
+    public int getRequestCount(@NonNull String pathPrefix) {
+        int count = 0;
+        for (RecordedRequest request : requests) {
+            if (request.target.startsWith(pathPrefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed.countDown();
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handleConnection(socket));
+            } catch (IOException ex) {
+                return; // Server was closed.
+            }
+        }
+    }
+
+    private void handleConnection(@NonNull Socket socket) {
+        try (Socket connection = socket) {
+            InputStream inputStream = new BufferedInputStream(connection.getInputStream());
+            RecordedRequest request = readRequest(inputStream);
+            if (request == null) {
+                return;
+            }
+            requests.add(request);
+
+            Response response = findResponse(request);
+            if (response.release != null) {
+                response.release.await();
+            }
+            if (response.latencyMilliseconds > 0) {
+                Thread.sleep(response.latencyMilliseconds);
+            }
+            if (response.neverRespond) {
+                closed.await();
+                return;
+            }
+            if (response.disconnect) {
+                return;
+            }
+            writeResponse(connection.getOutputStream(), request, response);
+        } catch (IOException | InterruptedException ex) {
+            // Client disconnected, or the server was closed.
+        }
+    }
+
+    @Nullable
+    private static RecordedRequest readRequest(@NonNull InputStream inputStream) throws IOException {
+        String requestLine = readLine(inputStream);
+        if (requestLine == null || requestLine.isEmpty()) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length < 2) {
+            return null;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(inputStream)) != null && !line.isEmpty()) {
+            final int colonIndex = line.indexOf(':');
+            if (colonIndex > 0) {
+                headers.put(line.substring(0, colonIndex).trim().toLowerCase(Locale.US),
+                        line.substring(colonIndex + 1).trim());
+            }
+        }
+
+        String contentLength = headers.get("content-length");
+        byte[] body = new byte[contentLength == null ? 0 : Integer.parseInt(contentLength)];
+        new DataInputStream(inputStream).readFully(body);
+
+        return new RecordedRequest(parts[0], parts[1], headers, body);
+    }
+
+    /**
+     * @return The line without the line terminator, or NULL if the stream ended.
+     */
+    @Nullable
+    private static String readLine(@NonNull InputStream inputStream) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = inputStream.read()) != '\n') {
+            if (b == -1) {
+                return line.size() == 0 ? null : line.toString("ISO-8859-1");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString("ISO-8859-1");
+    }
+
+    @NonNull
+    private Response findResponse(@NonNull RecordedRequest request) {
+        final String target = request.target;
+        String longestPrefix = null;
+        for (String prefix : responses.keySet()) {
+            if (target.startsWith(prefix) && (longestPrefix == null || prefix.length() > longestPrefix.length())) {
+                longestPrefix = prefix;
+            }
+        }
+        return longestPrefix == null
+                ? Response.status(404)
+                : responses.get(longestPrefix).respond(request);
+    }
+
+    private static void writeResponse(@NonNull OutputStream outputStream, @NonNull RecordedRequest request,
+                                      @NonNull Response response) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(response.statusCode).append(" Stand-in\r\n");
+        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        if (response.includeContentLength) {
+            head.append("Content-Length: ").append(response.body.length).append("\r\n");
+        }
+        head.append("Connection: close\r\n\r\n");
+
+        outputStream.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (!request.method.equals("HEAD")) {
+            outputStream.write(response.body);
+        }
+        outputStream.flush();
+    }
+}
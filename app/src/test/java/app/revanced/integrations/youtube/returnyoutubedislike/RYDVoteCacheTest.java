@@ -0,0 +1,122 @@
+package app.revanced.integrations.youtube.returnyoutubedislike;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import app.revanced.integrations.youtube.returnyoutubedislike.requests.RYDVoteData;
+import app.revanced.integrations.youtube.utils.TestContext;
+
+/**
+ * Loading the RYD vote cache file.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RYDVoteCacheTest {
+    private static final int FILE_MAGIC = 0x52594443;
+    private static final int FILE_VERSION = 1;
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        TestContext.install();
+        file = new File(RuntimeEnvironment.getApplication().getCacheDir(), "revanced_ryd_votes.bin");
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+        RYDVoteCache.unloadRecords();
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+        RYDVoteCache.unloadRecords();
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void writeFile(RecordWriter writer) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            writer.write(out);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, String videoId, long timeFetched,
+                                    long viewCount, long likeCount, long dislikeCount) throws IOException {
+        out.writeUTF(videoId);
+        out.writeLong(timeFetched);
+        out.writeLong(viewCount);
+        out.writeLong(likeCount);
+        out.writeLong(dislikeCount);
+    }
+
+    @Test
+    public void savedVotesAreLoaded() {
+        RYDVoteCache.put(new RYDVoteData("savedVideo", 1000, 30, 10));
+        RYDVoteCache.unloadRecords();
+
+        RYDVoteCache.CachedVotes cached = RYDVoteCache.get("savedVideo");
+        assertNotNull(cached);
+        assertEquals(1000, cached.voteData.viewCount);
+        assertEquals(30, cached.voteData.getFetchedLikeCount());
+        assertEquals(10, cached.voteData.getFetchedDislikeCount());
+    }
+
+    @Test
+    public void recordFetchedInTheFutureIsDropped() throws IOException {
+        final long now = System.currentTimeMillis();
+        writeFile(out -> {
+            writeRecord(out, "pastVideo01", now - 60 * 1000, 1000, 30, 10);
+            writeRecord(out, "futureVideo", now + 60 * 60 * 1000, 2000, 40, 20);
+            writeRecord(out, "laterVideo1", now - 1000, 3000, 50, 30);
+        });
+
+        assertNull(RYDVoteCache.get("futureVideo"));
+        assertNotNull(RYDVoteCache.get("pastVideo01"));
+        RYDVoteCache.CachedVotes later = RYDVoteCache.get("laterVideo1");
+        assertNotNull(later);
+        assertEquals(50, later.voteData.getFetchedLikeCount());
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void corruptRecordDeletesTheFile() throws IOException {
+        final long now = System.currentTimeMillis();
+        writeFile(out -> {
+            writeRecord(out, "pastVideo01", now - 60 * 1000, 1000, 30, 10);
+            writeRecord(out, "corruptVide", now - 1000, 2000, -1, 20);
+        });
+
+        assertNull(RYDVoteCache.get("pastVideo01"));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void unknownFormatDeletesTheFile() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION + 1);
+        }
+
+        assertNull(RYDVoteCache.get("pastVideo01"));
+        assertFalse(file.exists());
+    }
+}
@@ -0,0 +1,137 @@
+package app.revanced.integrations.youtube.returnyoutubedislike.requests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Base64;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.security.MessageDigest;
+
+import app.revanced.integrations.youtube.utils.TestContext;
+
+/**
+ * Puzzle solutions, checked against a straightforward implementation of the RYD puzzle.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RYDPuzzleSolverTest {
+    private static final String CHALLENGE = "AAECAwQFBgcICQoLDA0ODw==";
+    private static final String OTHER_CHALLENGE = "8PHy8/T19vf4+fr7/P3+/w==";
+
+    /**
+     * Puzzles of this difficulty or less are solved on the calling thread.
+     */
+    private static final int SINGLE_THREAD_MAX_DIFFICULTY = 12;
+
+    @Before
+    public void setUp() {
+        TestContext.install();
+    }
+
+    private static byte[] digestWithLeadingByte(int offset, int value) {
+        byte[] digest = new byte[64];
+        digest[offset] = (byte) value;
+        return digest;
+    }
+
+    /**
+     * Leading zero bits, counted one bit at a time.
+     */
+    private static int countLeadingZeroesBitwise(byte[] digest) {
+        int zeroes = 0;
+        for (byte b : digest) {
+            for (int bit = 7; bit >= 0; bit--) {
+                if (((b >> bit) & 1) != 0) {
+                    return zeroes;
+                }
+                zeroes++;
+            }
+        }
+        return zeroes;
+    }
+
+    private static byte[] hash(String solution, String challenge) throws Exception {
+        byte[] nonce = Base64.decode(solution, Base64.NO_WRAP);
+        assertEquals(4, nonce.length);
+        MessageDigest md = MessageDigest.getInstance("SHA-512");
+        md.update(nonce);
+        md.update(Base64.decode(challenge, Base64.NO_WRAP));
+        return md.digest();
+    }
+
+    /**
+     * @return The first nonce that solves the puzzle.
+     */
+    private static int findFirstSolution(String challenge, int difficulty) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-512");
+        byte[] decodedChallenge = Base64.decode(challenge, Base64.NO_WRAP);
+        for (int i = 0; ; i++) {
+            md.update(new byte[]{(byte) i, (byte) (i >> 8), (byte) (i >> 16), (byte) (i >> 24)});
+            md.update(decodedChallenge);
+            if (countLeadingZeroesBitwise(md.digest()) >= difficulty) {
+                return i;
+            }
+        }
+    }
+
+    private static void assertSolves(String challenge, int difficulty) throws Exception {
+        String solution = RYDPuzzleSolver.solve(challenge, difficulty);
+        final int zeroes = countLeadingZeroesBitwise(hash(solution, challenge));
+        assertTrue("difficulty: " + difficulty + " zeroes: " + zeroes, zeroes >= difficulty);
+    }
+
+    @Test
+    public void leadingZeroesAreCounted() {
+        assertEquals(512, RYDPuzzleSolver.countLeadingZeroes(new byte[64]));
+        assertEquals(0, RYDPuzzleSolver.countLeadingZeroes(digestWithLeadingByte(0, 0x80)));
+        assertEquals(0, RYDPuzzleSolver.countLeadingZeroes(digestWithLeadingByte(0, 0xFF)));
+        assertEquals(7, RYDPuzzleSolver.countLeadingZeroes(digestWithLeadingByte(0, 0x01)));
+        assertEquals(11, RYDPuzzleSolver.countLeadingZeroes(digestWithLeadingByte(1, 0x10)));
+        assertEquals(63, RYDPuzzleSolver.countLeadingZeroes(digestWithLeadingByte(7, 0x01)));
+        assertEquals(64, RYDPuzzleSolver.countLeadingZeroes(digestWithLeadingByte(8, 0x80)));
+        assertEquals(67, RYDPuzzleSolver.countLeadingZeroes(digestWithLeadingByte(8, 0x10)));
+        assertEquals(511, RYDPuzzleSolver.countLeadingZeroes(digestWithLeadingByte(63, 0x01)));
+    }
+
+    @Test
+    public void leadingZeroesMatchBitwiseCount() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-512");
+        for (int i = 0; i < 1000; i++) {
+            byte[] digest = md.digest(new byte[]{(byte) i, (byte) (i >> 8)});
+            assertEquals(countLeadingZeroesBitwise(digest), RYDPuzzleSolver.countLeadingZeroes(digest));
+        }
+    }
+
+    @Test
+    public void singleThreadSolutionIsTheFirstNonce() throws Exception {
+        for (int difficulty : new int[]{1, 8, SINGLE_THREAD_MAX_DIFFICULTY}) {
+            String solution = RYDPuzzleSolver.solve(CHALLENGE, difficulty);
+            byte[] nonce = Base64.decode(solution, Base64.NO_WRAP);
+            final int value = (nonce[0] & 0xFF) | (nonce[1] & 0xFF) << 8 | (nonce[2] & 0xFF) << 16 | (nonce[3] & 0xFF) << 24;
+            assertEquals(findFirstSolution(CHALLENGE, difficulty), value);
+        }
+    }
+
+    @Test
+    public void puzzlesAtTheSingleThreadLimitAreSolved() throws Exception {
+        assertSolves(CHALLENGE, SINGLE_THREAD_MAX_DIFFICULTY);
+        assertSolves(OTHER_CHALLENGE, SINGLE_THREAD_MAX_DIFFICULTY);
+    }
+
+    @Test
+    public void puzzlesAboveTheSingleThreadLimitAreSolved() throws Exception {
+        for (int difficulty = SINGLE_THREAD_MAX_DIFFICULTY + 1; difficulty <= 16; difficulty++) {
+            assertSolves(CHALLENGE, difficulty);
+            assertSolves(OTHER_CHALLENGE, difficulty);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shortChallengeIsRefused() throws Exception {
+        RYDPuzzleSolver.solve("AAECAw==", 8);
+    }
+}
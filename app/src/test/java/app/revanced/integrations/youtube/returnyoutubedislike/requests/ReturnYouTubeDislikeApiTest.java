@@ -0,0 +1,180 @@
+package app.revanced.integrations.youtube.returnyoutubedislike.requests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Base64;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+
+import app.revanced.integrations.youtube.requests.RequestHarness;
+import app.revanced.integrations.youtube.requests.StandInApiServer;
+import app.revanced.integrations.youtube.requests.StandInApiServer.Response;
+import app.revanced.integrations.youtube.returnyoutubedislike.ReturnYouTubeDislike;
+import app.revanced.integrations.youtube.settings.SettingsEnum;
+import app.revanced.integrations.youtube.utils.TestContext;
+
+/**
+ * {@link ReturnYouTubeDislikeApi} requests against a stand-in Return YouTube Dislike server.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ReturnYouTubeDislikeApiTest {
+    private static final String VIDEO_ID = "dQw4w9WgXcQ";
+    private static final String VOTES_JSON = "{\"id\":\"" + VIDEO_ID + "\",\"dateCreated\":\"2023-01-01T00:00:00Z\","
+            + "\"likes\":1500,\"dislikes\":500,\"rating\":4.0,\"viewCount\":100000,\"deleted\":false}";
+    private static final String CHALLENGE = "AAECAwQFBgcICQoLDA0ODw==";
+    private static final int DIFFICULTY = 8;
+    private static final String PUZZLE_JSON = "{\"challenge\":\"" + CHALLENGE + "\",\"difficulty\":" + DIFFICULTY + "}";
+
+    private StandInApiServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        TestContext.install();
+        server = new StandInApiServer();
+        ReturnYouTubeDislikeRoutes.setApiUrl(server.getUrl() + "/");
+        ReturnYouTubeDislikeApi.resetRateLimits();
+        SettingsEnum.RYD_USER_ID.saveValue("");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        ReturnYouTubeDislikeRoutes.setApiUrl(ReturnYouTubeDislikeRoutes.RYD_API_URL);
+        ReturnYouTubeDislikeApi.resetRateLimits();
+        SettingsEnum.RYD_USER_ID.resetToDefault();
+    }
+
+    private static RYDVoteData fetchVotes() throws Exception {
+        return RequestHarness.call(() -> ReturnYouTubeDislikeApi.fetchVotes(VIDEO_ID));
+    }
+
+    private static boolean sendVote() throws Exception {
+        Boolean sent = RequestHarness.call(() -> ReturnYouTubeDislikeApi.sendVote(VIDEO_ID, ReturnYouTubeDislike.Vote.LIKE));
+        assertNotNull(sent);
+        return sent;
+    }
+
+    /**
+     * Verifies the solution the same way the RYD server does.
+     */
+    private static void assertSolvesPuzzle(String solution) throws Exception {
+        byte[] nonce = Base64.decode(solution, Base64.NO_WRAP);
+        assertEquals(4, nonce.length);
+        MessageDigest md = MessageDigest.getInstance("SHA-512");
+        md.update(nonce);
+        md.update(Base64.decode(CHALLENGE, Base64.NO_WRAP));
+        assertTrue(RYDPuzzleSolver.countLeadingZeroes(md.digest()) >= DIFFICULTY);
+    }
+
+    private StandInApiServer.RecordedRequest findRequest(String method, String pathPrefix) {
+        for (StandInApiServer.RecordedRequest request : server.getRequests()) {
+            if (request.method.equals(method) && request.target.startsWith(pathPrefix)) {
+                return request;
+            }
+        }
+        throw new AssertionError("No " + method + " request to: " + pathPrefix);
+    }
+
+    @Test
+    public void votesAreFetchedAndParsed() throws Exception {
+        server.setResponse("/votes?videoId=" + VIDEO_ID, Response.json(VOTES_JSON));
+
+        RYDVoteData voteData = fetchVotes();
+        assertNotNull(voteData);
+        assertEquals(1500, voteData.getFetchedLikeCount());
+        assertEquals(500, voteData.getFetchedDislikeCount());
+        assertEquals("application/json", server.getRequests().get(0).headers.get("accept"));
+    }
+
+    @Test
+    public void invalidVoteDataIsNotUsed() throws Exception {
+        server.setResponse("/votes", Response.json(VOTES_JSON.replace("\"dislikes\":500", "\"dislikes\":-1")));
+
+        assertNull(fetchVotes());
+        assertFalse(ReturnYouTubeDislikeApi.isBackOffInEffect());
+    }
+
+    @Test
+    public void rateLimitedVoteFetchesAreNotSent() throws Exception {
+        server.setResponse("/votes", Response.status(429).withHeader("Retry-After", "60"));
+
+        assertNull(fetchVotes());
+        assertTrue(ReturnYouTubeDislikeApi.isBackOffInEffect());
+        assertNull(fetchVotes());
+        assertEquals(1, server.getRequestCount("/votes"));
+    }
+
+    @Test
+    public void droppedConnectionsBackOffAfterThreeFailures() throws Exception {
+        server.setResponse("/votes", Response.disconnect());
+
+        for (int i = 1; i <= 3; i++) {
+            assertNull(fetchVotes());
+            assertEquals(i == 3, ReturnYouTubeDislikeApi.isBackOffInEffect());
+        }
+
+        final int requestCount = server.getRequestCount("/votes");
+        assertNull(fetchVotes());
+        assertEquals(requestCount, server.getRequestCount("/votes"));
+    }
+
+    @Test
+    public void newUserRegistersAndVotes() throws Exception {
+        server.setResponder("/puzzle/registration", request -> request.method.equals("GET")
+                ? Response.json(PUZZLE_JSON)
+                : Response.json("true"));
+        server.setResponse("/interact/vote", Response.json(PUZZLE_JSON));
+        server.setResponse("/interact/confirmVote", Response.json("true"));
+
+        assertTrue(sendVote());
+
+        String userId = SettingsEnum.RYD_USER_ID.getString();
+        assertFalse(userId.isEmpty());
+        assertEquals(2, server.getRequestCount("/puzzle/registration?userId=" + userId));
+        assertSolvesPuzzle(new JSONObject(findRequest("POST", "/puzzle/registration").getBodyString())
+                .getString("solution"));
+
+        JSONObject vote = new JSONObject(findRequest("POST", "/interact/vote").getBodyString());
+        assertEquals(userId, vote.getString("userId"));
+        assertEquals(VIDEO_ID, vote.getString("videoId"));
+        assertEquals("1", vote.getString("value"));
+
+        JSONObject confirmVote = new JSONObject(findRequest("POST", "/interact/confirmVote").getBodyString());
+        assertEquals(userId, confirmVote.getString("userId"));
+        assertEquals(VIDEO_ID, confirmVote.getString("videoId"));
+        assertSolvesPuzzle(confirmVote.getString("solution"));
+    }
+
+    @Test
+    public void registeredUserIsReused() throws Exception {
+        SettingsEnum.RYD_USER_ID.saveValue("registeredUser");
+        server.setResponse("/interact/vote", Response.json(PUZZLE_JSON));
+        server.setResponse("/interact/confirmVote", Response.json("true"));
+
+        assertTrue(sendVote());
+        assertEquals(0, server.getRequestCount("/puzzle"));
+        assertEquals("registeredUser",
+                new JSONObject(findRequest("POST", "/interact/vote").getBodyString()).getString("userId"));
+    }
+
+    @Test
+    public void failedRegistrationDoesNotVote() throws Exception {
+        server.setResponse("/puzzle/registration", Response.status(500));
+
+        assertFalse(sendVote());
+        assertTrue(SettingsEnum.RYD_USER_ID.getString().isEmpty());
+        assertEquals(0, server.getRequestCount("/interact"));
+    }
+}
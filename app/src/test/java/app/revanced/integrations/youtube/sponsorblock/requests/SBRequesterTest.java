@@ -0,0 +1,225 @@
+package app.revanced.integrations.youtube.sponsorblock.requests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import app.revanced.integrations.youtube.requests.CircuitBreaker;
+import app.revanced.integrations.youtube.requests.RequestHarness;
+import app.revanced.integrations.youtube.requests.StandInApiServer;
+import app.revanced.integrations.youtube.requests.StandInApiServer.Response;
+import app.revanced.integrations.youtube.settings.SettingsEnum;
+import app.revanced.integrations.youtube.sponsorblock.objects.CategoryBehaviour;
+import app.revanced.integrations.youtube.sponsorblock.objects.SegmentCategory;
+import app.revanced.integrations.youtube.sponsorblock.objects.SponsorSegment;
+import app.revanced.integrations.youtube.utils.TestContext;
+
+/**
+ * {@link SBRequester} segment fetches against a stand-in SponsorBlock server.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SBRequesterTest {
+    private static final String SEGMENTS_PATH = "/api/skipSegments";
+    private static final String SEGMENT_JSON = "{\"segment\":[1.5,10.25],\"UUID\":\"uuid\",\"category\":\"sponsor\","
+            + "\"actionType\":\"skip\",\"locked\":1,\"votes\":3,\"videoDuration\":212.1}";
+
+    /**
+     * Fetched segments are cached for the life of the test process, so each test uses new video ids.
+     */
+    private static final AtomicInteger videoNumber = new AtomicInteger();
+
+    private StandInApiServer server;
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() throws IOException {
+        TestContext.install();
+        server = new StandInApiServer();
+        SettingsEnum.SB_API_URL.saveValue(server.getUrl());
+        SettingsEnum.SB_HASH_PREFIX_LOOKUPS.saveValue(false);
+        circuitBreaker = CircuitBreaker.forHost(server.getHost());
+        circuitBreaker.reset();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        circuitBreaker.reset();
+        SettingsEnum.SB_API_URL.resetToDefault();
+        SettingsEnum.SB_HASH_PREFIX_LOOKUPS.resetToDefault();
+    }
+
+    private static String newVideoId() {
+        return String.format(Locale.US, "sbTest%05d", videoNumber.incrementAndGet());
+    }
+
+    private static SponsorSegment[] getSegments(String videoId) throws Exception {
+        SponsorSegment[] segments = RequestHarness.call(() -> SBRequester.getSegments(videoId));
+        assertNotNull(segments);
+        return segments;
+    }
+
+    private static void assertIsFetchedSegment(SponsorSegment segment) {
+        assertEquals(SegmentCategory.SPONSOR, segment.category);
+        assertEquals("uuid", segment.UUID);
+        assertEquals(1500, segment.start);
+        assertEquals(10250, segment.end);
+        assertTrue(segment.isLocked);
+    }
+
+    @Test
+    public void segmentsAreFetchedAndParsed() throws Exception {
+        final String videoId = newVideoId();
+        server.setResponse(SEGMENTS_PATH + "?videoID=" + videoId, Response.json("[" + SEGMENT_JSON + "]"));
+
+        SponsorSegment[] segments = getSegments(videoId);
+        assertEquals(1, segments.length);
+        assertIsFetchedSegment(segments[0]);
+
+        String target = server.getRequests().get(0).target;
+        assertTrue(target, target.contains("&categories="));
+    }
+
+    @Test
+    public void fetchedSegmentsAreReused() throws Exception {
+        final String videoId = newVideoId();
+        server.setResponse(SEGMENTS_PATH + "?videoID=" + videoId, Response.json("[" + SEGMENT_JSON + "]"));
+
+        getSegments(videoId);
+        SponsorSegment[] segments = getSegments(videoId);
+        assertEquals(1, segments.length);
+        assertIsFetchedSegment(segments[0]);
+        assertEquals(1, server.getRequestCount(SEGMENTS_PATH));
+    }
+
+    @Test
+    public void videosWithoutSegmentsDoNotBackOff() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, getSegments(newVideoId()).length);
+        }
+        assertEquals(5, server.getRequestCount(SEGMENTS_PATH));
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void rateLimitedFetchesAreNotSent() throws Exception {
+        server.setResponse(SEGMENTS_PATH, Response.status(429).withHeader("Retry-After", "60"));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, getSegments(newVideoId()).length);
+        }
+        assertEquals(1, server.getRequestCount(SEGMENTS_PATH));
+        assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void serverErrorsBackOffAfterThreeFailures() throws Exception {
+        server.setResponse(SEGMENTS_PATH, Response.status(500));
+
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(0, getSegments(newVideoId()).length);
+            assertEquals(i >= 3, circuitBreaker.isOpen());
+        }
+        assertEquals(3, server.getRequestCount(SEGMENTS_PATH));
+    }
+
+    @Test
+    public void failedFetchesAreNotCached() throws Exception {
+        final String videoId = newVideoId();
+        server.setResponse(SEGMENTS_PATH, Response.status(500));
+        assertEquals(0, getSegments(videoId).length);
+
+        server.setResponse(SEGMENTS_PATH + "?videoID=" + videoId, Response.json("[" + SEGMENT_JSON + "]"));
+        SponsorSegment[] segments = getSegments(videoId);
+        assertEquals(1, segments.length);
+        assertIsFetchedSegment(segments[0]);
+    }
+
+    @Test
+    public void hashPrefixLookupDoesNotSendVideoId() throws Exception {
+        SettingsEnum.SB_HASH_PREFIX_LOOKUPS.saveValue(true);
+        final String videoId = newVideoId();
+        final String hashPrefix = SBPrefixCache.getHashPrefix(videoId);
+        assertEquals(SBPrefixCache.HASH_PREFIX_LENGTH, hashPrefix.length());
+        server.setResponse(SEGMENTS_PATH + "/" + hashPrefix, Response.json("["
+                + "{\"videoID\":\"otherVideo\",\"hash\":\"hash\",\"segments\":[" + SEGMENT_JSON + "]},"
+                + "{\"videoID\":\"" + videoId + "\",\"hash\":\"hash\",\"segments\":[" + SEGMENT_JSON + "]}]"));
+
+        SponsorSegment[] segments = getSegments(videoId);
+        assertEquals(1, segments.length);
+        assertIsFetchedSegment(segments[0]);
+
+        String target = server.getRequests().get(0).target;
+        assertTrue(target, target.startsWith(SEGMENTS_PATH + "/" + hashPrefix + "?"));
+        assertFalse(target, target.contains(videoId));
+    }
+
+    private static List<SponsorSegment> parse(String json) throws IOException {
+        List<SponsorSegment> segments = new ArrayList<>();
+        SBRequester.parseSegments(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), segments);
+        return segments;
+    }
+
+    @Test
+    public void segmentFieldsAreParsed() throws IOException {
+        List<SponsorSegment> segments = parse("[" + SEGMENT_JSON + ","
+                + "{\"category\":\"selfpromo\",\"actionType\":\"skip\",\"segment\":[0,0.001,\"extra\"],"
+                + "\"UUID\":\"other\",\"videoDuration\":0,\"locked\":0,\"votes\":-2,"
+                + "\"description\":\"\",\"userID\":{\"nested\":[1,2]}}]");
+        assertEquals(2, segments.size());
+        assertIsFetchedSegment(segments.get(0));
+
+        SponsorSegment segment = segments.get(1);
+        assertEquals(SegmentCategory.SELF_PROMO, segment.category);
+        assertEquals("other", segment.UUID);
+        assertEquals(0, segment.start);
+        assertEquals(1, segment.end);
+        assertFalse(segment.isLocked);
+    }
+
+    @Test
+    public void emptyResponseIsParsed() throws IOException {
+        assertTrue(parse("[]").isEmpty());
+    }
+
+    @Test
+    public void unknownAndIncompleteSegmentsAreDiscarded() throws IOException {
+        List<SponsorSegment> segments = parse("["
+                + SEGMENT_JSON.replace("\"sponsor\"", "\"notACategory\"") + ","
+                + "{\"segment\":[1,2],\"category\":\"sponsor\"},"
+                + SEGMENT_JSON + "]");
+        assertEquals(1, segments.size());
+        assertIsFetchedSegment(segments.get(0));
+    }
+
+    @Test
+    public void ignoredCategoriesAreDiscarded() throws IOException {
+        final CategoryBehaviour behaviour = SegmentCategory.SPONSOR.behaviour;
+        try {
+            SegmentCategory.SPONSOR.behaviour = CategoryBehaviour.IGNORE;
+            assertTrue(parse("[" + SEGMENT_JSON + "]").isEmpty());
+        } finally {
+            SegmentCategory.SPONSOR.behaviour = behaviour;
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedResponseIsNotParsed() throws IOException {
+        parse("[" + SEGMENT_JSON);
+    }
+}
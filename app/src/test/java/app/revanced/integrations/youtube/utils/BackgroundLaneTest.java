@@ -0,0 +1,78 @@
+package app.revanced.integrations.youtube.utils;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tasks submitted to a full lane.  Robolectric runs tests on the main thread.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BackgroundLaneTest {
+    private static final Pattern REJECTED_PATTERN = Pattern.compile("rejected: (\\d+)");
+
+    @Before
+    public void setUp() {
+        TestContext.install();
+    }
+
+    private static long getRejectedCount(BackgroundLane lane) {
+        Matcher matcher = REJECTED_PATTERN.matcher(lane.getSummary());
+        assertTrue(matcher.find());
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Adds tasks that wait for the latch, until the lane is full and refuses a task.
+     */
+    private static void fill(BackgroundLane lane, CountDownLatch release) {
+        final long rejectedCount = getRejectedCount(lane);
+        while (getRejectedCount(lane) == rejectedCount) {
+            lane.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void fullLaneTaskFromMainThreadRunsOnOverflowThread() throws Exception {
+        assertTrue(ReVancedUtils.isCurrentlyOnMainThread());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            fill(BackgroundLane.CPU, release);
+            Future<String> overflow = BackgroundLane.CPU.submit(() -> Thread.currentThread().getName());
+            String threadName = overflow.get(10, TimeUnit.SECONDS);
+            assertTrue(threadName, threadName.startsWith("revanced-overflow-"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void fullLaneTaskFromLaneThreadRunsOnCallingThread() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            fill(BackgroundLane.CPU, release);
+            Future<Boolean> sameThread = BackgroundLane.BLOCKING.submit(() -> {
+                final Thread caller = Thread.currentThread();
+                return BackgroundLane.CPU.submit(() -> Thread.currentThread() == caller).get();
+            });
+            assertTrue(sameThread.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+}
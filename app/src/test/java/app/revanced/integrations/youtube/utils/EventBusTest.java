@@ -0,0 +1,79 @@
+package app.revanced.integrations.youtube.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import app.revanced.integrations.youtube.patches.video.VideoInformation;
+import app.revanced.integrations.youtube.settings.SettingsEnum;
+
+/**
+ * Events posted by the video time hook and by saving settings.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EventBusTest {
+
+    @Before
+    public void setUp() {
+        TestContext.install();
+    }
+
+    @Test
+    public void videoTimeIsPostedToListeners() {
+        List<Long> times = new ArrayList<>();
+        EventBus.Subscription<Long> subscription = EventBus.VIDEO_TIME_TICK.subscribe("test",
+                EventBus.POSTING_THREAD, times::add);
+        try {
+            VideoInformation.setVideoTime(1000);
+            VideoInformation.setVideoTime(2000);
+        } finally {
+            EventBus.VIDEO_TIME_TICK.unsubscribe(subscription);
+        }
+        VideoInformation.setVideoTime(3000);
+
+        assertEquals(List.of(1000L, 2000L), times);
+        assertEquals(3000, VideoInformation.getVideoTime());
+    }
+
+    @Test
+    public void savedSettingIsPostedToListeners() {
+        List<SettingsEnum> settings = new ArrayList<>();
+        EventBus.Subscription<SettingsEnum> subscription = EventBus.SETTING_CHANGED.subscribe("test",
+                EventBus.POSTING_THREAD, settings::add);
+        try {
+            SettingsEnum.SB_VOTING_BUTTON.saveValue(!SettingsEnum.SB_VOTING_BUTTON.getBoolean());
+            assertEquals(List.of(SettingsEnum.SB_VOTING_BUTTON), settings);
+
+            SettingsEnum.SB_VOTING_BUTTON.resetToDefault();
+            assertEquals(List.of(SettingsEnum.SB_VOTING_BUTTON, SettingsEnum.SB_VOTING_BUTTON), settings);
+        } finally {
+            EventBus.SETTING_CHANGED.unsubscribe(subscription);
+        }
+    }
+
+    @Test
+    public void failingListenerDoesNotStopOtherListeners() {
+        List<Long> times = new ArrayList<>();
+        EventBus.Subscription<Long> failing = EventBus.VIDEO_TIME_TICK.subscribe("failing",
+                EventBus.POSTING_THREAD, time -> {
+                    throw new IllegalStateException();
+                });
+        EventBus.Subscription<Long> working = EventBus.VIDEO_TIME_TICK.subscribe("working",
+                EventBus.POSTING_THREAD, times::add);
+        try {
+            VideoInformation.setVideoTime(1000);
+            assertEquals(List.of(1000L), times);
+            assertTrue(EventBus.VIDEO_TIME_TICK.getSummary().contains("working  dispatched: 1"));
+        } finally {
+            EventBus.VIDEO_TIME_TICK.unsubscribe(failing);
+            EventBus.VIDEO_TIME_TICK.unsubscribe(working);
+        }
+    }
+}
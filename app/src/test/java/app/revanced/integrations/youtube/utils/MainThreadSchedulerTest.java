@@ -0,0 +1,89 @@
+package app.revanced.integrations.youtube.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyed main thread tasks.  The main looper is paused, so tasks run only when the test idles it.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MainThreadSchedulerTest {
+
+    @Before
+    public void setUp() {
+        TestContext.install();
+    }
+
+    private static void idleFor(long millis) {
+        ShadowLooper.idleMainLooper(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void newerTaskReplacesPendingTask() {
+        List<String> ran = new ArrayList<>();
+        MainThreadScheduler.schedule("replace", () -> ran.add("first"), 0);
+        MainThreadScheduler.schedule("replace", () -> ran.add("second"), 0);
+        assertTrue(ran.isEmpty());
+
+        idleFor(100);
+        assertEquals(List.of("second"), ran);
+    }
+
+    @Test
+    public void dueTasksRunTogetherInScheduledOrder() {
+        List<String> ran = new ArrayList<>();
+        MainThreadScheduler.schedule("order1", () -> ran.add("1"), 0);
+        MainThreadScheduler.schedule("order2", () -> ran.add("2"), 0);
+        MainThreadScheduler.schedule("order3", () -> ran.add("3"), 0);
+        // Rescheduling moves the task after the others.
+        MainThreadScheduler.schedule("order1", () -> ran.add("1 again"), 0);
+
+        idleFor(100);
+        assertEquals(List.of("2", "3", "1 again"), ran);
+    }
+
+    @Test
+    public void cancelledTaskDoesNotRun() {
+        List<String> ran = new ArrayList<>();
+        MainThreadScheduler.schedule("cancel", () -> ran.add("cancelled"), 0);
+        MainThreadScheduler.cancel("cancel");
+
+        idleFor(100);
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    public void delayedTaskRunsWhenDue() {
+        List<String> ran = new ArrayList<>();
+        MainThreadScheduler.schedule("delayed", () -> ran.add("delayed"), 1000);
+        MainThreadScheduler.schedule("soon", () -> ran.add("soon"), 10);
+
+        idleFor(500);
+        assertEquals(List.of("soon"), ran);
+
+        idleFor(600);
+        assertEquals(List.of("soon", "delayed"), ran);
+    }
+
+    @Test
+    public void failingTaskDoesNotStopOtherTasks() {
+        List<String> ran = new ArrayList<>();
+        MainThreadScheduler.schedule("failing", () -> {
+            throw new IllegalStateException();
+        }, 0);
+        MainThreadScheduler.schedule("working", () -> ran.add("working"), 0);
+
+        idleFor(100);
+        assertEquals(List.of("working"), ran);
+    }
+}
@@ -0,0 +1,19 @@
+package app.revanced.integrations.youtube.utils;
+
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Uses the Robolectric application as the context, so settings, logging and the disk caches work in unit tests.
+ */
+public final class TestContext {
+
+    private TestContext() {
+    }
+
+    /**
+     * Sets the context used by {@link ReVancedUtils}.  Must be called before any setting is used.
+     */
+    public static void install() {
+        ReVancedUtils.context = RuntimeEnvironment.getApplication();
+    }
+}
@@ -1,5 +1,8 @@
 package org.chromium.net;
 
+import java.util.List;
+import java.util.Map;
+
 //dummy class
 public abstract class UrlResponseInfo {
 
@@ -7,6 +10,10 @@ public abstract class UrlResponseInfo {
 
     public abstract int getHttpStatusCode();
 
+    public abstract Map<String, List<String>> getAllHeaders();
+
+    public abstract long getReceivedByteCount();
+
     // Add additional existing methods, if needed.
 
 }